@@ -1,23 +1,29 @@
 package fr.simplex_software.aws.iac.quarkus.api_gateway;
 
+import fr.simplex_software.aws.iac.simple_construct.*;
+import fr.simplex_software.aws.iac.simple_construct.config.*;
 import io.quarkus.runtime.*;
 import io.quarkus.runtime.annotations.*;
 import jakarta.enterprise.context.*;
 import jakarta.enterprise.inject.*;
 import jakarta.inject.*;
+import org.jboss.logging.*;
 import software.amazon.awscdk.*;
 
 @ApplicationScoped
 public class CdkApiGatewayApp implements QuarkusApplication
 {
+  private static final Logger LOG = Logger.getLogger(CdkApiGatewayApp.class);
   private CdkApiGatewayStack cdkApiGatewayStack;
   private App app;
+  private LambdaWithBucketConstructConfig config;
 
   @Inject
-  public CdkApiGatewayApp (App app, CdkApiGatewayStack cdkApiGatewayStack)
+  public CdkApiGatewayApp (App app, CdkApiGatewayStack cdkApiGatewayStack, LambdaWithBucketConstructConfig config)
   {
     this.app = app;
     this.cdkApiGatewayStack = cdkApiGatewayStack;
+    this.config = config;
   }
 
   @Override
@@ -26,8 +32,29 @@ public class CdkApiGatewayApp implements QuarkusApplication
     Tags.of(app).add("project", "API Gateway with Quarkus");
     Tags.of(app).add("environment", "development");
     Tags.of(app).add("application", "CdkApiGatewayApp");
+    if (!Boolean.parseBoolean(String.valueOf(app.getNode().tryGetContext(CdkSynthCache.INCREMENTAL_SYNTH))))
+    {
+      cdkApiGatewayStack.initStack();
+      app.synth();
+      return 0;
+    }
+    CdkSynthCache synthCache = new CdkSynthCache(app.getOutdir())
+      .addConfig(LambdaWithBucketConstructConfig.class, config)
+      .add("stack", cdkApiGatewayStack.getStackName())
+      .add("construct", cdkApiGatewayStack.getLambdaWithBucketConstructId())
+      .addEnvironment()
+      .addCode(CdkApiGatewayApp.class, LambdaWithBucketConstruct.class, App.class);
+    String zip = (String) app.getNode().tryGetContext(LambdaWithBucketConstruct.ZIP);
+    if (zip != null)
+      cdkApiGatewayStack.getNode().setContext(LambdaWithBucketConstruct.ZIP_HASH, synthCache.addAsset(zip));
+    if (synthCache.isUpToDate())
+    {
+      LOG.infof("Nothing changed, reusing the cloud assembly in %s", app.getOutdir());
+      return 0;
+    }
     cdkApiGatewayStack.initStack();
     app.synth();
+    synthCache.save();
     return 0;
   }
 }
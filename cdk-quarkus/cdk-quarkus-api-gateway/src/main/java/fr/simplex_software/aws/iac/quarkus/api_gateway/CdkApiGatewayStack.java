@@ -9,17 +9,23 @@ import software.amazon.awscdk.*;
 @Singleton
 public class CdkApiGatewayStack extends Stack
 {
-  @Inject
-  LambdaWithBucketConstructConfig config;
-  @ConfigProperty(name = "cdk.lambda-with-bucket-construct-id", defaultValue = "LambdaWithBucketConstructId")
-  String lambdaWithBucketConstructId;
+  private final LambdaWithBucketConstructConfig config;
+  private final String lambdaWithBucketConstructId;
 
   @Inject
   public CdkApiGatewayStack(final App scope,
      final @ConfigProperty(name = "cdk.stack-id", defaultValue = "QuarkusApiGatewayStack") String stackId,
-     final StackProps props)
+     final StackProps props, final LambdaWithBucketConstructConfig config,
+     final @ConfigProperty(name = "cdk.lambda-with-bucket-construct-id", defaultValue = "LambdaWithBucketConstructId") String lambdaWithBucketConstructId)
   {
     super(scope, stackId, props);
+    this.config = config;
+    this.lambdaWithBucketConstructId = lambdaWithBucketConstructId;
+  }
+
+  public String getLambdaWithBucketConstructId()
+  {
+    return lambdaWithBucketConstructId;
   }
 
   public void initStack()
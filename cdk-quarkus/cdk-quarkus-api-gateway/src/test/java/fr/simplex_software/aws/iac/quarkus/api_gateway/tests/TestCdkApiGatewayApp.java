@@ -0,0 +1,88 @@
+package fr.simplex_software.aws.iac.quarkus.api_gateway.tests;
+
+import fr.simplex_software.aws.iac.quarkus.api_gateway.*;
+import fr.simplex_software.aws.iac.simple_construct.*;
+import fr.simplex_software.aws.iac.simple_construct.config.*;
+import io.smallrye.config.*;
+import io.smallrye.config.common.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import software.amazon.awscdk.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class TestCdkApiGatewayApp
+{
+  private static final String RAM = "lambda.with.bucket.construct.config.function-props.ram";
+  private static final FileTime UNTOUCHED = FileTime.fromMillis(0);
+  @TempDir
+  Path tempDir;
+  private String zip;
+  private Path outdir;
+
+  @BeforeEach
+  public void createAsset() throws IOException
+  {
+    zip = Files.writeString(tempDir.resolve("function.zip"), "function").toString();
+    outdir = tempDir.resolve("cdk.out");
+  }
+
+  @Test
+  public void testCachedSynth() throws Exception
+  {
+    assertThat(synth(Map.of(), true)).isTrue();
+    assertThat(outdir.resolve("QuarkusApiGatewayStack.template.json")).exists();
+    assertThat(synth(Map.of(), true)).isFalse();
+  }
+
+  @Test
+  public void testChangedConfig() throws Exception
+  {
+    assertThat(synth(Map.of(), true)).isTrue();
+    assertThat(synth(Map.of(RAM, "1024"), true)).isTrue();
+    assertThat(synth(Map.of(RAM, "1024"), true)).isFalse();
+  }
+
+  @Test
+  public void testChangedAsset() throws Exception
+  {
+    assertThat(synth(Map.of(), true)).isTrue();
+    Files.writeString(Paths.get(zip), "new function");
+    assertThat(synth(Map.of(), true)).isTrue();
+    assertThat(synth(Map.of(), true)).isFalse();
+  }
+
+  @Test
+  public void testFullSynth() throws Exception
+  {
+    assertThat(synth(Map.of(), false)).isTrue();
+    assertThat(synth(Map.of(), false)).isTrue();
+  }
+
+  /**
+   * Runs the CDK app as its main class does, and tells whether the cloud assembly was
+   * synthesized again.
+   */
+  private boolean synth(Map<String, String> properties, boolean incremental) throws Exception
+  {
+    Path manifest = outdir.resolve("manifest.json");
+    if (Files.exists(manifest))
+      Files.setLastModifiedTime(manifest, UNTOUCHED);
+    LambdaWithBucketConstructConfig config = new SmallRyeConfigBuilder()
+      .withMapping(LambdaWithBucketConstructConfig.class)
+      .withSources(new MapBackedConfigSource("test", properties) {})
+      .build()
+      .getConfigMapping(LambdaWithBucketConstructConfig.class);
+    App app = new App(AppProps.builder().outdir(outdir.toString())
+      .context(Map.of(LambdaWithBucketConstruct.ZIP, zip, CdkSynthCache.INCREMENTAL_SYNTH, String.valueOf(incremental))).build());
+    CdkApiGatewayStack stack = new CdkApiGatewayStack(app, "QuarkusApiGatewayStack", StackProps.builder().build(), config,
+      "LambdaWithBucketConstructId");
+    assertThat(new CdkApiGatewayApp(app, stack, config).run()).isZero();
+    return !Files.getLastModifiedTime(manifest).equals(UNTOUCHED);
+  }
+}
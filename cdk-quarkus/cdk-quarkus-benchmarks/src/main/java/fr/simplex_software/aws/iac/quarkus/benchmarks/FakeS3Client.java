@@ -0,0 +1,143 @@
+package fr.simplex_software.aws.iac.quarkus.benchmarks;
+
+import software.amazon.awssdk.core.exception.*;
+import software.amazon.awssdk.core.sync.*;
+import software.amazon.awssdk.http.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.time.*;
+import java.util.*;
+
+/**
+ * An in-process {@link S3Client} serving synthetic objects and listings, such that the
+ * request handling code may be benchmarked without any network or storage noise. Every
+ * object has the same size and its content is generated on the fly; uploaded bodies are
+ * read to the end and discarded.
+ */
+public class FakeS3Client implements S3Client
+{
+  private static final int MAX_KEYS = 1000;
+  private static final Instant LAST_MODIFIED = Instant.parse("2024-06-01T00:00:00Z");
+  private final int keyCount;
+  private final long objectSize;
+
+  public FakeS3Client(int keyCount, long objectSize)
+  {
+    this.keyCount = keyCount;
+    this.objectSize = objectSize;
+  }
+
+  public static String key(int index)
+  {
+    return String.format("objects/object-%08d", index);
+  }
+
+  @Override
+  public ListObjectsV2Response listObjectsV2(ListObjectsV2Request request)
+  {
+    int from = request.continuationToken() == null ? 0 : Integer.parseInt(request.continuationToken());
+    int to = Math.min(keyCount, from + (request.maxKeys() == null ? MAX_KEYS : request.maxKeys()));
+    List<S3Object> contents = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++)
+      contents.add(S3Object.builder().key(key(i)).size(objectSize).lastModified(LAST_MODIFIED).eTag(String.format("\"%032x\"", i)).build());
+    return ListObjectsV2Response.builder()
+      .contents(contents)
+      .keyCount(contents.size())
+      .isTruncated(to < keyCount)
+      .nextContinuationToken(to < keyCount ? String.valueOf(to) : null)
+      .build();
+  }
+
+  @Override
+  public <ReturnT> ReturnT getObject(GetObjectRequest request, ResponseTransformer<GetObjectResponse, ReturnT> transformer)
+  {
+    GetObjectResponse response = GetObjectResponse.builder()
+      .contentLength(objectSize)
+      .contentType("application/octet-stream")
+      .lastModified(LAST_MODIFIED)
+      .eTag("\"" + request.key() + "\"")
+      .build();
+    try
+    {
+      return transformer.transform(response, AbortableInputStream.create(new SyntheticInputStream(objectSize)));
+    }
+    catch (Exception ex)
+    {
+      throw SdkClientException.create(ex.getMessage(), ex);
+    }
+  }
+
+  @Override
+  public PutObjectResponse putObject(PutObjectRequest request, RequestBody requestBody)
+  {
+    try (InputStream body = requestBody.contentStreamProvider().newStream())
+    {
+      body.transferTo(OutputStream.nullOutputStream());
+    }
+    catch (IOException ex)
+    {
+      throw SdkClientException.create(ex.getMessage(), ex);
+    }
+    return PutObjectResponse.builder().eTag("\"" + request.key() + "\"").build();
+  }
+
+  @Override
+  public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request)
+  {
+    return CreateMultipartUploadResponse.builder().uploadId(request.key()).build();
+  }
+
+  @Override
+  public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody requestBody)
+  {
+    putObject(PutObjectRequest.builder().key(request.key()).build(), requestBody);
+    return UploadPartResponse.builder().eTag("\"" + request.partNumber() + "\"").build();
+  }
+
+  @Override
+  public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request)
+  {
+    return CompleteMultipartUploadResponse.builder().eTag("\"" + request.key() + "\"").build();
+  }
+
+  @Override
+  public String serviceName()
+  {
+    return SERVICE_NAME;
+  }
+
+  @Override
+  public void close()
+  {
+  }
+
+  public static class SyntheticInputStream extends InputStream
+  {
+    private final long size;
+    private long position;
+
+    public SyntheticInputStream(long size)
+    {
+      this.size = size;
+    }
+
+    @Override
+    public int read()
+    {
+      return position < size ? (int) (position++ % 251) : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length)
+    {
+      if (position >= size)
+        return -1;
+      int count = (int) Math.min(length, size - position);
+      Arrays.fill(buffer, offset, offset + count, (byte) (position % 251));
+      position += count;
+      return count;
+    }
+  }
+}
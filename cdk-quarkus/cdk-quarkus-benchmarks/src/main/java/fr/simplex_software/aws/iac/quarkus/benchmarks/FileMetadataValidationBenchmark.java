@@ -0,0 +1,50 @@
+package fr.simplex_software.aws.iac.quarkus.benchmarks;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import jakarta.validation.*;
+import org.hibernate.validator.messageinterpolation.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The {@link FileMetadata} Bean Validation cost paid by every upload, for a valid
+ * and an invalid form.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileMetadataValidationBenchmark
+{
+  private Validator validator;
+  private FileMetadata valid;
+  private FileMetadata invalid;
+
+  @Setup
+  public void setup()
+  {
+    validator = Validation.byDefaultProvider().configure()
+      .messageInterpolator(new ParameterMessageInterpolator())
+      .buildValidatorFactory()
+      .getValidator();
+    valid = new FileMetadata(new File("README.md"), "README.md", "text/plain");
+    invalid = new FileMetadata(null, "AA", "aa");
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<FileMetadata>> validFileMetadata()
+  {
+    return validator.validate(valid);
+  }
+
+  @Benchmark
+  public Set<ConstraintViolation<FileMetadata>> invalidFileMetadata()
+  {
+    return validator.validate(invalid);
+  }
+}
@@ -0,0 +1,67 @@
+package fr.simplex_software.aws.iac.quarkus.benchmarks;
+
+import com.fasterxml.jackson.databind.*;
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * The listing hot path: mapping S3 objects to {@link S3File} and serializing whole
+ * listings, either materialized and sorted in memory, as {@code /s3/list} used to do,
+ * or streamed page by page through {@link S3FileListingOutput}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class S3FileListingBenchmark
+{
+  @Param({"1000", "100000"})
+  int keyCount;
+  private S3Client s3;
+  private ObjectMapper objectMapper;
+  private S3Object s3Object;
+  private ListObjectsV2Request request;
+
+  @Setup
+  public void setup()
+  {
+    s3 = new FakeS3Client(keyCount, 1024);
+    objectMapper = new ObjectMapper();
+    s3Object = S3Object.builder().key(FakeS3Client.key(0)).size(1024L).build();
+    request = ListObjectsV2Request.builder().bucket("benchmark").build();
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public S3File s3FileFrom()
+  {
+    return S3File.from(s3Object);
+  }
+
+  @Benchmark
+  public void materializedListing(Blackhole blackhole) throws IOException
+  {
+    List<S3File> files = s3.listObjectsV2Paginator(request).contents().stream()
+      .map(S3File::from)
+      .sorted(Comparator.comparing(S3File::getObjectKey))
+      .collect(Collectors.toList());
+    blackhole.consume(objectMapper.writeValueAsBytes(files));
+  }
+
+  @Benchmark
+  public void streamedListing() throws IOException
+  {
+    Iterator<ListObjectsV2Response> pages = s3.listObjectsV2Paginator(request).iterator();
+    new S3FileListingOutput(objectMapper, pages.next(), pages).write(OutputStream.nullOutputStream());
+  }
+}
@@ -0,0 +1,290 @@
+package fr.simplex_software.aws.iac.quarkus.benchmarks;
+
+import com.fasterxml.jackson.databind.*;
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import fr.simplex_software.aws.iac.quarkus.test_support.*;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.auth.credentials.*;
+import software.amazon.awssdk.core.async.*;
+import software.amazon.awssdk.core.sync.*;
+import software.amazon.awssdk.http.apache.*;
+import software.amazon.awssdk.http.crt.*;
+import software.amazon.awssdk.http.nio.netty.*;
+import software.amazon.awssdk.http.urlconnection.*;
+import software.amazon.awssdk.regions.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The upload, download and list workloads of the file management API, run through each
+ * of the SDK's HTTP transports against the local {@link S3StubServer}: the
+ * {@code url-connection}, {@code apache} and {@code aws-crt} blocking clients and the
+ * {@code netty} and {@code aws-crt-async} async ones, configured by the S3 module's
+ * {@code application.properties}. Each workload is run by a single thread, and by
+ * {@value #THREADS} threads sharing the client, which is what a long-running service
+ * does with its connection pool. {@code coldInit} measures, in a fresh JVM, the time to
+ * build the client and to complete its first request, which is what a Lambda cold start
+ * pays for.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class S3HttpTransportBenchmark
+{
+  private static final int CHUNK_SIZE = 65536;
+  private static final int OBJECT_SIZE = 1024 * 1024;
+  private static final int KEY_COUNT = 1000;
+  private static final int THREADS = 16;
+  private static final String DOWNLOAD_KEY = "download";
+  private static final String UPLOAD_KEY = "upload";
+  private static final String LIST_PREFIX = "objects/";
+  private static final String SYNC_CLIENT = "quarkus.s3.sync-client.";
+  private static final String ASYNC_CLIENT = "quarkus.s3.async-client.";
+  private static final Properties config = config();
+
+  @State(Scope.Benchmark)
+  public static class Stub
+  {
+    @Param({"url-connection", "apache", "aws-crt", "netty", "aws-crt-async"})
+    String transport;
+    private S3StubServer server;
+
+    @Setup
+    public void setup() throws IOException
+    {
+      server = new S3StubServer();
+      server.put(DOWNLOAD_KEY, new FakeS3Client.SyntheticInputStream(OBJECT_SIZE).readAllBytes());
+      for (int i = 0; i < KEY_COUNT; i++)
+        server.put(FakeS3Client.key(i).replace("objects/", LIST_PREFIX), new byte[1024]);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+      server.close();
+    }
+
+    private boolean isAsync()
+    {
+      return transport.equals("netty") || transport.equals("aws-crt-async");
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Clients
+  {
+    private S3Client s3;
+    private S3AsyncClient s3Async;
+    private ObjectMapper objectMapper;
+    private Path file;
+
+    @Setup
+    public void setup(Stub stub) throws IOException
+    {
+      if (stub.isAsync())
+        s3Async = asyncClient(stub);
+      else
+        s3 = client(stub);
+      objectMapper = new ObjectMapper();
+      file = Files.createTempFile("benchmark", ".bin");
+      try (InputStream content = new FakeS3Client.SyntheticInputStream(OBJECT_SIZE))
+      {
+        Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+      if (s3 != null)
+        s3.close();
+      if (s3Async != null)
+        s3Async.close();
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  @Fork(5)
+  public int coldInit(Stub stub)
+  {
+    ListObjectsV2Request request = ListObjectsV2Request.builder().bucket(S3StubServer.BUCKET).maxKeys(1).build();
+    if (stub.isAsync())
+      try (S3AsyncClient client = asyncClient(stub))
+      {
+        return client.listObjectsV2(request).join().keyCount();
+      }
+    try (S3Client client = client(stub))
+    {
+      return client.listObjectsV2(request).keyCount();
+    }
+  }
+
+  @Benchmark
+  public String upload(Clients clients)
+  {
+    return putObject(clients);
+  }
+
+  @Benchmark
+  @Threads(THREADS)
+  @BenchmarkMode(Mode.Throughput)
+  public String concurrentUpload(Clients clients)
+  {
+    return putObject(clients);
+  }
+
+  @Benchmark
+  public void download(Clients clients) throws IOException
+  {
+    getObject(clients);
+  }
+
+  @Benchmark
+  @Threads(THREADS)
+  @BenchmarkMode(Mode.Throughput)
+  public void concurrentDownload(Clients clients) throws IOException
+  {
+    getObject(clients);
+  }
+
+  @Benchmark
+  public void list(Clients clients) throws IOException
+  {
+    listObjects(clients);
+  }
+
+  @Benchmark
+  @Threads(THREADS)
+  @BenchmarkMode(Mode.Throughput)
+  public void concurrentList(Clients clients) throws IOException
+  {
+    listObjects(clients);
+  }
+
+  private static String putObject(Clients clients)
+  {
+    PutObjectRequest request = PutObjectRequest.builder().bucket(S3StubServer.BUCKET).key(UPLOAD_KEY).build();
+    return clients.s3Async == null ? clients.s3.putObject(request, RequestBody.fromFile(clients.file)).eTag()
+      : clients.s3Async.putObject(request, AsyncRequestBody.fromFile(clients.file)).join().eTag();
+  }
+
+  private static void getObject(Clients clients) throws IOException
+  {
+    GetObjectRequest request = GetObjectRequest.builder().bucket(S3StubServer.BUCKET).key(DOWNLOAD_KEY).build();
+    InputStream object = clients.s3Async == null ? clients.s3.getObject(request)
+      : clients.s3Async.getObject(request, AsyncResponseTransformer.toBlockingInputStream()).join();
+    new S3ObjectStreamingOutput(object, CHUNK_SIZE).write(OutputStream.nullOutputStream());
+  }
+
+  private static void listObjects(Clients clients) throws IOException
+  {
+    ListObjectsV2Request request = ListObjectsV2Request.builder().bucket(S3StubServer.BUCKET).prefix(LIST_PREFIX).build();
+    ListObjectsV2Response page = clients.s3Async == null ? clients.s3.listObjectsV2(request)
+      : clients.s3Async.listObjectsV2(request).join();
+    new S3FileListingOutput(clients.objectMapper, page, Collections.emptyIterator()).write(OutputStream.nullOutputStream());
+  }
+
+  private static S3Client client(Stub stub)
+  {
+    S3ClientBuilder builder = S3Client.builder();
+    Duration connectionTimeout = duration(SYNC_CLIENT + "connection-timeout");
+    switch (stub.transport)
+    {
+      case "url-connection" -> builder.httpClientBuilder(UrlConnectionHttpClient.builder()
+        .connectionTimeout(connectionTimeout).socketTimeout(duration(SYNC_CLIENT + "socket-timeout")));
+      case "apache" -> builder.httpClientBuilder(ApacheHttpClient.builder()
+        .connectionTimeout(connectionTimeout).socketTimeout(duration(SYNC_CLIENT + "socket-timeout"))
+        .maxConnections(integer(SYNC_CLIENT + "apache.max-connections"))
+        .connectionAcquisitionTimeout(duration(SYNC_CLIENT + "apache.connection-acquisition-timeout"))
+        .connectionTimeToLive(duration(SYNC_CLIENT + "apache.connection-time-to-live"))
+        .connectionMaxIdleTime(duration(SYNC_CLIENT + "apache.connection-max-idle-time"))
+        .useIdleConnectionReaper(bool(SYNC_CLIENT + "apache.use-idle-connection-reaper"))
+        .tcpKeepAlive(bool(SYNC_CLIENT + "apache.tcp-keep-alive")));
+      case "aws-crt" -> builder.httpClientBuilder(AwsCrtHttpClient.builder()
+        .connectionTimeout(connectionTimeout).maxConcurrency(integer(SYNC_CLIENT + "crt.max-concurrency"))
+        .connectionMaxIdleTime(duration(SYNC_CLIENT + "crt.connection-max-idle-time")));
+      default -> throw new IllegalArgumentException("Unknown blocking transport " + stub.transport);
+    }
+    return configure(builder, stub);
+  }
+
+  private static S3AsyncClient asyncClient(Stub stub)
+  {
+    S3AsyncClientBuilder builder = S3AsyncClient.builder();
+    Duration connectionTimeout = duration(ASYNC_CLIENT + "connection-timeout");
+    switch (stub.transport)
+    {
+      case "netty" -> builder.httpClientBuilder(NettyNioAsyncHttpClient.builder()
+        .connectionTimeout(connectionTimeout).maxConcurrency(integer(ASYNC_CLIENT + "max-concurrency"))
+        .connectionAcquisitionTimeout(duration(ASYNC_CLIENT + "connection-acquisition-timeout"))
+        .connectionTimeToLive(duration(ASYNC_CLIENT + "connection-time-to-live"))
+        .connectionMaxIdleTime(duration(ASYNC_CLIENT + "connection-max-idle-time"))
+        .tcpKeepAlive(bool(ASYNC_CLIENT + "tcp-keep-alive")));
+      case "aws-crt-async" -> builder.httpClientBuilder(AwsCrtAsyncHttpClient.builder()
+        .connectionTimeout(connectionTimeout).maxConcurrency(integer(ASYNC_CLIENT + "max-concurrency"))
+        .connectionMaxIdleTime(duration(ASYNC_CLIENT + "connection-max-idle-time")));
+      default -> throw new IllegalArgumentException("Unknown async transport " + stub.transport);
+    }
+    return configure(builder, stub);
+  }
+
+  private static <B extends S3BaseClientBuilder<B, C>, C> C configure(B builder, Stub stub)
+  {
+    return builder.endpointOverride(stub.server.endpoint())
+      .forcePathStyle(true)
+      .region(Region.US_EAST_1)
+      .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("stub", "stub")))
+      .build();
+  }
+
+  /**
+   * The S3 module's {@code application.properties}, which holds the transport settings
+   * of the deployed function.
+   */
+  private static Properties config()
+  {
+    try (InputStream input = S3FileManagementApi.class.getResourceAsStream("/application.properties"))
+    {
+      Properties properties = new Properties();
+      properties.load(Objects.requireNonNull(input, "The S3 module's application.properties isn't on the classpath"));
+      return properties;
+    }
+    catch (IOException ex)
+    {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private static String value(String name)
+  {
+    return Objects.requireNonNull(config.getProperty(name), () -> name + " isn't set in the S3 module's application.properties");
+  }
+
+  private static Duration duration(String name)
+  {
+    return Duration.parse(value(name));
+  }
+
+  private static int integer(String name)
+  {
+    return Integer.parseInt(value(name));
+  }
+
+  private static boolean bool(String name)
+  {
+    return Boolean.parseBoolean(value(name));
+  }
+}
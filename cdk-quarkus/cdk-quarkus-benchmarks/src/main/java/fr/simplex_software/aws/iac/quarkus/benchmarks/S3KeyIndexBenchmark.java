@@ -0,0 +1,104 @@
+package fr.simplex_software.aws.iac.quarkus.benchmarks;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.lang.management.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The queries of the in-process {@link S3KeyIndex}, loaded from a listing of
+ * {@code keyCount} keys. The heap retained by the index is printed once loaded, next to
+ * the one of a {@code HashMap} of {@link S3File}, up to a million keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class S3KeyIndexBenchmark
+{
+  private static final int LIMIT = 100;
+  private static final int MAX_HASH_MAP_KEYS = 1000000;
+
+  @Param({"1000000", "10000000"})
+  int keyCount;
+  private S3KeyIndex index;
+
+  @Setup
+  public void setup()
+  {
+    FakeS3Client s3 = new FakeS3Client(keyCount, 1024);
+    long before = usedHeap();
+    index = new S3KeyIndex(s3, "benchmark", Duration.ZERO);
+    index.load().join();
+    long retained = usedHeap() - before;
+    System.out.printf("%nS3KeyIndex: %d keys, %d bytes retained, %.1f bytes per key, %d bytes estimated%n",
+      keyCount, retained, (double) retained / keyCount, index.footprint());
+    if (keyCount <= MAX_HASH_MAP_KEYS)
+    {
+      before = usedHeap();
+      Map<String, S3File> files = new HashMap<>();
+      s3.listObjectsV2Paginator(ListObjectsV2Request.builder().bucket("benchmark").build()).contents()
+        .forEach(object -> files.put(object.key(), S3File.from(object)));
+      retained = usedHeap() - before;
+      System.out.printf("HashMap<String, S3File>: %d keys, %d bytes retained, %.1f bytes per key%n",
+        files.size(), retained, (double) retained / files.size());
+    }
+  }
+
+  @TearDown
+  public void tearDown()
+  {
+    index.close();
+  }
+
+  @Benchmark
+  public Optional<S3KeyIndex.Entry> get()
+  {
+    return index.get(randomKey());
+  }
+
+  @Benchmark
+  public List<S3KeyIndex.Entry> prefix()
+  {
+    String key = randomKey();
+    return index.prefix(key.substring(0, key.length() - 3), LIMIT);
+  }
+
+  @Benchmark
+  public List<S3KeyIndex.Entry> range()
+  {
+    int from = ThreadLocalRandom.current().nextInt(keyCount - LIMIT);
+    return index.range(FakeS3Client.key(from), FakeS3Client.key(from + LIMIT), LIMIT);
+  }
+
+  @Benchmark
+  public List<S3KeyIndex.Entry> largest()
+  {
+    return index.largest(LIMIT);
+  }
+
+  @Benchmark
+  public void put()
+  {
+    index.put(randomKey(), 2048, "\"0123456789abcdef0123456789abcdef\"", Instant.now());
+  }
+
+  private String randomKey()
+  {
+    return FakeS3Client.key(ThreadLocalRandom.current().nextInt(keyCount));
+  }
+
+  private static long usedHeap()
+  {
+    for (int i = 0; i < 3; i++)
+      System.gc();
+    MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    return heap.getUsed();
+  }
+}
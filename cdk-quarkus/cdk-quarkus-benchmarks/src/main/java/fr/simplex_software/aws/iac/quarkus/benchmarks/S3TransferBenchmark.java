@@ -0,0 +1,123 @@
+package fr.simplex_software.aws.iac.quarkus.benchmarks;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+import software.amazon.awssdk.core.sync.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+
+/**
+ * The upload and download byte paths. Downloads compare the former
+ * {@code getObjectAsBytes()} implementation with the chunked {@link S3ObjectStreamingOutput};
+ * uploads compare a single {@code RequestBody.fromFile()} PUT with reading the same file
+ * as multipart regions through {@link FileRegionInputStream}. Request bodies are either
+ * spooled to a file first, as a multipart form upload is, or piped into S3 by the
+ * {@link S3StreamingUploader}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class S3TransferBenchmark
+{
+  private static final int CHUNK_SIZE = 65536;
+  private static final long PART_SIZE = 16L * 1024 * 1024;
+  private static final int CONCURRENCY = 4;
+
+  @Param({"1048576", "67108864"})
+  long objectSize;
+  private S3Client s3;
+  private GetObjectRequest getRequest;
+  private PutObjectRequest putRequest;
+  private Path file;
+  private S3StreamingUploader streamingUploader;
+
+  @Setup
+  public void setup() throws IOException
+  {
+    s3 = new FakeS3Client(1, objectSize);
+    getRequest = GetObjectRequest.builder().bucket("benchmark").key(FakeS3Client.key(0)).build();
+    putRequest = PutObjectRequest.builder().bucket("benchmark").key(FakeS3Client.key(0)).build();
+    file = Files.createTempFile("benchmark", ".bin");
+    try (InputStream content = new FakeS3Client.SyntheticInputStream(objectSize))
+    {
+      Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    streamingUploader = new S3StreamingUploader(s3, PART_SIZE, CONCURRENCY);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException
+  {
+    streamingUploader.close();
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public void bufferedDownload(Blackhole blackhole)
+  {
+    blackhole.consume(s3.getObjectAsBytes(getRequest).asByteArray());
+  }
+
+  @Benchmark
+  public void streamedDownload() throws IOException
+  {
+    new S3ObjectStreamingOutput(s3.getObject(getRequest), CHUNK_SIZE).write(OutputStream.nullOutputStream());
+  }
+
+  @Benchmark
+  public void singlePutUpload(Blackhole blackhole)
+  {
+    blackhole.consume(s3.putObject(putRequest, RequestBody.fromFile(file)));
+  }
+
+  @Benchmark
+  public void fileRegionUpload(Blackhole blackhole) throws IOException
+  {
+    long length = Files.size(file);
+    for (long offset = 0; offset < length; offset += PART_SIZE)
+    {
+      long size = Math.min(PART_SIZE, length - offset);
+      long from = offset;
+      blackhole.consume(s3.putObject(putRequest, RequestBody.fromContentProvider(() ->
+      {
+        try
+        {
+          return new FileRegionInputStream(file, from, size);
+        }
+        catch (IOException ex)
+        {
+          throw new UncheckedIOException(ex);
+        }
+      }, size, "application/octet-stream")));
+    }
+  }
+
+  @Benchmark
+  public void spooledBodyUpload(Blackhole blackhole) throws IOException
+  {
+    Path spooled = Files.createTempFile("benchmark", ".spool");
+    try (InputStream body = new FakeS3Client.SyntheticInputStream(objectSize))
+    {
+      Files.copy(body, spooled, StandardCopyOption.REPLACE_EXISTING);
+      blackhole.consume(s3.putObject(putRequest, RequestBody.fromFile(spooled)));
+    }
+    finally
+    {
+      Files.deleteIfExists(spooled);
+    }
+  }
+
+  @Benchmark
+  public void streamedBodyUpload(Blackhole blackhole) throws IOException
+  {
+    blackhole.consume(streamingUploader.upload(putRequest, new FakeS3Client.SyntheticInputStream(objectSize), S3StreamingUploader.UNKNOWN_LENGTH));
+  }
+}
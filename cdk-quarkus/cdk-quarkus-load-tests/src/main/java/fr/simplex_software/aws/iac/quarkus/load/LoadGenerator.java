@@ -0,0 +1,248 @@
+package fr.simplex_software.aws.iac.quarkus.load;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.*;
+import org.HdrHistogram.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Runs a load test scenario against the file management API, through its REST client,
+ * once the objects to download have been uploaded. The scenario's clients issue uploads,
+ * listings and downloads according to its mix, either in a closed loop, each client
+ * waiting for its response before sending its next request, or in an open loop, where
+ * the requests arrive at a fixed rate whatever the response times, the clients only
+ * bounding the number of them in flight.
+ * <p>
+ * The latencies of the requests started after the warm-up are recorded, in microseconds,
+ * in a histogram per operation. In an open loop, they're measured from the time the
+ * request was due rather than sent, such that a stalled server is charged with the wait
+ * of all the requests which should have been sent in the meantime. The failed requests
+ * are counted per operation and per cause, the HTTP status of the response or the type of
+ * the exception thrown, along with the type of its own cause.
+ */
+public class LoadGenerator
+{
+  private static final String MIMETYPE = MediaType.APPLICATION_OCTET_STREAM;
+  private static final int SEED_CONCURRENCY = 16;
+
+  public enum Arrival
+  {
+    CLOSED, OPEN
+  }
+
+  public enum Operation
+  {
+    UPLOAD, LIST, DOWNLOAD
+  }
+
+  private final S3FileManagementClient client;
+  private final String name;
+  private final LoadTestConfig.Scenario scenario;
+  private final Path workDirectory;
+  private final ObjectSizes objectSizes;
+  private final Map<Integer, File> files = new HashMap<>();
+  private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+  private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+  private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+  private final AtomicLong uploads = new AtomicLong();
+  private long measureFrom;
+  private long measureUntil;
+
+  public LoadGenerator(S3FileManagementClient client, String name, LoadTestConfig.Scenario scenario, Path workDirectory)
+  {
+    this.client = client;
+    this.name = name;
+    this.scenario = scenario;
+    this.workDirectory = workDirectory;
+    objectSizes = new ObjectSizes(scenario.objectSizes());
+    for (Operation operation : Operation.values())
+    {
+      latencies.put(operation, new ConcurrentHistogram(3));
+      errors.put(operation, new LongAdder());
+    }
+  }
+
+  public LoadReport run() throws Exception
+  {
+    for (int size : objectSizes.all())
+      files.put(size, createFile(size));
+    seed();
+    long start = System.nanoTime();
+    measureFrom = start + scenario.warmup().toNanos();
+    measureUntil = measureFrom + scenario.duration().toNanos();
+    try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor())
+    {
+      if (scenario.arrival() == Arrival.CLOSED)
+        closedLoop(requests);
+      else
+        openLoop(requests, start);
+    }
+    Map<Operation, Long> errorCounts = new EnumMap<>(Operation.class);
+    errors.forEach((operation, count) -> errorCounts.put(operation, count.sum()));
+    Map<String, Long> failureCounts = new TreeMap<>();
+    failures.forEach((cause, count) -> failureCounts.put(cause, count.sum()));
+    return new LoadReport(name, scenario.duration(), latencies, errorCounts, failureCounts);
+  }
+
+  private void closedLoop(ExecutorService requests)
+  {
+    for (int i = 0; i < scenario.clients(); i++)
+      requests.submit(() ->
+      {
+        while (System.nanoTime() - measureUntil < 0)
+        {
+          long start = System.nanoTime();
+          Operation operation = nextOperation();
+          record(operation, start, execute(operation));
+          if (!scenario.thinkTime().isZero())
+            Thread.sleep(scenario.thinkTime());
+        }
+        return null;
+      });
+  }
+
+  private void openLoop(ExecutorService requests, long start)
+  {
+    double rate = scenario.rate().orElseThrow(() -> new IllegalArgumentException("The open loop scenario " + name + " has no rate"));
+    Semaphore inFlight = new Semaphore(scenario.clients());
+    long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+    for (long due = start; due - measureUntil < 0; due += interval)
+    {
+      LockSupport.parkNanos(due - System.nanoTime());
+      long dueTime = due;
+      requests.submit(() ->
+      {
+        inFlight.acquireUninterruptibly();
+        try
+        {
+          Operation operation = nextOperation();
+          record(operation, dueTime, execute(operation));
+        }
+        finally
+        {
+          inFlight.release();
+        }
+      });
+    }
+  }
+
+  private Operation nextOperation()
+  {
+    LoadTestConfig.Scenario.Mix mix = scenario.mix();
+    int draw = ThreadLocalRandom.current().nextInt(mix.upload() + mix.list() + mix.download());
+    return draw < mix.upload() ? Operation.UPLOAD : draw < mix.upload() + mix.list() ? Operation.LIST : Operation.DOWNLOAD;
+  }
+
+  /**
+   * Runs the operation, returning the cause of its failure, or null if it succeeded.
+   */
+  private String execute(Operation operation)
+  {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    try
+    {
+      Response.StatusType status = switch (operation)
+      {
+        case UPLOAD -> upload(uploadKey(uploads.incrementAndGet()), objectSizes.next(random));
+        case LIST -> status(client.listFiles(objectPrefix(), null, scenario.listMaxKeys(), null));
+        case DOWNLOAD -> download(objectKey(random.nextInt(scenario.objects())));
+      };
+      return status.getFamily() == Response.Status.Family.SUCCESSFUL ? null : "HTTP " + status.getStatusCode();
+    }
+    catch (WebApplicationException ex)
+    {
+      return "HTTP " + ex.getResponse().getStatus();
+    }
+    catch (Exception ex)
+    {
+      return ex.getCause() == null ? ex.getClass().getName() : ex.getClass().getName() + " caused by " + ex.getCause().getClass().getName();
+    }
+  }
+
+  private Response.StatusType upload(String key, int size) throws Exception
+  {
+    return status(client.uploadFile(new FileMetadata(files.get(size), key, MIMETYPE)));
+  }
+
+  private Response.StatusType download(String key) throws IOException
+  {
+    try (Response response = client.downloadFile(key))
+    {
+      if (response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL)
+        response.readEntity(InputStream.class).transferTo(OutputStream.nullOutputStream());
+      return response.getStatusInfo();
+    }
+  }
+
+  private void record(Operation operation, long start, String failure)
+  {
+    if (start - measureFrom < 0 || start - measureUntil >= 0)
+      return;
+    if (failure == null)
+      latencies.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    else
+    {
+      errors.get(operation).increment();
+      failures.computeIfAbsent(failure, cause -> new LongAdder()).increment();
+    }
+  }
+
+  /**
+   * Uploads the objects to be downloaded, with their sizes drawn from the scenario's
+   * distribution.
+   */
+  private void seed() throws Exception
+  {
+    Random random = new Random(scenario.objects());
+    try (ExecutorService seeders = Executors.newFixedThreadPool(SEED_CONCURRENCY, Thread.ofVirtual().factory()))
+    {
+      List<Future<Response.StatusType>> seeded = new ArrayList<>();
+      for (int i = 0; i < scenario.objects(); i++)
+      {
+        String key = objectKey(i);
+        int size = objectSizes.next(random);
+        seeded.add(seeders.submit(() -> upload(key, size)));
+      }
+      for (Future<Response.StatusType> upload : seeded)
+        if (upload.get().getFamily() != Response.Status.Family.SUCCESSFUL)
+          throw new IllegalStateException("Unable to seed the objects of the scenario " + name + ": HTTP " + upload.get().getStatusCode());
+    }
+  }
+
+  private File createFile(int size) throws IOException
+  {
+    byte[] content = new byte[size];
+    new Random(size).nextBytes(content);
+    return Files.write(workDirectory.resolve(name + "-" + size + ".bin"), content).toFile();
+  }
+
+  private String objectPrefix()
+  {
+    return "load-" + name + "-object-";
+  }
+
+  private String objectKey(int index)
+  {
+    return String.format("%s%05d", objectPrefix(), index);
+  }
+
+  private String uploadKey(long index)
+  {
+    return String.format("load-%s-upload-%07d", name, index);
+  }
+
+  private static Response.StatusType status(Response response)
+  {
+    try (response)
+    {
+      return response.getStatusInfo();
+    }
+  }
+}
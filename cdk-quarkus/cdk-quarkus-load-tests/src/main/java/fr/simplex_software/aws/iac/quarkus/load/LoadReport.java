@@ -0,0 +1,131 @@
+package fr.simplex_software.aws.iac.quarkus.load;
+
+import org.HdrHistogram.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+
+/**
+ * The outcome of a load test scenario: the latency histogram and the error count of each
+ * operation over the measurement period, along with the count of each cause of failure,
+ * printed as a summary and written as HdrHistogram percentile distributions, which may be
+ * plotted with the HdrHistogram plotter.
+ */
+public class LoadReport
+{
+  private static final double MICROS_PER_MILLI = 1000.0;
+
+  private final String scenario;
+  private final Duration duration;
+  private final Map<LoadGenerator.Operation, Histogram> latencies;
+  private final Map<LoadGenerator.Operation, Long> errors;
+  private final Map<String, Long> failures;
+
+  public LoadReport(String scenario, Duration duration, Map<LoadGenerator.Operation, Histogram> latencies,
+    Map<LoadGenerator.Operation, Long> errors, Map<String, Long> failures)
+  {
+    this.scenario = scenario;
+    this.duration = duration;
+    this.latencies = latencies;
+    this.errors = errors;
+    this.failures = failures;
+  }
+
+  /**
+   * The latencies of all the operations.
+   */
+  public Histogram total()
+  {
+    Histogram total = new Histogram(3);
+    latencies.values().forEach(total::add);
+    return total;
+  }
+
+  /**
+   * The failed requests by cause, the HTTP status of the response or the type of the
+   * exception thrown.
+   */
+  public Map<String, Long> failures()
+  {
+    return failures;
+  }
+
+  public long errors()
+  {
+    return errors.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  /**
+   * The successful requests per second.
+   */
+  public double throughput()
+  {
+    return total().getTotalCount() / (duration.toNanos() / 1e9);
+  }
+
+  public double errorRate()
+  {
+    long requests = total().getTotalCount() + errors();
+    return requests == 0 ? 0 : (double) errors() / requests;
+  }
+
+  public void print(PrintStream out)
+  {
+    out.printf("Scenario %s, %d requests in %s, %.1f requests/s, %d errors%n", scenario,
+      total().getTotalCount() + errors(), duration, throughput(), errors());
+    out.printf("%-10s %8s %8s %10s %10s %10s %10s %10s %10s%n", "operation", "count", "errors", "mean ms", "p50 ms",
+      "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+    latencies.forEach((operation, histogram) -> print(out, operation.name().toLowerCase(), histogram, errors.get(operation)));
+    print(out, "all", total(), errors());
+    failures.forEach((cause, count) -> out.printf("%8d failed with %s%n", count, cause));
+  }
+
+  private static void print(PrintStream out, String operation, Histogram histogram, long errors)
+  {
+    out.printf("%-10s %8d %8d %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f%n", operation, histogram.getTotalCount(), errors,
+      histogram.getMean() / MICROS_PER_MILLI, percentile(histogram, 50), percentile(histogram, 95),
+      percentile(histogram, 99), percentile(histogram, 99.9), histogram.getMaxValue() / MICROS_PER_MILLI);
+  }
+
+  /**
+   * Writes the percentile distribution of each operation, and of all of them, in
+   * milliseconds, into {@code <scenario>-<operation>.hgrm} files.
+   */
+  public void write(Path directory) throws IOException
+  {
+    Files.createDirectories(directory);
+    Map<String, Histogram> histograms = new LinkedHashMap<>();
+    latencies.forEach((operation, histogram) -> histograms.put(operation.name().toLowerCase(), histogram));
+    histograms.put("all", total());
+    for (Map.Entry<String, Histogram> histogram : histograms.entrySet())
+      try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(scenario + "-" + histogram.getKey() + ".hgrm"))))
+      {
+        histogram.getValue().outputPercentileDistribution(out, MICROS_PER_MILLI);
+      }
+  }
+
+  /**
+   * The thresholds of the scenario which aren't met.
+   */
+  public List<String> violations(LoadTestConfig.Scenario.Thresholds thresholds)
+  {
+    List<String> violations = new ArrayList<>();
+    Histogram total = total();
+    thresholds.p95().filter(p95 -> percentile(total, 95) > p95.toMillis())
+      .ifPresent(p95 -> violations.add(String.format("p95 of %.2f ms above %d ms", percentile(total, 95), p95.toMillis())));
+    thresholds.p99().filter(p99 -> percentile(total, 99) > p99.toMillis())
+      .ifPresent(p99 -> violations.add(String.format("p99 of %.2f ms above %d ms", percentile(total, 99), p99.toMillis())));
+    thresholds.throughput().filter(throughput -> throughput() < throughput)
+      .ifPresent(throughput -> violations.add(String.format("throughput of %.1f requests/s below %.1f", throughput(), throughput)));
+    thresholds.errorRate().filter(errorRate -> errorRate() > errorRate)
+      .ifPresent(errorRate -> violations.add(String.format("error rate of %.4f above %.4f", errorRate(), errorRate)));
+    return violations;
+  }
+
+  private static double percentile(Histogram histogram, double percentile)
+  {
+    return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+  }
+}
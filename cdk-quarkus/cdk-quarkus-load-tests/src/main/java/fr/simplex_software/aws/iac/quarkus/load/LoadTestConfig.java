@@ -0,0 +1,61 @@
+package fr.simplex_software.aws.iac.quarkus.load;
+
+import io.smallrye.config.*;
+
+import java.time.*;
+import java.util.*;
+
+@ConfigMapping(prefix = "load-test")
+public interface LoadTestConfig
+{
+  @WithDefault("mixed")
+  List<String> run();
+  @WithDefault("target/load-tests")
+  String reportDirectory();
+  Map<String, Scenario> scenarios();
+  Purge purge();
+  interface Purge
+  {
+    @WithDefault("100000")
+    int objects();
+    Optional<Duration> threshold();
+  }
+  interface Scenario
+  {
+    @WithDefault("closed")
+    LoadGenerator.Arrival arrival();
+    @WithDefault("500")
+    int clients();
+    Optional<Double> rate();
+    @WithDefault("PT0S")
+    Duration thinkTime();
+    @WithDefault("PT10S")
+    Duration warmup();
+    @WithDefault("PT30S")
+    Duration duration();
+    Mix mix();
+    interface Mix
+    {
+      @WithDefault("20")
+      int upload();
+      @WithDefault("10")
+      int list();
+      @WithDefault("70")
+      int download();
+    }
+    @WithDefault("1024:60,65536:30,1048576:10")
+    List<String> objectSizes();
+    @WithDefault("200")
+    int objects();
+    @WithDefault("100")
+    int listMaxKeys();
+    Thresholds thresholds();
+    interface Thresholds
+    {
+      Optional<Duration> p95();
+      Optional<Duration> p99();
+      Optional<Double> throughput();
+      Optional<Double> errorRate();
+    }
+  }
+}
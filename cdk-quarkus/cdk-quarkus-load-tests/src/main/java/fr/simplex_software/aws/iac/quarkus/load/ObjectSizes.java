@@ -0,0 +1,42 @@
+package fr.simplex_software.aws.iac.quarkus.load;
+
+import java.util.*;
+import java.util.random.*;
+
+/**
+ * A discrete distribution of object sizes, given as {@code size:weight} pairs, the sizes
+ * being in bytes, for example {@code 1024:60,65536:30,1048576:10}.
+ */
+public class ObjectSizes
+{
+  private final NavigableMap<Integer, Integer> sizes = new TreeMap<>();
+  private final int totalWeight;
+
+  public ObjectSizes(List<String> distribution)
+  {
+    int total = 0;
+    for (String pair : distribution)
+    {
+      String[] sizeWeight = pair.split(":", 2);
+      int size = Integer.parseInt(sizeWeight[0].trim());
+      int weight = sizeWeight.length > 1 ? Integer.parseInt(sizeWeight[1].trim()) : 1;
+      if (size < 0 || weight <= 0)
+        throw new IllegalArgumentException("Invalid object size " + pair);
+      sizes.put(total, size);
+      total += weight;
+    }
+    if (total == 0)
+      throw new IllegalArgumentException("No object size");
+    totalWeight = total;
+  }
+
+  public int next(RandomGenerator random)
+  {
+    return sizes.floorEntry(random.nextInt(totalWeight)).getValue();
+  }
+
+  public Collection<Integer> all()
+  {
+    return new TreeSet<>(sizes.values());
+  }
+}
@@ -0,0 +1,31 @@
+package fr.simplex_software.aws.iac.quarkus.load.tests;
+
+import fr.simplex_software.aws.iac.quarkus.load.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ObjectSizesTest
+{
+  @Test
+  public void testDistribution()
+  {
+    ObjectSizes sizes = new ObjectSizes(List.of("1024:3", "65536:1"));
+    Random random = new Random(8701);
+    Map<Integer, Long> drawn = IntStream.range(0, 40_000).mapToObj(i -> sizes.next(random))
+      .collect(Collectors.groupingBy(size -> size, Collectors.counting()));
+    assertThat(drawn).containsOnlyKeys(1024, 65536);
+    assertThat(drawn.get(1024) / (double) drawn.get(65536)).isCloseTo(3, within(0.2));
+    assertThat(sizes.all()).containsExactly(1024, 65536);
+  }
+
+  @Test
+  public void testInvalidDistribution()
+  {
+    assertThatIllegalArgumentException().isThrownBy(() -> new ObjectSizes(List.of("1024:0")));
+    assertThatIllegalArgumentException().isThrownBy(() -> new ObjectSizes(List.of()));
+  }
+}
@@ -0,0 +1,70 @@
+package fr.simplex_software.aws.iac.quarkus.load.tests;
+
+import fr.simplex_software.aws.iac.quarkus.load.*;
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import fr.simplex_software.aws.iac.quarkus.test_support.*;
+import io.quarkus.test.common.*;
+import io.quarkus.test.junit.*;
+import jakarta.inject.*;
+import jakarta.ws.rs.core.*;
+import org.eclipse.microprofile.rest.client.inject.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+@QuarkusTest
+@QuarkusTestResource(S3StubResource.class)
+public class S3FileManagementLoadTest
+{
+  @Inject
+  @RestClient
+  S3FileManagementClient s3FileManagementClient;
+  @Inject
+  LoadTestConfig config;
+  @Inject
+  S3Client s3;
+  S3StubServer stub;
+
+  @TestFactory
+  public List<DynamicTest> testScenarios(@TempDir Path workDirectory)
+  {
+    return config.run().stream().map(name -> DynamicTest.dynamicTest(name, () ->
+    {
+      LoadTestConfig.Scenario scenario = config.scenarios().get(name);
+      assertThat(scenario).as("scenario %s", name).isNotNull();
+      LoadReport report = new LoadGenerator(s3FileManagementClient, name, scenario, workDirectory).run();
+      report.print(System.out);
+      report.write(Path.of(config.reportDirectory()));
+      assertThat(report.violations(scenario.thresholds())).as("thresholds of the scenario %s", name).isEmpty();
+    })).toList();
+  }
+
+  /**
+   * Deletes by prefix the objects put straight into the stub, such that only the listing
+   * and the DeleteObjects batches are timed.
+   */
+  @Test
+  public void testPurge()
+  {
+    LoadTestConfig.Purge purge = config.purge();
+    for (int i = 0; i < purge.objects(); i++)
+      stub.put(String.format("purge/object-%07d", i), new byte[0]);
+    long start = System.nanoTime();
+    try (Response response = s3FileManagementClient.deleteFiles(new S3DeleteRequest().setPrefix("purge/")))
+    {
+      Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+      System.out.printf("Purge of %d objects by prefix in %d ms%n", purge.objects(), elapsed.toMillis());
+      assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+      assertThat(s3.listObjectsV2(ListObjectsV2Request.builder().bucket(S3StubServer.BUCKET).prefix("purge/").build()).keyCount())
+        .isZero();
+      purge.threshold().ifPresent(threshold -> assertThat(elapsed).as("purge duration").isLessThanOrEqualTo(threshold));
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package fr.simplex_software.aws.iac.quarkus.metrics;
+
+import com.fasterxml.jackson.core.*;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.binder.*;
+import io.micrometer.core.instrument.simple.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A Micrometer registry writing its meters as CloudWatch Embedded Metric Format (EMF)
+ * log lines. In Lambda, the standard output goes to CloudWatch Logs which extracts the
+ * metrics from these lines, hence neither a scrape endpoint nor a PutMetricData call
+ * is required. Each meter is written as one line per flush, its tags being the metric
+ * dimensions.
+ * <p>
+ * There's no background publisher, whose thread would stop while the Lambda container is
+ * frozen between invocations: {@link #flush()} is called at the end of each invocation.
+ * The meters are cumulative and each flush writes what changed since the previous one,
+ * i.e. the counts and totals recorded in between and the current value of the gauges.
+ */
+public class EmfMeterRegistry extends SimpleMeterRegistry
+{
+  private static final JsonFactory JSON = new JsonFactory();
+  private final String namespace;
+  private final PrintStream output;
+  private final Map<Meter.Id, double[]> flushed = new ConcurrentHashMap<>();
+
+  public EmfMeterRegistry(String namespace, PrintStream output)
+  {
+    super(SimpleConfig.DEFAULT, Clock.SYSTEM);
+    this.namespace = namespace;
+    this.output = output;
+  }
+
+  public synchronized void flush()
+  {
+    long timestamp = clock.wallTime();
+    for (Meter meter : getMeters())
+    {
+      Map<String, Number> values = new LinkedHashMap<>();
+      String name = meter.getId().getName();
+      meter.use(
+        gauge -> values.put(name, gauge.value()),
+        counter -> count(values, meter, name, counter.count()),
+        timer -> timer(values, meter, name, timer.count(), timer.totalTime(getBaseTimeUnit()), timer.max(getBaseTimeUnit())),
+        summary -> timer(values, meter, name, summary.count(), summary.totalAmount(), summary.max()),
+        longTaskTimer -> statistics(values, name, longTaskTimer.activeTasks(), longTaskTimer.duration(getBaseTimeUnit()), longTaskTimer.max(getBaseTimeUnit())),
+        timeGauge -> values.put(name, timeGauge.value(getBaseTimeUnit())),
+        functionCounter -> count(values, meter, name, functionCounter.count()),
+        functionTimer -> timer(values, meter, name, functionTimer.count(), functionTimer.totalTime(getBaseTimeUnit()), Double.NaN),
+        other -> other.measure().forEach(measurement -> values.put(name + "." + measurement.getStatistic().getTagValueRepresentation(), measurement.getValue())));
+      values.values().removeIf(value -> !Double.isFinite(value.doubleValue()));
+      if (!values.isEmpty())
+        output.println(line(timestamp, meter, values));
+    }
+    output.flush();
+  }
+
+  @Override
+  public void close()
+  {
+    flush();
+    super.close();
+  }
+
+  @Override
+  protected TimeUnit getBaseTimeUnit()
+  {
+    return TimeUnit.MILLISECONDS;
+  }
+
+  private void count(Map<String, Number> values, Meter meter, String name, double count)
+  {
+    double[] delta = sinceLastFlush(meter, count);
+    if (delta[0] != 0)
+      values.put(name, delta[0]);
+  }
+
+  private static void statistics(Map<String, Number> values, String name, double count, double sum, double max)
+  {
+    values.put(name + ".count", count);
+    values.put(name + ".sum", sum);
+    values.put(name + ".max", max);
+  }
+
+  private void timer(Map<String, Number> values, Meter meter, String name, double count, double sum, double max)
+  {
+    double[] delta = sinceLastFlush(meter, count, sum);
+    if (delta[0] == 0)
+      return;
+    statistics(values, name, delta[0], delta[1], max);
+  }
+
+  private double[] sinceLastFlush(Meter meter, double... totals)
+  {
+    double[] previous = flushed.put(meter.getId(), totals);
+    double[] delta = totals.clone();
+    for (int i = 0; previous != null && i < delta.length; i++)
+      delta[i] -= previous[i];
+    return delta;
+  }
+
+  private String line(long timestamp, Meter meter, Map<String, Number> values)
+  {
+    StringWriter line = new StringWriter();
+    String unit = unit(meter);
+    try (JsonGenerator generator = JSON.createGenerator(line))
+    {
+      generator.writeStartObject();
+      generator.writeObjectFieldStart("_aws");
+      generator.writeNumberField("Timestamp", timestamp);
+      generator.writeArrayFieldStart("CloudWatchMetrics");
+      generator.writeStartObject();
+      generator.writeStringField("Namespace", namespace);
+      generator.writeArrayFieldStart("Dimensions");
+      generator.writeStartArray();
+      for (Tag tag : meter.getId().getTags())
+        generator.writeString(tag.getKey());
+      generator.writeEndArray();
+      generator.writeEndArray();
+      generator.writeArrayFieldStart("Metrics");
+      for (String name : values.keySet())
+      {
+        generator.writeStartObject();
+        generator.writeStringField("Name", name);
+        generator.writeStringField("Unit", name.endsWith(".count") ? "Count" : unit);
+        generator.writeEndObject();
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+      generator.writeEndArray();
+      generator.writeEndObject();
+      for (Tag tag : meter.getId().getTags())
+        generator.writeStringField(tag.getKey(), tag.getValue());
+      for (Map.Entry<String, Number> value : values.entrySet())
+        generator.writeNumberField(value.getKey(), value.getValue().doubleValue());
+      generator.writeEndObject();
+    }
+    catch (IOException ex)
+    {
+      throw new UncheckedIOException(ex);
+    }
+    return line.toString();
+  }
+
+  private static String unit(Meter meter)
+  {
+    if (meter.getId().getType() == Meter.Type.TIMER || meter.getId().getType() == Meter.Type.LONG_TASK_TIMER)
+      return "Milliseconds";
+    String baseUnit = meter.getId().getBaseUnit();
+    if (BaseUnits.BYTES.equals(baseUnit))
+      return "Bytes";
+    if (BaseUnits.MILLISECONDS.equals(baseUnit))
+      return "Milliseconds";
+    if ("seconds".equals(baseUnit))
+      return "Seconds";
+    return meter.getId().getType() == Meter.Type.COUNTER ? "Count" : "None";
+  }
+}
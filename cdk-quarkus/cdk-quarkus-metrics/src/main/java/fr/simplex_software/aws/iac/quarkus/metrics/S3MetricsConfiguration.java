@@ -0,0 +1,77 @@
+package fr.simplex_software.aws.iac.quarkus.metrics;
+
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.composite.*;
+import io.micrometer.core.instrument.config.*;
+import io.micrometer.core.instrument.distribution.*;
+import io.quarkus.runtime.*;
+import io.vertx.ext.web.*;
+import jakarta.enterprise.context.*;
+import jakarta.enterprise.event.*;
+import jakarta.enterprise.inject.*;
+import jakarta.inject.*;
+import org.eclipse.microprofile.config.inject.*;
+
+import java.util.*;
+
+/**
+ * The metrics set-up shared by the applications. The Prometheus registry, served on
+ * {@code /q/metrics}, is always there, while in Lambda, detected by the
+ * {@code AWS_LAMBDA_FUNCTION_NAME} environment variable, the meters are also written as
+ * EMF log lines, as nothing would scrape a function's endpoint. They're flushed when the
+ * response body of each request ends, i.e. before the invocation completes and the
+ * container may be frozen. The HTTP timing of a request, only recorded once its response
+ * is sent, is hence written with the next one.
+ */
+@ApplicationScoped
+public class S3MetricsConfiguration
+{
+  @Inject
+  MeterRegistry registry;
+  @ConfigProperty(name = "aws.lambda.function.name")
+  Optional<String> lambdaFunctionName;
+  @ConfigProperty(name = "s3.metrics.emf.namespace", defaultValue = "cdk-quarkus")
+  String emfNamespace;
+  private EmfMeterRegistry emfRegistry;
+
+  @Produces
+  @Singleton
+  public MeterFilter histograms()
+  {
+    return new MeterFilter()
+    {
+      @Override
+      public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config)
+      {
+        if (id.getName().startsWith("http.server.requests"))
+          return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+        return config;
+      }
+    };
+  }
+
+  void onStart(@Observes StartupEvent startupEvent)
+  {
+    if (lambdaFunctionName.isPresent() && registry instanceof CompositeMeterRegistry composite)
+    {
+      emfRegistry = new EmfMeterRegistry(emfNamespace, System.out);
+      composite.add(emfRegistry);
+    }
+  }
+
+  void onRouter(@Observes Router router)
+  {
+    router.route().order(Integer.MIN_VALUE).handler(context ->
+    {
+      if (emfRegistry != null)
+        context.addBodyEndHandler(ended -> emfRegistry.flush());
+      context.next();
+    });
+  }
+
+  void onStop(@Observes ShutdownEvent shutdownEvent)
+  {
+    if (emfRegistry != null)
+      emfRegistry.close();
+  }
+}
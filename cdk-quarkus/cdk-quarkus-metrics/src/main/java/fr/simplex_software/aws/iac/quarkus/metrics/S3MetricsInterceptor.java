@@ -0,0 +1,203 @@
+package fr.simplex_software.aws.iac.quarkus.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.*;
+import jakarta.annotation.*;
+import jakarta.enterprise.context.*;
+import jakarta.inject.*;
+import org.reactivestreams.*;
+import software.amazon.awssdk.awscore.exception.*;
+import software.amazon.awssdk.core.*;
+import software.amazon.awssdk.core.async.*;
+import software.amazon.awssdk.core.interceptor.*;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Times every S3 call made by the application, whatever the client, blocking or async,
+ * and whatever the caller. It's registered with the SDK through {@code quarkus.s3.interceptors}
+ * and records, tagged by operation:
+ * <ul>
+ *   <li>{@code s3.client.requests}: the call latency histogram, with the outcome</li>
+ *   <li>{@code s3.client.errors}: the failed calls, with the S3 error code</li>
+ *   <li>{@code s3.client.bytes.uploaded}: the object bytes sent to S3</li>
+ *   <li>{@code s3.client.bytes.downloaded}: the object bytes actually read from S3, as they're read, such that an
+ *   aborted or partial download only counts what was consumed</li>
+ *   <li>{@code s3.client.list.keys}: the number of keys per listing page</li>
+ *   <li>{@code s3.client.requests.in.flight}: the calls currently running</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class S3MetricsInterceptor implements ExecutionInterceptor
+{
+  private static final ExecutionAttribute<AtomicLong> START = new ExecutionAttribute<>("S3MetricsStart");
+  private static final String OPERATION = "operation";
+
+  @Inject
+  MeterRegistry registry;
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  @PostConstruct
+  void init()
+  {
+    registry.gauge("s3.client.requests.in.flight", inFlight);
+  }
+
+  @Override
+  public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes)
+  {
+    inFlight.incrementAndGet();
+    executionAttributes.putAttribute(START, new AtomicLong(System.nanoTime()));
+  }
+
+  @Override
+  public void afterMarshalling(Context.AfterMarshalling context, ExecutionAttributes executionAttributes)
+  {
+    if (context.request() instanceof PutObjectRequest || context.request() instanceof UploadPartRequest)
+      context.requestBody().flatMap(RequestBody::optionalContentLength)
+        .or(() -> context.asyncRequestBody().flatMap(AsyncRequestBody::contentLength))
+        .ifPresent(length -> counter("s3.client.bytes.uploaded", executionAttributes).increment(length));
+  }
+
+  @Override
+  public Optional<InputStream> modifyHttpResponseContent(Context.ModifyHttpResponse context, ExecutionAttributes executionAttributes)
+  {
+    if (!(context.request() instanceof GetObjectRequest) || !context.httpResponse().isSuccessful())
+      return context.responseBody();
+    Counter downloaded = counter("s3.client.bytes.downloaded", executionAttributes);
+    return context.responseBody().map(body -> new CountingInputStream(body, downloaded));
+  }
+
+  @Override
+  public Optional<Publisher<ByteBuffer>> modifyAsyncHttpResponseContent(Context.ModifyHttpResponse context,
+    ExecutionAttributes executionAttributes)
+  {
+    if (!(context.request() instanceof GetObjectRequest) || !context.httpResponse().isSuccessful())
+      return context.responsePublisher();
+    Counter downloaded = counter("s3.client.bytes.downloaded", executionAttributes);
+    return context.responsePublisher().map(publisher -> subscriber -> publisher.subscribe(new CountingSubscriber(subscriber, downloaded)));
+  }
+
+  @Override
+  public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes)
+  {
+    if (context.response() instanceof ListObjectsV2Response listing)
+      DistributionSummary.builder("s3.client.list.keys")
+        .tag(OPERATION, operation(executionAttributes))
+        .register(registry)
+        .record(listing.contents().size() + listing.commonPrefixes().size());
+    stop(executionAttributes, "SUCCESS");
+  }
+
+  @Override
+  public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes)
+  {
+    registry.counter("s3.client.errors", OPERATION, operation(executionAttributes), "error_code", errorCode(context.exception())).increment();
+    stop(executionAttributes, "FAILURE");
+  }
+
+  private void stop(ExecutionAttributes executionAttributes, String outcome)
+  {
+    AtomicLong started = executionAttributes.getAttribute(START);
+    long start = started == null ? 0 : started.getAndSet(0);
+    if (start == 0)
+      return;
+    inFlight.decrementAndGet();
+    Timer.builder("s3.client.requests")
+      .tags(OPERATION, operation(executionAttributes), "outcome", outcome)
+      .publishPercentileHistogram()
+      .register(registry)
+      .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+  }
+
+  private Counter counter(String name, ExecutionAttributes executionAttributes)
+  {
+    return Counter.builder(name)
+      .baseUnit("bytes")
+      .tag(OPERATION, operation(executionAttributes))
+      .register(registry);
+  }
+
+  private static class CountingInputStream extends FilterInputStream
+  {
+    private final Counter counter;
+
+    private CountingInputStream(InputStream input, Counter counter)
+    {
+      super(input);
+      this.counter = counter;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      int read = super.read();
+      if (read != -1)
+        counter.increment();
+      return read;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException
+    {
+      int read = super.read(bytes, offset, length);
+      if (read > 0)
+        counter.increment(read);
+      return read;
+    }
+
+    @Override
+    public long skip(long length) throws IOException
+    {
+      long skipped = super.skip(length);
+      counter.increment(skipped);
+      return skipped;
+    }
+  }
+
+  private record CountingSubscriber(Subscriber<? super ByteBuffer> subscriber, Counter counter) implements Subscriber<ByteBuffer>
+  {
+    @Override
+    public void onSubscribe(Subscription subscription)
+    {
+      subscriber.onSubscribe(subscription);
+    }
+
+    @Override
+    public void onNext(ByteBuffer buffer)
+    {
+      counter.increment(buffer.remaining());
+      subscriber.onNext(buffer);
+    }
+
+    @Override
+    public void onError(Throwable throwable)
+    {
+      subscriber.onError(throwable);
+    }
+
+    @Override
+    public void onComplete()
+    {
+      subscriber.onComplete();
+    }
+  }
+
+  private static String operation(ExecutionAttributes executionAttributes)
+  {
+    return Objects.requireNonNullElse(executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME), "unknown");
+  }
+
+  private static String errorCode(Throwable exception)
+  {
+    if (exception instanceof AwsServiceException ex && ex.awsErrorDetails() != null && ex.awsErrorDetails().errorCode() != null)
+      return ex.awsErrorDetails().errorCode();
+    return exception.getClass().getSimpleName();
+  }
+}
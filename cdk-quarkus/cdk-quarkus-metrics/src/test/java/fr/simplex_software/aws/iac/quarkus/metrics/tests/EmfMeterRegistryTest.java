@@ -0,0 +1,66 @@
+package fr.simplex_software.aws.iac.quarkus.metrics.tests;
+
+import com.fasterxml.jackson.databind.*;
+import fr.simplex_software.aws.iac.quarkus.metrics.*;
+import io.micrometer.core.instrument.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.time.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class EmfMeterRegistryTest
+{
+  @Test
+  public void testEmfLines() throws IOException
+  {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    EmfMeterRegistry registry = new EmfMeterRegistry("test", new PrintStream(output, true));
+    Counter.builder("s3.client.bytes.uploaded").baseUnit("bytes").tag("operation", "PutObject").register(registry).increment(1024);
+    registry.timer("s3.client.requests", "operation", "GetObject").record(Duration.ofMillis(20));
+    registry.close();
+    List<JsonNode> lines = lines(output);
+    JsonNode bytes = lines.stream().filter(line -> line.has("s3.client.bytes.uploaded")).findFirst().orElseThrow();
+    assertThat(bytes.get("s3.client.bytes.uploaded").asDouble()).isEqualTo(1024);
+    assertThat(bytes.get("operation").asText()).isEqualTo("PutObject");
+    JsonNode metadata = bytes.get("_aws").get("CloudWatchMetrics").get(0);
+    assertThat(metadata.get("Namespace").asText()).isEqualTo("test");
+    assertThat(metadata.get("Dimensions").get(0).get(0).asText()).isEqualTo("operation");
+    assertThat(metadata.get("Metrics").get(0).get("Unit").asText()).isEqualTo("Bytes");
+    JsonNode requests = lines.stream().filter(line -> line.has("s3.client.requests.count")).findFirst().orElseThrow();
+    assertThat(requests.get("s3.client.requests.count").asDouble()).isEqualTo(1);
+    assertThat(requests.get("s3.client.requests.sum").asDouble()).isEqualTo(20);
+  }
+
+  @Test
+  public void testFlushWritesWhatChangedSinceTheLastOne() throws IOException
+  {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    EmfMeterRegistry registry = new EmfMeterRegistry("test", new PrintStream(output, true));
+    Counter downloaded = Counter.builder("s3.client.bytes.downloaded").baseUnit("bytes").register(registry);
+    Counter errors = registry.counter("s3.client.errors");
+    downloaded.increment(100);
+    errors.increment();
+    registry.flush();
+    output.reset();
+    downloaded.increment(50);
+    registry.flush();
+    List<JsonNode> lines = lines(output);
+    assertThat(lines).hasSize(1);
+    assertThat(lines.get(0).get("s3.client.bytes.downloaded").asDouble()).isEqualTo(50);
+    output.reset();
+    registry.flush();
+    assertThat(output.toString()).isEmpty();
+  }
+
+  private static List<JsonNode> lines(ByteArrayOutputStream output) throws IOException
+  {
+    List<JsonNode> lines = new ArrayList<>();
+    for (String line : output.toString().split("\n"))
+      if (!line.isBlank())
+        lines.add(new ObjectMapper().readTree(line));
+    return lines;
+  }
+}
@@ -0,0 +1,106 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.node.*;
+import io.quarkus.amazon.lambda.runtime.*;
+import io.quarkus.arc.*;
+import jakarta.ws.rs.core.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * The Lambda handler compressing the responses on behalf of the Quarkus HTTP adapter,
+ * {@code fr.simplex_software.aws.iac.quarkus.s3.CompressingStreamHandler::handleRequest},
+ * to be deployed instead of {@link QuarkusStreamHandler}. The adapter only base64-encodes
+ * the bodies whose content type isn't text, JSON, XML or YAML, and would garble these
+ * once compressed. Hence the requests reach the application without their
+ * {@code Accept-Encoding}, such that it answers them as they are, and their text bodies
+ * are compressed here, as negotiated by {@link S3Compression}, then sent base64-encoded,
+ * which both the function URL and API Gateway decode before answering the client. The
+ * class implements none of the Lambda handler interfaces, which the Quarkus HTTP
+ * extension doesn't allow next to its own, the Lambda runtime calling the method by name.
+ * <p>
+ * The adapter answers with a single JSON document, the body included, which can't be
+ * compressed as a stream. Only the responses to requests accepting a coding are
+ * therefore buffered, the others being written straight to the runtime, and the bodies
+ * above {@code s3.file-management.compression.max-buffered-size}, 5 MiB by default,
+ * close to the 6 MB a buffered Lambda response may carry, are sent uncompressed.
+ */
+public class CompressingStreamHandler
+{
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final String HEADERS = "headers";
+  private static final String BODY = "body";
+  private static final String BASE64_ENCODED = "isBase64Encoded";
+
+  private final QuarkusStreamHandler delegate = new QuarkusStreamHandler();
+
+  public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException
+  {
+    JsonNode event = MAPPER.readTree(input);
+    String acceptEncoding = removeHeader(event.path(HEADERS), HttpHeaders.ACCEPT_ENCODING);
+    InputStream request = new ByteArrayInputStream(MAPPER.writeValueAsBytes(event));
+    if (acceptEncoding == null)
+    {
+      delegate.handleRequest(request, output, context);
+      return;
+    }
+    ByteArrayOutputStream handled = new ByteArrayOutputStream();
+    delegate.handleRequest(request, handled, context);
+    JsonNode response = MAPPER.readTree(handled.toByteArray());
+    if (response instanceof ObjectNode objectNode)
+      compress(objectNode, acceptEncoding);
+    output.write(MAPPER.writeValueAsBytes(response));
+  }
+
+  private static void compress(ObjectNode response, String acceptEncoding) throws IOException
+  {
+    if (response.path(BASE64_ENCODED).asBoolean() || !response.path(BODY).isTextual()
+      || !(response.path(HEADERS) instanceof ObjectNode headers) || header(headers, HttpHeaders.CONTENT_ENCODING) != null)
+      return;
+    String text = response.get(BODY).asText();
+    if (text.length() > Arc.container().instance(S3FileManagementConfig.class).get().compression().maxBufferedSize())
+      return;
+    byte[] body = text.getBytes(StandardCharsets.UTF_8);
+    ContentEncoding encoding = Arc.container().instance(S3Compression.class).get()
+      .negotiate(acceptEncoding, header(headers, HttpHeaders.CONTENT_TYPE), body.length);
+    if (encoding == ContentEncoding.IDENTITY)
+      return;
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 2);
+    try (OutputStream output = encoding.compress(Base64.getEncoder().wrap(compressed)))
+    {
+      output.write(body);
+    }
+    removeHeader(headers, HttpHeaders.CONTENT_LENGTH);
+    removeHeader(headers, HttpHeaders.VARY);
+    String entityTag = removeHeader(headers, HttpHeaders.ETAG);
+    if (entityTag != null)
+      headers.put(HttpHeaders.ETAG, S3EntityTags.weak(entityTag));
+    headers.put(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    headers.put(HttpHeaders.CONTENT_ENCODING, encoding.token());
+    response.put(BODY, compressed.toString(StandardCharsets.US_ASCII));
+    response.put(BASE64_ENCODED, true);
+  }
+
+  private static String header(JsonNode headers, String name)
+  {
+    for (Iterator<Map.Entry<String, JsonNode>> fields = headers.fields(); fields.hasNext(); )
+    {
+      Map.Entry<String, JsonNode> field = fields.next();
+      if (field.getKey().equalsIgnoreCase(name))
+        return field.getValue().asText();
+    }
+    return null;
+  }
+
+  private static String removeHeader(JsonNode headers, String name)
+  {
+    String value = header(headers, name);
+    if (value != null && headers instanceof ObjectNode objectNode)
+      objectNode.properties().removeIf(field -> field.getKey().equalsIgnoreCase(name));
+    return value;
+  }
+}
@@ -0,0 +1,37 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import java.net.*;
+import java.nio.charset.*;
+
+/**
+ * The {@code Content-Disposition} of the downloads, as specified by RFC 6266: an ASCII
+ * {@code filename}, quoted and escaped, for the clients that don't support anything
+ * else, followed by the exact name, percent-encoded in UTF-8, as {@code filename*}.
+ */
+public final class ContentDisposition
+{
+  private ContentDisposition()
+  {
+  }
+
+  public static String attachment(String filename)
+  {
+    StringBuilder fallback = new StringBuilder();
+    filename.codePoints().forEach(c -> {
+      if (c == '"' || c == '\\')
+        fallback.append('\\').append((char) c);
+      else
+        fallback.append(c < 0x20 || c > 0x7e ? '_' : (char) c);
+    });
+    return "attachment;filename=\"" + fallback + "\";filename*=UTF-8''" + encode(filename);
+  }
+
+  /**
+   * Percent-encodes every byte but the RFC 5987 {@code attr-char}s.
+   */
+  private static String encode(String filename)
+  {
+    return URLEncoder.encode(filename, StandardCharsets.UTF_8).replace("+", "%20").replace("*", "%2A")
+      .replace("%21", "!").replace("%7E", "~");
+  }
+}
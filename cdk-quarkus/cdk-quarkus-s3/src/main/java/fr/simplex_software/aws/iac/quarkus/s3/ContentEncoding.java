@@ -0,0 +1,138 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import io.airlift.compress.zstd.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * The HTTP content codings supported by the file management API, in the server's order
+ * of preference, together with their streaming compressors and decompressors.
+ */
+public enum ContentEncoding
+{
+  ZSTD("zstd")
+  {
+    @Override
+    public OutputStream compress(OutputStream output) throws IOException
+    {
+      return new ZstdOutputStream(output);
+    }
+
+    @Override
+    public InputStream decompress(InputStream input)
+    {
+      return new ZstdInputStream(input);
+    }
+  },
+  GZIP("gzip")
+  {
+    @Override
+    public OutputStream compress(OutputStream output) throws IOException
+    {
+      return new GZIPOutputStream(output, BUFFER_SIZE);
+    }
+
+    @Override
+    public InputStream decompress(InputStream input) throws IOException
+    {
+      return new GZIPInputStream(input, BUFFER_SIZE);
+    }
+  },
+  IDENTITY("identity")
+  {
+    @Override
+    public OutputStream compress(OutputStream output)
+    {
+      return output;
+    }
+
+    @Override
+    public InputStream decompress(InputStream input)
+    {
+      return input;
+    }
+  };
+
+  private static final int BUFFER_SIZE = 8192;
+  private final String token;
+
+  ContentEncoding(String token)
+  {
+    this.token = token;
+  }
+
+  public String token()
+  {
+    return token;
+  }
+
+  public abstract OutputStream compress(OutputStream output) throws IOException;
+
+  public abstract InputStream decompress(InputStream input) throws IOException;
+
+  public static ContentEncoding of(String contentEncoding)
+  {
+    return Arrays.stream(values()).filter(encoding -> encoding.token.equalsIgnoreCase(Objects.requireNonNullElse(contentEncoding, "").trim()))
+      .findFirst().orElse(IDENTITY);
+  }
+
+  /**
+   * Picks the preferred coding accepted by an {@code Accept-Encoding} header, taking the
+   * quality values into account, or {@link #IDENTITY} if none is.
+   */
+  public static ContentEncoding negotiate(String acceptEncoding)
+  {
+    ContentEncoding negotiated = IDENTITY;
+    double best = 0;
+    for (ContentEncoding encoding : values())
+    {
+      double quality = encoding == IDENTITY ? 0 : quality(acceptEncoding, encoding);
+      if (quality > best)
+      {
+        negotiated = encoding;
+        best = quality;
+      }
+    }
+    return negotiated;
+  }
+
+  public boolean isAccepted(String acceptEncoding)
+  {
+    return this == IDENTITY || quality(acceptEncoding, this) > 0;
+  }
+
+  private static double quality(String acceptEncoding, ContentEncoding encoding)
+  {
+    if (acceptEncoding == null)
+      return 0;
+    double wildcard = 0;
+    for (String coding : acceptEncoding.split(","))
+    {
+      String[] parameters = coding.split(";");
+      String name = parameters[0].trim();
+      double quality = 1;
+      for (int i = 1; i < parameters.length; i++)
+        if (parameters[i].trim().startsWith("q="))
+          quality = parseQuality(parameters[i].trim().substring(2));
+      if (name.equalsIgnoreCase(encoding.token))
+        return quality;
+      if (name.equals("*"))
+        wildcard = quality;
+    }
+    return wildcard;
+  }
+
+  private static double parseQuality(String quality)
+  {
+    try
+    {
+      return Double.parseDouble(quality);
+    }
+    catch (NumberFormatException ex)
+    {
+      return 0;
+    }
+  }
+}
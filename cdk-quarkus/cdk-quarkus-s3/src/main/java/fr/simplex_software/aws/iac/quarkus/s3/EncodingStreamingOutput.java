@@ -0,0 +1,44 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import jakarta.ws.rs.core.*;
+
+import java.io.*;
+
+/**
+ * Compresses the output of another {@link StreamingOutput} on the fly, with the given
+ * content coding. The compressor is finished once the delegate is done, while the
+ * HTTP response stream itself is left open, as it belongs to the container.
+ */
+public class EncodingStreamingOutput implements StreamingOutput
+{
+  private final StreamingOutput delegate;
+  private final ContentEncoding encoding;
+
+  public EncodingStreamingOutput(StreamingOutput delegate, ContentEncoding encoding)
+  {
+    this.delegate = delegate;
+    this.encoding = encoding;
+  }
+
+  @Override
+  public void write(OutputStream output) throws IOException
+  {
+    try (OutputStream compressed = encoding.compress(new FilterOutputStream(output)
+    {
+      @Override
+      public void write(byte[] bytes, int offset, int length) throws IOException
+      {
+        out.write(bytes, offset, length);
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+        out.flush();
+      }
+    }))
+    {
+      delegate.write(compressed);
+    }
+  }
+}
@@ -14,14 +14,12 @@ public class FileMetadata
 
   @RestForm
   @PartType(MediaType.TEXT_PLAIN)
-  @NotEmpty
-  @Size(min = 3, max = 40)
+  @ObjectFilename
   public String filename;
 
   @RestForm
   @PartType(MediaType.TEXT_PLAIN)
-  @NotEmpty
-  @Size(min = 10, max = 127)
+  @ObjectMimetype
   public String mimetype;
 
   public FileMetadata()
@@ -0,0 +1,48 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * Reads a region of a file with positional reads, such that several regions of the
+ * same file may be streamed concurrently without loading them on the heap.
+ */
+public class FileRegionInputStream extends InputStream
+{
+  private final FileChannel channel;
+  private final long end;
+  private long position;
+
+  public FileRegionInputStream(Path path, long offset, long length) throws IOException
+  {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.position = offset;
+    this.end = offset + length;
+  }
+
+  @Override
+  public int read() throws IOException
+  {
+    byte[] single = new byte[1];
+    return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException
+  {
+    if (position >= end)
+      return -1;
+    int count = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, end - position)), position);
+    if (count > 0)
+      position += count;
+    return count;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    channel.close();
+  }
+}
@@ -0,0 +1,23 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import jakarta.validation.*;
+import jakarta.validation.constraints.*;
+
+import java.lang.annotation.*;
+
+/**
+ * The rules an object's MIME type has to comply with, whether its content goes through
+ * this API or directly to S3.
+ */
+@NotEmpty
+@Size(min = 10, max = 127)
+@Constraint(validatedBy = {})
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ObjectMimetype
+{
+  String message() default "invalid MIME type";
+  Class<?>[] groups() default {};
+  Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,165 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.*;
+import jakarta.enterprise.context.*;
+import jakarta.inject.*;
+import software.amazon.awssdk.core.*;
+import software.amazon.awssdk.core.interceptor.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Admission control in front of every S3 call made by the application, registered with
+ * the SDK through {@code quarkus.s3.interceptors}, before {@code S3MetricsInterceptor}
+ * such that the time spent queuing isn't counted as call latency. The calls are admitted
+ * by an {@link S3ConcurrencyLimiter} per operation and key prefix, S3 throttling each
+ * prefix on its own, up to {@code s3.file-management.admission.max-limiters} of them,
+ * beyond which the new prefixes share the {@code *} one.
+ * <p>
+ * A call waits for its admission up to the queue timeout, unless made from the event
+ * loop, which mustn't block, in which case it's rejected at once. The SDK still retries
+ * the throttled calls, with its jittered backoff, but each retry costs a token from the
+ * limiter's retry budget. A retry finding the budget empty isn't sent: the call fails at
+ * once with an {@link S3AdmissionException}, which the SDK doesn't retry, and which the
+ * API answers with a 503 and a {@code Retry-After}, leaving the backoff to its client. It
+ * records, tagged by operation and prefix:
+ * <ul>
+ *   <li>{@code s3.client.admission.queue}: the time spent waiting for admission, with the outcome</li>
+ *   <li>{@code s3.client.admission.limit} and {@code s3.client.admission.in.flight}: the current limit and its usage</li>
+ *   <li>{@code s3.client.admission.slow.downs}: the SlowDown responses</li>
+ *   <li>{@code s3.client.admission.retries}: the retries, allowed or denied by the budget</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class S3AdmissionControl implements ExecutionInterceptor
+{
+  private static final ExecutionAttribute<Admission> ADMISSION = new ExecutionAttribute<>("S3Admission");
+  private static final String OPERATION = "operation";
+  private static final String PREFIX = "prefix";
+  private static final String OTHER_PREFIXES = "*";
+  private static final int SLOW_DOWN = 503;
+
+  @Inject
+  MeterRegistry registry;
+  @Inject
+  S3FileManagementConfig config;
+  private final Map<String, S3ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+  private record Admission(S3ConcurrencyLimiter limiter, long number, String operation, String prefix,
+    AtomicInteger attempts, AtomicBoolean released)
+  {
+  }
+
+  @Override
+  public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes)
+  {
+    if (!config.admission().enabled())
+      return;
+    String operation = Objects.requireNonNullElse(executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME), "unknown");
+    String prefix = prefix(context.request());
+    if (!limiters.containsKey(operation + " " + prefix) && limiters.size() >= config.admission().maxLimiters())
+      prefix = OTHER_PREFIXES;
+    S3ConcurrencyLimiter limiter = limiter(operation, prefix);
+    long start = System.nanoTime();
+    long admission;
+    try
+    {
+      admission = limiter.acquire(io.vertx.core.Context.isOnEventLoopThread() ? Duration.ZERO : config.admission().queueTimeout());
+    }
+    catch (InterruptedException ex)
+    {
+      Thread.currentThread().interrupt();
+      admission = -1;
+    }
+    Timer.builder("s3.client.admission.queue")
+      .tags(OPERATION, operation, PREFIX, prefix, "outcome", admission < 0 ? "REJECTED" : "ADMITTED")
+      .register(registry)
+      .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    if (admission < 0)
+      throw new S3AdmissionException(String.format("Too many %s calls on the prefix %s", operation, prefix), config.admission().backoffMax());
+    executionAttributes.putAttribute(ADMISSION, new Admission(limiter, admission, operation, prefix, new AtomicInteger(), new AtomicBoolean()));
+  }
+
+  @Override
+  public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes)
+  {
+    Admission admission = executionAttributes.getAttribute(ADMISSION);
+    if (admission == null || admission.attempts().incrementAndGet() == 1)
+      return;
+    boolean allowed = admission.limiter().tryRetry();
+    registry.counter("s3.client.admission.retries", OPERATION, admission.operation(), PREFIX, admission.prefix(),
+      "outcome", allowed ? "ALLOWED" : "DENIED").increment();
+    if (!allowed)
+      throw new S3AdmissionException(String.format("The retry budget of the %s calls on the prefix %s is exhausted",
+        admission.operation(), admission.prefix()), config.admission().backoffMax());
+  }
+
+  @Override
+  public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes)
+  {
+    Admission admission = executionAttributes.getAttribute(ADMISSION);
+    if (admission != null && context.httpResponse().statusCode() == SLOW_DOWN)
+    {
+      admission.limiter().slowDown(admission.number());
+      registry.counter("s3.client.admission.slow.downs", OPERATION, admission.operation(), PREFIX, admission.prefix()).increment();
+    }
+  }
+
+  @Override
+  public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes)
+  {
+    release(executionAttributes, true);
+  }
+
+  @Override
+  public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes)
+  {
+    release(executionAttributes, false);
+  }
+
+  private void release(ExecutionAttributes executionAttributes, boolean succeeded)
+  {
+    Admission admission = executionAttributes.getAttribute(ADMISSION);
+    if (admission != null && admission.released().compareAndSet(false, true))
+      admission.limiter().release(succeeded);
+  }
+
+  private S3ConcurrencyLimiter limiter(String operation, String prefix)
+  {
+    return limiters.computeIfAbsent(operation + " " + prefix, key ->
+    {
+      S3ConcurrencyLimiter limiter = new S3ConcurrencyLimiter(S3ConcurrencyLimiter.Settings.of(config.admission()));
+      Gauge.builder("s3.client.admission.limit", limiter, S3ConcurrencyLimiter::limit)
+        .tags(OPERATION, operation, PREFIX, prefix)
+        .register(registry);
+      Gauge.builder("s3.client.admission.in.flight", limiter, S3ConcurrencyLimiter::inFlight)
+        .tags(OPERATION, operation, PREFIX, prefix)
+        .register(registry);
+      return limiter;
+    });
+  }
+
+  /**
+   * The object key, or the listing prefix, up to its {@code prefix-depth}th {@code /}, or
+   * up to its last one if it has fewer.
+   */
+  private String prefix(SdkRequest request)
+  {
+    String key = request.getValueForField("Key", String.class)
+      .or(() -> request.getValueForField("Prefix", String.class))
+      .orElse("");
+    int end = -1;
+    for (int depth = 0; depth < config.admission().prefixDepth(); depth++)
+    {
+      int slash = key.indexOf('/', end + 1);
+      if (slash < 0)
+        break;
+      end = slash;
+    }
+    return key.substring(0, end + 1);
+  }
+}
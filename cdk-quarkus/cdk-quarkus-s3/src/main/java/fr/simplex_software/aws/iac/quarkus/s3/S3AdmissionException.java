@@ -0,0 +1,26 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import software.amazon.awssdk.core.exception.*;
+
+import java.time.*;
+
+/**
+ * Thrown by {@link S3AdmissionControl} when an S3 call isn't admitted, or when its retry
+ * budget is exhausted. Being an {@link SdkClientException}, which isn't retryable, it
+ * reaches the caller as it is, whatever the client.
+ */
+public class S3AdmissionException extends SdkClientException
+{
+  private final Duration retryAfter;
+
+  public S3AdmissionException(String message, Duration retryAfter)
+  {
+    super(SdkClientException.builder().message(message));
+    this.retryAfter = retryAfter;
+  }
+
+  public Duration retryAfter()
+  {
+    return retryAfter;
+  }
+}
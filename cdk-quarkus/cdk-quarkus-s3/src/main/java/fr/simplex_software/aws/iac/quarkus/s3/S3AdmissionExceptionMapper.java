@@ -0,0 +1,22 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import jakarta.ws.rs.core.*;
+import jakarta.ws.rs.ext.*;
+
+/**
+ * Sheds the requests whose S3 calls aren't admitted with a 503, telling the client when
+ * to retry, instead of letting them add to the throttling.
+ */
+@Provider
+public class S3AdmissionExceptionMapper implements ExceptionMapper<S3AdmissionException>
+{
+  @Override
+  public Response toResponse(S3AdmissionException ex)
+  {
+    return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+      .header(HttpHeaders.RETRY_AFTER, Math.max(1, ex.retryAfter().toSeconds()))
+      .type(MediaType.TEXT_PLAIN)
+      .entity(ex.getMessage())
+      .build();
+  }
+}
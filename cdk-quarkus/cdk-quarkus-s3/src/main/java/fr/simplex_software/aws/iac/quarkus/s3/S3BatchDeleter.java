@@ -0,0 +1,140 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import jakarta.enterprise.context.*;
+import jakarta.inject.*;
+import jakarta.ws.rs.core.*;
+import org.jboss.logging.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Deletes objects with DeleteObjects requests of up to 1000 keys each, several of them in
+ * flight at once. The keys are taken from their iterator as the batches are sent, such
+ * that a prefix is listed while it's being deleted, its next page of keys being read
+ * only once a batch may be sent. Every key is reported on individually, the keys of a
+ * failed batch getting the batch's error, whatever it is, such that one failed batch
+ * doesn't hide the outcome of the others. Likewise, a listing failing midway stops the
+ * deletion, the keys already read being deleted and reported on, followed by a result
+ * without key carrying the listing's error.
+ */
+@ApplicationScoped
+public class S3BatchDeleter
+{
+  private static final Logger LOG = Logger.getLogger(S3BatchDeleter.class);
+  private static final int MAX_BATCH_SIZE = 1000;
+
+  @Inject
+  S3Client s3;
+  @Inject
+  S3FileManagementConfig config;
+  @Inject
+  Optional<S3ObjectCache> objectCache;
+  @Inject
+  Optional<S3KeyIndex> keyIndex;
+
+  public List<S3DeleteResult> delete(String bucketName, Iterator<String> keys)
+  {
+    int batchSize = Math.clamp(config.delete().batchSize(), 1, MAX_BATCH_SIZE);
+    Semaphore permits = new Semaphore(config.delete().concurrency());
+    List<Future<List<S3DeleteResult>>> batches = new ArrayList<>();
+    S3DeleteResult listingFailure = null;
+    try (ExecutorService deletions = Executors.newVirtualThreadPerTaskExecutor())
+    {
+      List<String> batch = new ArrayList<>(batchSize);
+      while (true)
+      {
+        try
+        {
+          if (!keys.hasNext())
+            break;
+          batch.add(keys.next());
+        }
+        catch (RuntimeException ex)
+        {
+          LOG.warnf(ex, "Failed to list the objects to delete from %s", bucketName);
+          listingFailure = new S3DeleteResult().setStatus(status(ex)).setError("Failed to list the keys to delete: " + ex.getMessage());
+          break;
+        }
+        if (batch.size() == batchSize)
+        {
+          batches.add(submit(deletions, permits, bucketName, batch));
+          batch = new ArrayList<>(batchSize);
+        }
+      }
+      if (!batch.isEmpty())
+        batches.add(submit(deletions, permits, bucketName, batch));
+    }
+    List<S3DeleteResult> results = new ArrayList<>(batches.stream().flatMap(batch -> batch.resultNow().stream()).toList());
+    if (listingFailure != null)
+      results.add(listingFailure);
+    return results;
+  }
+
+  private Future<List<S3DeleteResult>> submit(ExecutorService deletions, Semaphore permits, String bucketName, List<String> batch)
+  {
+    permits.acquireUninterruptibly();
+    return deletions.submit(() ->
+    {
+      try
+      {
+        return delete(bucketName, batch);
+      }
+      finally
+      {
+        permits.release();
+      }
+    });
+  }
+
+  private List<S3DeleteResult> delete(String bucketName, List<String> keys)
+  {
+    DeleteObjectsResponse response;
+    try
+    {
+      response = s3.deleteObjects(DeleteObjectsRequest.builder()
+        .bucket(bucketName)
+        .delete(Delete.builder().objects(keys.stream().map(key -> ObjectIdentifier.builder().key(key).build()).toList()).build())
+        .build());
+    }
+    catch (RuntimeException ex)
+    {
+      LOG.warnf(ex, "Failed to delete a batch of %d objects from %s", keys.size(), bucketName);
+      int status = status(ex);
+      return keys.stream().map(key -> new S3DeleteResult().setObjectKey(key).setStatus(status).setError(ex.getMessage())).toList();
+    }
+    List<S3DeleteResult> results = new ArrayList<>(keys.size());
+    for (DeletedObject deleted : response.deleted())
+    {
+      objectCache.ifPresent(cache -> cache.invalidate(deleted.key()));
+      keyIndex.ifPresent(index -> index.remove(deleted.key()));
+      results.add(new S3DeleteResult().setObjectKey(deleted.key()).setStatus(Response.Status.NO_CONTENT.getStatusCode()));
+    }
+    for (S3Error error : response.errors())
+      results.add(new S3DeleteResult().setObjectKey(error.key()).setStatus(status(error.code()))
+        .setError(error.code() + ": " + error.message()));
+    return results;
+  }
+
+  private static int status(RuntimeException ex)
+  {
+    return switch (ex)
+    {
+      case S3Exception s3Exception -> s3Exception.statusCode();
+      case S3AdmissionException admissionException -> Response.Status.SERVICE_UNAVAILABLE.getStatusCode();
+      default -> Response.Status.INTERNAL_SERVER_ERROR.getStatusCode();
+    };
+  }
+
+  private static int status(String errorCode)
+  {
+    return switch (errorCode)
+    {
+      case "AccessDenied" -> Response.Status.FORBIDDEN.getStatusCode();
+      case "SlowDown" -> Response.Status.SERVICE_UNAVAILABLE.getStatusCode();
+      default -> Response.Status.INTERNAL_SERVER_ERROR.getStatusCode();
+    };
+  }
+}
@@ -0,0 +1,89 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import jakarta.enterprise.context.*;
+import jakarta.inject.*;
+import jakarta.validation.*;
+import jakarta.ws.rs.core.*;
+import org.jboss.logging.*;
+import software.amazon.awssdk.core.sync.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * Uploads a batch of files to S3, each one on its own virtual thread, with no more than
+ * the configured number of uploads in flight at once. Every file is validated against
+ * the {@link FileMetadata} constraints and reported on individually, such that a failed
+ * file doesn't fail the whole batch.
+ */
+@ApplicationScoped
+public class S3BatchUploader
+{
+  private static final Logger LOG = Logger.getLogger(S3BatchUploader.class);
+
+  @Inject
+  S3Client s3;
+  @Inject
+  S3MultipartUploader multipartUploader;
+  @Inject
+  S3FileManagementConfig config;
+  @Inject
+  Validator validator;
+  @Inject
+  Optional<S3ObjectCache> objectCache;
+  @Inject
+  Optional<S3KeyIndex> keyIndex;
+
+  public List<S3UploadResult> upload(String bucketName, List<FileMetadata> files)
+  {
+    Semaphore permits = new Semaphore(config.batch().parallelism());
+    List<Future<S3UploadResult>> results = new ArrayList<>(files.size());
+    try (ExecutorService uploads = Executors.newVirtualThreadPerTaskExecutor())
+    {
+      for (FileMetadata file : files)
+        results.add(uploads.submit(() ->
+        {
+          permits.acquire();
+          try
+          {
+            return upload(bucketName, file);
+          }
+          finally
+          {
+            permits.release();
+          }
+        }));
+    }
+    return results.stream().map(Future::resultNow).collect(Collectors.toList());
+  }
+
+  private S3UploadResult upload(String bucketName, FileMetadata fileMetadata)
+  {
+    S3UploadResult result = new S3UploadResult().setObjectKey(fileMetadata.filename);
+    Set<ConstraintViolation<FileMetadata>> violations = validator.validate(fileMetadata);
+    if (!violations.isEmpty())
+      return result.setStatus(Response.Status.BAD_REQUEST.getStatusCode()).setError(violations.stream()
+        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage()).collect(Collectors.joining(", ")));
+    result.setSize(fileMetadata.file.length());
+    try
+    {
+      String etag = multipartUploader.isMultipart(fileMetadata.file)
+        ? multipartUploader.upload(bucketName, fileMetadata.filename, fileMetadata.mimetype, fileMetadata.file)
+        : s3.putObject(PutObjectRequest.builder().bucket(bucketName).key(fileMetadata.filename).contentType(fileMetadata.mimetype).build(),
+            RequestBody.fromFile(fileMetadata.file)).eTag();
+      objectCache.ifPresent(cache -> cache.invalidate(fileMetadata.filename));
+      keyIndex.ifPresent(index -> index.put(fileMetadata.filename, fileMetadata.file.length(), etag, Instant.now()));
+      return result.setStatus(Response.Status.CREATED.getStatusCode()).setEtag(etag);
+    }
+    catch (Exception ex)
+    {
+      LOG.warnf(ex, "Failed to upload %s", fileMetadata.filename);
+      return result.setStatus(ex instanceof S3Exception s3Exception ? s3Exception.statusCode() :
+        Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()).setError(ex.getMessage());
+    }
+  }
+}
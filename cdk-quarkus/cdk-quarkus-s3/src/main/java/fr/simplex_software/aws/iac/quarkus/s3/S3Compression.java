@@ -0,0 +1,95 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import io.quarkus.runtime.*;
+import jakarta.enterprise.context.*;
+import jakarta.enterprise.event.*;
+import jakarta.inject.*;
+import org.eclipse.microprofile.config.inject.*;
+import org.jboss.logging.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Decides, from the MIME type and the size of a content, whether it's worth compressing
+ * and with which coding. Contents whose MIME type isn't listed in
+ * {@code s3.file-management.compression.mime-types}, or whose size is below
+ * {@code s3.file-management.compression.threshold}, are left as they are. In Lambda,
+ * the responses are compressed by {@link CompressingStreamHandler}, with the same
+ * negotiation, the requests reaching the endpoints without their {@code Accept-Encoding}.
+ * A function deployed with another handler doesn't compress them, as the HTTP adapter
+ * would garble the compressed text bodies, and says so when it starts.
+ */
+@ApplicationScoped
+public class S3Compression
+{
+  public static final long UNKNOWN_LENGTH = -1;
+  private static final Logger LOG = Logger.getLogger(S3Compression.class);
+
+  @Inject
+  S3FileManagementConfig config;
+  @ConfigProperty(name = "aws.lambda.function.name")
+  Optional<String> lambdaFunctionName;
+  @ConfigProperty(name = "_HANDLER")
+  Optional<String> lambdaHandler;
+
+  void onStart(@Observes StartupEvent startupEvent)
+  {
+    if (config.compression().enabled() && !isCompressingHandler())
+      LOG.warnf("Responses aren't compressed by the function %s, deployed with the handler %s instead of %s::handleRequest",
+        lambdaFunctionName.get(), lambdaHandler.orElse(null), CompressingStreamHandler.class.getName());
+  }
+
+  public ContentEncoding negotiate(String acceptEncoding, String mimeType, long length)
+  {
+    if (!config.compression().enabled() || !isCompressingHandler() || !isWorthCompressing(mimeType, length))
+      return ContentEncoding.IDENTITY;
+    return ContentEncoding.negotiate(acceptEncoding);
+  }
+
+  /**
+   * Whether the responses may be compressed, outside Lambda or by its compressing handler.
+   */
+  private boolean isCompressingHandler()
+  {
+    return lambdaFunctionName.isEmpty() || lambdaHandler.filter(handler -> handler.startsWith(CompressingStreamHandler.class.getName())).isPresent();
+  }
+
+  public ContentEncoding storeEncoding(String mimeType, long length)
+  {
+    if (!config.compression().store() || !isWorthCompressing(mimeType, length))
+      return ContentEncoding.IDENTITY;
+    return ContentEncoding.of(config.compression().storeEncoding());
+  }
+
+  public File compress(File file, ContentEncoding encoding) throws IOException
+  {
+    File compressed = Files.createTempFile("s3-upload", "." + encoding.token()).toFile();
+    try (InputStream input = Files.newInputStream(file.toPath());
+         OutputStream output = encoding.compress(Files.newOutputStream(compressed.toPath())))
+    {
+      input.transferTo(output);
+    }
+    catch (IOException ex)
+    {
+      Files.deleteIfExists(compressed.toPath());
+      throw ex;
+    }
+    return compressed;
+  }
+
+  private boolean isWorthCompressing(String mimeType, long length)
+  {
+    return (length == UNKNOWN_LENGTH || length >= config.compression().threshold()) && isCompressible(mimeType);
+  }
+
+  private boolean isCompressible(String mimeType)
+  {
+    if (mimeType == null)
+      return false;
+    String type = mimeType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+    return config.compression().mimeTypes().stream().anyMatch(pattern -> pattern.endsWith("/*")
+      ? type.startsWith(pattern.substring(0, pattern.length() - 1)) : type.equals(pattern));
+  }
+}
@@ -0,0 +1,169 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import java.time.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * An AIMD concurrency limit, as used by {@link S3AdmissionControl} for each operation and
+ * key prefix. Each successful call, made while at least half of the limit is in use,
+ * raises the limit by {@code 1 / limit}, that is by one per round trip when the limit is
+ * saturated. A SlowDown response multiplies it by the backoff ratio, once per round trip
+ * at most, as the calls admitted before the decrease are still running at the old limit.
+ * <p>
+ * A SlowDown also holds the admissions for a randomly jittered delay, growing
+ * exponentially with the consecutive SlowDowns, and the retries draw from a token bucket,
+ * such that throttling is never answered by more calls than S3 is able to take.
+ */
+public class S3ConcurrencyLimiter
+{
+  private final Settings settings;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private double limit;
+  private int inFlight;
+  private long admitted;
+  private long lastDecrease;
+  private int slowDowns;
+  private long backoffUntil = System.nanoTime();
+  private double retryTokens;
+  private long retryRefill = System.nanoTime();
+
+  public record Settings(int initialLimit, int minLimit, int maxLimit, double backoffRatio, Duration backoffBase,
+    Duration backoffMax, int retryBudget, double retryRate)
+  {
+    public static Settings of(S3FileManagementConfig.Admission config)
+    {
+      return new Settings(config.initialLimit(), config.minLimit(), config.maxLimit(), config.backoffRatio(),
+        config.backoffBase(), config.backoffMax(), config.retryBudget(), config.retryRate());
+    }
+  }
+
+  public S3ConcurrencyLimiter(Settings settings)
+  {
+    this.settings = settings;
+    limit = Math.clamp(settings.initialLimit(), settings.minLimit(), settings.maxLimit());
+    retryTokens = settings.retryBudget();
+  }
+
+  /**
+   * Waits up to the given time for the call to be admitted, returning its admission
+   * number, to be passed to {@link #slowDown(long)}, or -1 if it wasn't.
+   */
+  public long acquire(Duration timeout) throws InterruptedException
+  {
+    lock.lock();
+    try
+    {
+      long deadline = System.nanoTime() + timeout.toNanos();
+      while (true)
+      {
+        long now = System.nanoTime();
+        if (inFlight < (int) limit && now - backoffUntil >= 0)
+        {
+          inFlight++;
+          return ++admitted;
+        }
+        long remaining = deadline - now;
+        if (remaining <= 0)
+          return -1;
+        released.awaitNanos(backoffUntil - now > 0 ? Math.min(remaining, backoffUntil - now) : remaining);
+      }
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Reports a SlowDown response received by the call having the given admission number.
+   */
+  public void slowDown(long admission)
+  {
+    lock.lock();
+    try
+    {
+      if (admission > lastDecrease)
+      {
+        limit = Math.max(settings.minLimit(), limit * settings.backoffRatio());
+        lastDecrease = admitted;
+      }
+      long ceiling = Math.min(settings.backoffMax().toNanos(), settings.backoffBase().toNanos() << Math.min(slowDowns, 20));
+      slowDowns++;
+      backoffUntil = System.nanoTime() + (ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling) : 0);
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes a token from the retry budget, returning whether there was one.
+   */
+  public boolean tryRetry()
+  {
+    lock.lock();
+    try
+    {
+      long now = System.nanoTime();
+      retryTokens = Math.min(settings.retryBudget(), retryTokens + (now - retryRefill) / 1e9 * settings.retryRate());
+      retryRefill = now;
+      if (retryTokens < 1)
+        return false;
+      retryTokens--;
+      return true;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  public void release(boolean succeeded)
+  {
+    lock.lock();
+    try
+    {
+      if (succeeded)
+      {
+        if (inFlight >= limit / 2)
+          limit = Math.min(settings.maxLimit(), limit + 1 / limit);
+        slowDowns = 0;
+      }
+      inFlight--;
+      released.signalAll();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  public double limit()
+  {
+    lock.lock();
+    try
+    {
+      return limit;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  public int inFlight()
+  {
+    lock.lock();
+    try
+    {
+      return inFlight;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import jakarta.validation.constraints.*;
+
+public class S3CopyRequest
+{
+  @NotEmpty
+  private String sourceKey;
+  @ObjectFilename
+  private String objectKey;
+
+  public S3CopyRequest()
+  {
+  }
+
+  public String getSourceKey()
+  {
+    return sourceKey;
+  }
+
+  public S3CopyRequest setSourceKey(String sourceKey)
+  {
+    this.sourceKey = sourceKey;
+    return this;
+  }
+
+  public String getObjectKey()
+  {
+    return objectKey;
+  }
+
+  public S3CopyRequest setObjectKey(String objectKey)
+  {
+    this.objectKey = objectKey;
+    return this;
+  }
+}
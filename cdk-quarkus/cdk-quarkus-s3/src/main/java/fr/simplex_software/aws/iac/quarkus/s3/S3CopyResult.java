@@ -0,0 +1,81 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+public class S3CopyResult
+{
+  private String sourceKey;
+  private String objectKey;
+  private Long size;
+  private int status;
+  private String etag;
+  private String error;
+
+  public S3CopyResult()
+  {
+  }
+
+  public String getSourceKey()
+  {
+    return sourceKey;
+  }
+
+  public S3CopyResult setSourceKey(String sourceKey)
+  {
+    this.sourceKey = sourceKey;
+    return this;
+  }
+
+  public String getObjectKey()
+  {
+    return objectKey;
+  }
+
+  public S3CopyResult setObjectKey(String objectKey)
+  {
+    this.objectKey = objectKey;
+    return this;
+  }
+
+  public Long getSize()
+  {
+    return size;
+  }
+
+  public S3CopyResult setSize(Long size)
+  {
+    this.size = size;
+    return this;
+  }
+
+  public int getStatus()
+  {
+    return status;
+  }
+
+  public S3CopyResult setStatus(int status)
+  {
+    this.status = status;
+    return this;
+  }
+
+  public String getEtag()
+  {
+    return etag;
+  }
+
+  public S3CopyResult setEtag(String etag)
+  {
+    this.etag = etag;
+    return this;
+  }
+
+  public String getError()
+  {
+    return error;
+  }
+
+  public S3CopyResult setError(String error)
+  {
+    this.error = error;
+    return this;
+  }
+}
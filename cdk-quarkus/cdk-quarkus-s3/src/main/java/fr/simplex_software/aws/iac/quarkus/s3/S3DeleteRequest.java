@@ -0,0 +1,35 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import java.util.*;
+
+public class S3DeleteRequest
+{
+  private List<String> keys;
+  private String prefix;
+
+  public S3DeleteRequest()
+  {
+  }
+
+  public List<String> getKeys()
+  {
+    return keys;
+  }
+
+  public S3DeleteRequest setKeys(List<String> keys)
+  {
+    this.keys = keys;
+    return this;
+  }
+
+  public String getPrefix()
+  {
+    return prefix;
+  }
+
+  public S3DeleteRequest setPrefix(String prefix)
+  {
+    this.prefix = prefix;
+    return this;
+  }
+}
@@ -0,0 +1,45 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+public class S3DeleteResult
+{
+  private String objectKey;
+  private int status;
+  private String error;
+
+  public S3DeleteResult()
+  {
+  }
+
+  public String getObjectKey()
+  {
+    return objectKey;
+  }
+
+  public S3DeleteResult setObjectKey(String objectKey)
+  {
+    this.objectKey = objectKey;
+    return this;
+  }
+
+  public int getStatus()
+  {
+    return status;
+  }
+
+  public S3DeleteResult setStatus(int status)
+  {
+    this.status = status;
+    return this;
+  }
+
+  public String getError()
+  {
+    return error;
+  }
+
+  public S3DeleteResult setError(String error)
+  {
+    this.error = error;
+    return this;
+  }
+}
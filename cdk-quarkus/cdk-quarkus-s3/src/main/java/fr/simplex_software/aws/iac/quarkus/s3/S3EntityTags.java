@@ -0,0 +1,143 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.nio.charset.*;
+import java.security.*;
+import java.time.*;
+import java.time.format.*;
+import java.time.temporal.*;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * Entity tag helpers for the conditional requests. Downloads reuse the S3 ETag, made
+ * weak when the response body is re-encoded on the fly, while listings get a weak tag
+ * derived from the key, ETag, size and last modification date of every entry.
+ */
+public final class S3EntityTags
+{
+  private static final String WEAK_PREFIX = "W/";
+
+  private S3EntityTags()
+  {
+  }
+
+  public static String weak(String entityTag)
+  {
+    return entityTag == null || entityTag.startsWith(WEAK_PREFIX) ? entityTag : WEAK_PREFIX + entityTag;
+  }
+
+  /**
+   * Turns an {@code If-None-Match} header into the strong tags S3 compares with, as a
+   * weak tag served by this API stands for the same S3 object version.
+   */
+  public static String strong(String ifNoneMatch)
+  {
+    return ifNoneMatch == null ? null : String.join(", ", tags(ifNoneMatch).map(S3EntityTags::strongTag).toList());
+  }
+
+  /**
+   * The weak comparison of an {@code If-None-Match} header with an entity tag, as
+   * specified for GET requests by RFC 9110.
+   */
+  public static boolean matches(String ifNoneMatch, String entityTag)
+  {
+    if (ifNoneMatch == null || entityTag == null)
+      return false;
+    String tag = strongTag(entityTag.trim());
+    return tags(ifNoneMatch).map(S3EntityTags::strongTag).anyMatch(candidate -> candidate.equals("*") || candidate.equals(tag));
+  }
+
+  /**
+   * The entity tag of a 304 response, in the form, weak or strong, in which the client
+   * sent it.
+   */
+  public static String asSent(String ifNoneMatch, String entityTag)
+  {
+    if (ifNoneMatch == null || entityTag == null)
+      return entityTag;
+    String weakTag = weak(entityTag.trim());
+    return tags(ifNoneMatch).anyMatch(weakTag::equals) ? weakTag : entityTag;
+  }
+
+  /**
+   * Evaluates the conditions of a GET request locally, the way S3 does, for responses
+   * served without asking S3 for them: {@code If-Modified-Since} is ignored when an
+   * {@code If-None-Match} is present.
+   */
+  public static boolean isNotModified(String ifNoneMatch, String ifModifiedSince, String entityTag, Instant lastModified)
+  {
+    if (ifNoneMatch != null)
+      return matches(ifNoneMatch, entityTag);
+    return lastModified != null && parseHttpDate(ifModifiedSince)
+      .map(since -> !lastModified.truncatedTo(ChronoUnit.SECONDS).isAfter(since)).orElse(false);
+  }
+
+  private static Stream<String> tags(String header)
+  {
+    return Arrays.stream(header.split(",")).map(String::trim).filter(tag -> !tag.isEmpty());
+  }
+
+  private static String strongTag(String tag)
+  {
+    return tag.startsWith(WEAK_PREFIX) ? tag.substring(WEAK_PREFIX.length()) : tag;
+  }
+
+  public static Optional<Instant> parseHttpDate(String httpDate)
+  {
+    try
+    {
+      return httpDate == null ? Optional.empty() : Optional.of(ZonedDateTime.parse(httpDate, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+    }
+    catch (DateTimeParseException ex)
+    {
+      return Optional.empty();
+    }
+  }
+
+  public static Listing listing()
+  {
+    return new Listing();
+  }
+
+  public static class Listing
+  {
+    private final MessageDigest digest;
+
+    private Listing()
+    {
+      try
+      {
+        digest = MessageDigest.getInstance("MD5");
+      }
+      catch (NoSuchAlgorithmException ex)
+      {
+        throw new IllegalStateException(ex);
+      }
+    }
+
+    public Listing add(ListObjectsV2Response page)
+    {
+      for (S3Object s3Object : page.contents())
+        update(s3Object.key(), s3Object.eTag(), String.valueOf(s3Object.size()), String.valueOf(s3Object.lastModified()));
+      for (CommonPrefix commonPrefix : page.commonPrefixes())
+        update(commonPrefix.prefix());
+      return this;
+    }
+
+    public String entityTag()
+    {
+      return WEAK_PREFIX + "\"" + HexFormat.of().formatHex(digest.digest()) + "\"";
+    }
+
+    private void update(String... fields)
+    {
+      for (String field : fields)
+      {
+        digest.update(String.valueOf(field).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+      }
+    }
+  }
+}
@@ -44,4 +44,12 @@ public class S3File
     }
     return file;
   }
+
+  public static S3File from(CommonPrefix commonPrefix)
+  {
+    S3File file = new S3File();
+    if (commonPrefix != null)
+      file.setObjectKey(commonPrefix.prefix());
+    return file;
+  }
 }
@@ -0,0 +1,68 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.databind.*;
+import jakarta.ws.rs.core.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Writes a ListObjectsV2 listing to the HTTP response as a JSON array, one page at a
+ * time, such that only the page being written is held on the heap. The remaining pages
+ * are fetched lazily, as the array is being written.
+ */
+public class S3FileListingOutput implements StreamingOutput
+{
+  private final ObjectMapper objectMapper;
+  private final ListObjectsV2Response firstPage;
+  private final Iterator<ListObjectsV2Response> nextPages;
+
+  public S3FileListingOutput(ObjectMapper objectMapper, ListObjectsV2Response firstPage, Iterator<ListObjectsV2Response> nextPages)
+  {
+    this.objectMapper = objectMapper;
+    this.firstPage = firstPage;
+    this.nextPages = nextPages;
+  }
+
+  @Override
+  public void write(OutputStream output) throws IOException
+  {
+    try (JsonGenerator generator = objectMapper.createGenerator(output).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET))
+    {
+      generator.writeStartArray();
+      writePage(generator, firstPage);
+      while (nextPages.hasNext())
+        writePage(generator, nextPages.next());
+      generator.writeEndArray();
+    }
+  }
+
+  private void writePage(JsonGenerator generator, ListObjectsV2Response page) throws IOException
+  {
+    for (S3File file : files(page))
+      generator.writeObject(file);
+    generator.flush();
+  }
+
+  /**
+   * The objects and the common prefixes of a page in key order, merging the two
+   * sequences, each of them being already sorted by S3.
+   */
+  static List<S3File> files(ListObjectsV2Response page)
+  {
+    List<S3Object> contents = page.contents();
+    List<CommonPrefix> commonPrefixes = page.commonPrefixes();
+    List<S3File> files = new ArrayList<>(contents.size() + commonPrefixes.size());
+    int object = 0;
+    int prefix = 0;
+    while (object < contents.size() || prefix < commonPrefixes.size())
+      if (prefix == commonPrefixes.size()
+        || object < contents.size() && contents.get(object).key().compareTo(commonPrefixes.get(prefix).prefix()) < 0)
+        files.add(S3File.from(contents.get(object++)));
+      else
+        files.add(S3File.from(commonPrefixes.get(prefix++)));
+    return files;
+  }
+}
@@ -1,67 +1,547 @@
 package fr.simplex_software.aws.iac.quarkus.s3;
 
+import com.fasterxml.jackson.databind.*;
+import io.quarkus.arc.properties.*;
 import jakarta.inject.*;
 import jakarta.validation.*;
+import jakarta.validation.constraints.*;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.*;
 import org.eclipse.microprofile.config.inject.*;
+import org.jboss.resteasy.reactive.*;
+import org.jboss.resteasy.reactive.multipart.*;
 import software.amazon.awssdk.core.*;
 import software.amazon.awssdk.core.sync.*;
 import software.amazon.awssdk.services.s3.*;
 import software.amazon.awssdk.services.s3.model.*;
 
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.time.*;
 import java.util.*;
-import java.util.stream.*;
 
 @Path("/s3")
+@UnlessBuildProperty(name = "s3.file-management.mode", stringValue = "async", enableIfMissing = true)
 public class S3FileManagementApi
 {
+  public static final String NEXT_CONTINUATION_TOKEN = "X-Next-Continuation-Token";
+  public static final String UPLOAD_OUTCOME = "X-Upload-Outcome";
+  public static final String WRITTEN = "written";
+  public static final String DEDUPLICATED = "deduplicated";
+  static final int MAX_KEYS = 1000;
+  static final String FILE_PART = "file";
+  static final String APPLICATION_ZIP = "application/zip";
+  private static final int MULTI_STATUS = 207;
+  private static final int ESTIMATED_LISTING_ENTRY_SIZE = 128;
+  private static final long INDEX_RETRY_AFTER = 5;
+
   @Inject
   S3Client s3;
   @ConfigProperty(name = "bucket.name")
   String bucketName;
+  @Inject
+  S3FileManagementConfig config;
+  @Inject
+  S3MultipartUploader multipartUploader;
+  @Inject
+  S3BatchUploader batchUploader;
+  @Inject
+  ObjectMapper objectMapper;
+  @Inject
+  S3UploadDeduplicator deduplicator;
+  @Inject
+  S3Compression compression;
+  @Inject
+  Optional<S3ObjectCache> objectCache;
+  @Inject
+  S3TransferOffload offload;
+  @Inject
+  S3StreamingUploader streamingUploader;
+  @Inject
+  Optional<S3KeyIndex> keyIndex;
+  @Inject
+  S3BatchDeleter batchDeleter;
+  @Inject
+  S3ObjectCopier objectCopier;
 
   @POST
   @Path("upload")
   @Consumes(MediaType.MULTIPART_FORM_DATA)
   public Response uploadFile(@Valid FileMetadata fileMetadata) throws Exception
   {
-    PutObjectRequest request = PutObjectRequest.builder()
-      .bucket(bucketName)
-      .key(fileMetadata.filename)
-      .contentType(fileMetadata.mimetype)
-      .build();
-    s3.putObject(request, RequestBody.fromFile(fileMetadata.file));
-    return Response.ok().status(Response.Status.CREATED).build();
+    Map<String, String> metadata = Map.of();
+    if (config.upload().dedup())
+    {
+      byte[] digest = S3UploadDeduplicator.digest(fileMetadata.file);
+      if (deduplicator.isStored(bucketName, fileMetadata.filename, digest, fileMetadata.mimetype))
+        return Response.ok().header(UPLOAD_OUTCOME, DEDUPLICATED).build();
+      metadata = S3UploadDeduplicator.metadata(digest);
+    }
+    ContentEncoding encoding = compression.storeEncoding(fileMetadata.mimetype, fileMetadata.file.length());
+    File content = encoding == ContentEncoding.IDENTITY ? fileMetadata.file : compression.compress(fileMetadata.file, encoding);
+    String contentEncoding = encoding == ContentEncoding.IDENTITY ? null : encoding.token();
+    long size = content.length();
+    String eTag;
+    try
+    {
+      if (multipartUploader.isMultipart(content))
+        eTag = multipartUploader.upload(CreateMultipartUploadRequest.builder()
+          .bucket(bucketName)
+          .key(fileMetadata.filename)
+          .contentType(fileMetadata.mimetype)
+          .contentEncoding(contentEncoding)
+          .metadata(metadata)
+          .build(), content);
+      else
+      {
+        PutObjectRequest request = PutObjectRequest.builder()
+          .bucket(bucketName)
+          .key(fileMetadata.filename)
+          .contentType(fileMetadata.mimetype)
+          .contentEncoding(contentEncoding)
+          .metadata(metadata)
+          .build();
+        eTag = s3.putObject(request, RequestBody.fromFile(content)).eTag();
+      }
+    }
+    finally
+    {
+      if (content != fileMetadata.file)
+        Files.deleteIfExists(content.toPath());
+    }
+    objectCache.ifPresent(cache -> cache.invalidate(fileMetadata.filename));
+    keyIndex.ifPresent(index -> index.put(fileMetadata.filename, size, eTag, Instant.now()));
+    return Response.ok().status(Response.Status.CREATED).header(UPLOAD_OUTCOME, WRITTEN).build();
+  }
+
+  /**
+   * Uploads the request body as it's received, with neither multipart encoding nor
+   * spooling to a file, the object key being the path and the MIME type the body's.
+   */
+  @PUT
+  @Path("upload/{objectKey}")
+  @Consumes(MediaType.WILDCARD)
+  public Response uploadStream(@PathParam("objectKey") @ObjectFilename String objectKey,
+    @HeaderParam(HttpHeaders.CONTENT_TYPE) @ObjectMimetype String mimetype, @HeaderParam(HttpHeaders.CONTENT_LENGTH) Long contentLength,
+    InputStream body) throws IOException
+  {
+    PutObjectRequest request = PutObjectRequest.builder().bucket(bucketName).key(objectKey).contentType(mimetype).build();
+    String eTag = streamingUploader.upload(request, body, contentLength == null ? S3StreamingUploader.UNKNOWN_LENGTH : contentLength);
+    objectCache.ifPresent(cache -> cache.invalidate(objectKey));
+    if (contentLength == null)
+      keyIndex.ifPresent(index -> index.refresh(objectKey));
+    else
+      keyIndex.ifPresent(index -> index.put(objectKey, contentLength, eTag, Instant.now()));
+    return Response.status(Response.Status.CREATED).header(UPLOAD_OUTCOME, WRITTEN).build();
+  }
+
+  @POST
+  @Path("upload/batch")
+  @Consumes(MediaType.MULTIPART_FORM_DATA)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response uploadFiles(@RestForm(FILE_PART) List<FileUpload> files)
+  {
+    List<S3UploadResult> results = batchUploader.upload(bucketName, toFileMetadata(files));
+    return Response.status(batchStatus(results)).entity(results).build();
+  }
+
+  @POST
+  @Path("upload/presigned")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public S3PresignedUpload presignUpload(@Valid S3PresignedUploadRequest request)
+  {
+    if (!offload.isEnabled())
+      throw new NotFoundException();
+    return offload.presignUpload(bucketName, request);
+  }
+
+  @POST
+  @Path("upload/presigned/complete")
+  @Consumes(MediaType.APPLICATION_JSON)
+  public Response completeUpload(S3PresignedUpload upload)
+  {
+    if (!offload.isEnabled())
+      throw new NotFoundException();
+    offload.complete(bucketName, upload);
+    objectCache.ifPresent(cache -> cache.invalidate(upload.getObjectKey()));
+    keyIndex.ifPresent(index -> index.refresh(upload.getObjectKey()));
+    return Response.status(Response.Status.CREATED).header(UPLOAD_OUTCOME, WRITTEN).build();
+  }
+
+  @DELETE
+  @Path("upload/presigned/{uploadId}")
+  public Response abortUpload(@PathParam("uploadId") String uploadId, @QueryParam("key") @NotEmpty String objectKey)
+  {
+    if (!offload.isEnabled())
+      throw new NotFoundException();
+    offload.abort(bucketName, objectKey, uploadId);
+    return Response.noContent().build();
+  }
+
+  static List<FileMetadata> toFileMetadata(List<FileUpload> files)
+  {
+    return files.stream().map(file -> new FileMetadata(file.uploadedFile().toFile(), file.fileName(), file.contentType())).toList();
+  }
+
+  static int batchStatus(List<S3UploadResult> results)
+  {
+    return results.stream().allMatch(result -> result.getStatus() == Response.Status.CREATED.getStatusCode())
+      ? Response.Status.CREATED.getStatusCode() : MULTI_STATUS;
   }
 
   @GET
   @Path("download/{objectKey}")
   @Produces(MediaType.APPLICATION_OCTET_STREAM)
-  public Response downloadFile(@PathParam("objectKey") String objectKey)
+  public Response downloadFile(@PathParam("objectKey") String objectKey, @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+    @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch, @HeaderParam(HttpHeaders.IF_MODIFIED_SINCE) String ifModifiedSince)
+    throws IOException
   {
+    if (offload.isOffloaded(objectCache.flatMap(cache -> cache.get(objectKey)).map(entry -> entry.metadata().contentLength()).orElse(null)))
+      return offloaded(objectKey);
+    if (objectCache.isPresent())
+      return downloadCached(objectCache.get(), objectKey, acceptEncoding, ifNoneMatch, ifModifiedSince);
     GetObjectRequest request = GetObjectRequest.builder()
       .bucket(bucketName)
       .key(objectKey)
+      .ifNoneMatch(S3EntityTags.strong(ifNoneMatch))
+      .ifModifiedSince(ifNoneMatch == null ? S3EntityTags.parseHttpDate(ifModifiedSince).orElse(null) : null)
       .build();
-    ResponseBytes<GetObjectResponse> objectBytes = s3.getObjectAsBytes(request);
-    Response.ResponseBuilder response = Response.ok(objectBytes.asByteArray());
-    response.header("Content-Disposition", "attachment;filename=README.md");
-    response.header("Content-Type", objectBytes.response().contentType());
+    ResponseInputStream<GetObjectResponse> object;
+    try
+    {
+      object = s3.getObject(request);
+    }
+    catch (S3Exception ex)
+    {
+      if (ex.statusCode() != Response.Status.NOT_MODIFIED.getStatusCode())
+        throw ex;
+      String entityTag = ex.awsErrorDetails().sdkHttpResponse().firstMatchingHeader(HttpHeaders.ETAG).orElse(null);
+      return notModified(S3EntityTags.asSent(ifNoneMatch, entityTag)).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+    }
+    GetObjectResponse metadata = object.response();
+    if (offload.isOffloaded(metadata.contentLength()))
+      return offloaded(object, objectKey);
+    ContentEncoding encoding = responseEncoding(metadata, acceptEncoding);
+    return download(objectKey, metadata, encoding, encode(object, metadata, encoding));
+  }
+
+  /**
+   * Redirects the client to a presigned GET, once the size of the object is known, the
+   * object's content being left unread.
+   */
+  private Response offloaded(ResponseInputStream<GetObjectResponse> object, String objectKey)
+  {
+    object.abort();
+    return offloaded(objectKey);
+  }
+
+  private Response offloaded(String objectKey)
+  {
+    return Response.temporaryRedirect(offload.downloadRedirect(bucketName, objectKey)).build();
+  }
+
+  /**
+   * Downloads through the local disk cache. A cached object is served as it is during its
+   * validity window, then validated by a GET whose {@code If-None-Match} is its ETag, any
+   * other response replacing it, or invalidating it when too large to cache or offloaded.
+   * The client's own conditions are evaluated against the object served. When no
+   * re-encoding is needed, the cached file is the response entity, sent by Vert.x without
+   * being read on the heap.
+   */
+  private Response downloadCached(S3ObjectCache cache, String objectKey, String acceptEncoding, String ifNoneMatch,
+    String ifModifiedSince) throws IOException
+  {
+    Optional<S3ObjectCache.Entry> cached = cache.get(objectKey);
+    if (cached.isPresent() && cache.isFresh(cached.get()))
+    {
+      cache.hit();
+      return download(objectKey, cached.get(), acceptEncoding, ifNoneMatch, ifModifiedSince);
+    }
+    GetObjectRequest request = GetObjectRequest.builder()
+      .bucket(bucketName)
+      .key(objectKey)
+      .ifNoneMatch(cached.map(entry -> entry.metadata().eTag()).orElse(null))
+      .build();
+    S3ObjectCache.Entry entry;
+    try
+    {
+      ResponseInputStream<GetObjectResponse> object = s3.getObject(request);
+      if (offload.isOffloaded(object.response().contentLength()))
+      {
+        cache.invalidate(objectKey);
+        return offloaded(object, objectKey);
+      }
+      cache.miss();
+      Optional<S3ObjectCache.Entry> stored = cache.put(objectKey, object);
+      if (stored.isEmpty())
+      {
+        GetObjectResponse metadata = object.response();
+        if (S3EntityTags.isNotModified(ifNoneMatch, ifModifiedSince, metadata.eTag(), metadata.lastModified()))
+        {
+          object.abort();
+          return notModified(S3EntityTags.asSent(ifNoneMatch, metadata.eTag())).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+        }
+        ContentEncoding encoding = responseEncoding(metadata, acceptEncoding);
+        return download(objectKey, metadata, encoding, encode(object, metadata, encoding));
+      }
+      entry = stored.get();
+    }
+    catch (S3Exception ex)
+    {
+      if (cached.isEmpty() || ex.statusCode() != Response.Status.NOT_MODIFIED.getStatusCode())
+        throw ex;
+      cache.hit();
+      entry = cache.revalidate(objectKey, cached.get());
+    }
+    return download(objectKey, entry, acceptEncoding, ifNoneMatch, ifModifiedSince);
+  }
+
+  private Response download(String objectKey, S3ObjectCache.Entry entry, String acceptEncoding, String ifNoneMatch,
+    String ifModifiedSince) throws IOException
+  {
+    GetObjectResponse metadata = entry.metadata();
+    if (S3EntityTags.isNotModified(ifNoneMatch, ifModifiedSince, metadata.eTag(), metadata.lastModified()))
+      return notModified(S3EntityTags.asSent(ifNoneMatch, metadata.eTag())).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+    ContentEncoding encoding = responseEncoding(metadata, acceptEncoding);
+    return download(objectKey, metadata, encoding, encoding == ContentEncoding.of(metadata.contentEncoding())
+      ? entry.file() : encode(Files.newInputStream(entry.file()), metadata, encoding));
+  }
+
+  /**
+   * The coding of a downloaded object: the stored one when the client accepts it, or the
+   * one negotiated for the object's decoded content otherwise.
+   */
+  private ContentEncoding responseEncoding(GetObjectResponse metadata, String acceptEncoding)
+  {
+    ContentEncoding stored = ContentEncoding.of(metadata.contentEncoding());
+    if (stored != ContentEncoding.IDENTITY && stored.isAccepted(acceptEncoding))
+      return stored;
+    long length = stored == ContentEncoding.IDENTITY ? metadata.contentLength() : S3Compression.UNKNOWN_LENGTH;
+    return compression.negotiate(acceptEncoding, metadata.contentType(), length);
+  }
+
+  private StreamingOutput encode(InputStream content, GetObjectResponse metadata, ContentEncoding encoding) throws IOException
+  {
+    ContentEncoding stored = ContentEncoding.of(metadata.contentEncoding());
+    if (encoding == stored)
+      return new S3ObjectStreamingOutput(content, config.download().chunkSize());
+    StreamingOutput decoded = new S3ObjectStreamingOutput(stored.decompress(content), config.download().chunkSize());
+    return encoding == ContentEncoding.IDENTITY ? decoded : new EncodingStreamingOutput(decoded, encoding);
+  }
+
+  /**
+   * The response of a download, whose entity is the object's content in the given coding.
+   * As long as it's the stored one, the length and the strong ETag of the object apply,
+   * otherwise the length is unknown and the ETag is weak.
+   */
+  private Response download(String objectKey, GetObjectResponse metadata, ContentEncoding encoding, Object entity)
+  {
+    Response.ResponseBuilder response = Response.ok(entity);
+    if (encoding != ContentEncoding.IDENTITY)
+      response.header(HttpHeaders.CONTENT_ENCODING, encoding.token());
+    if (encoding == ContentEncoding.of(metadata.contentEncoding()))
+      response.header(HttpHeaders.CONTENT_LENGTH, metadata.contentLength()).header(HttpHeaders.ETAG, metadata.eTag());
+    else
+      response.header(HttpHeaders.ETAG, S3EntityTags.weak(metadata.eTag()));
+    if (metadata.lastModified() != null)
+      response.lastModified(Date.from(metadata.lastModified()));
+    response.header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment(objectKey));
+    response.header(HttpHeaders.CONTENT_TYPE, metadata.contentType());
+    response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
     return response.build();
   }
 
+  @GET
+  @Path("archive")
+  @Produces(APPLICATION_ZIP)
+  public Response downloadArchive(@QueryParam("key") List<String> objectKeys, @QueryParam("prefix") String prefix)
+  {
+    return archive(s3, bucketName, objectKeys, prefix, config);
+  }
+
+  static Response archive(S3Client s3, String bucketName, List<String> objectKeys, String prefix, S3FileManagementConfig config)
+  {
+    if (objectKeys.isEmpty() && prefix == null)
+      throw new BadRequestException("Either key or prefix is required");
+    Iterator<String> keys = objectKeys.isEmpty()
+      ? s3.listObjectsV2Paginator(ListObjectsV2Request.builder().bucket(bucketName).prefix(prefix).build())
+          .contents().stream().map(S3Object::key).iterator()
+      : new LinkedHashSet<>(objectKeys).iterator();
+    return Response.ok(new S3ZipStreamingOutput(s3, bucketName, keys, config.archive().prefetch(), config.download().chunkSize()))
+      .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=\"archive.zip\"")
+      .build();
+  }
+
+  /**
+   * Deletes either the given keys or all the objects under the given, non-empty, prefix,
+   * with batched DeleteObjects requests, reporting on each key. A listing of the prefix
+   * failing midway ends in a 207, with the keys deleted so far and the listing's error.
+   */
+  @POST
+  @Path("delete")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response deleteFiles(@NotNull S3DeleteRequest request)
+  {
+    boolean byKeys = request.getKeys() != null && !request.getKeys().isEmpty();
+    boolean byPrefix = request.getPrefix() != null && !request.getPrefix().isEmpty();
+    if (byKeys == byPrefix)
+      throw new BadRequestException("Either keys or a non-empty prefix is required");
+    Iterator<String> keys = byKeys ? new LinkedHashSet<>(request.getKeys()).iterator()
+      : s3.listObjectsV2Paginator(ListObjectsV2Request.builder().bucket(bucketName).prefix(request.getPrefix()).build())
+          .contents().stream().map(S3Object::key).iterator();
+    List<S3DeleteResult> results = batchDeleter.delete(bucketName, keys);
+    boolean deleted = results.stream().allMatch(result -> result.getStatus() == Response.Status.NO_CONTENT.getStatusCode());
+    return Response.status(deleted ? Response.Status.OK.getStatusCode() : MULTI_STATUS).entity(results).build();
+  }
+
+  /**
+   * Copies objects within the bucket, their content being copied by S3, never going
+   * through the application.
+   */
+  @POST
+  @Path("copy")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response copyFiles(@NotEmpty List<S3CopyRequest> requests)
+  {
+    return copy(requests, false);
+  }
+
+  /**
+   * Moves objects within the bucket, as copies followed by the deletion of their source.
+   */
+  @POST
+  @Path("move")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response moveFiles(@NotEmpty List<S3CopyRequest> requests)
+  {
+    return copy(requests, true);
+  }
+
+  private Response copy(List<S3CopyRequest> requests, boolean move)
+  {
+    List<S3CopyResult> results = objectCopier.copy(bucketName, requests, move);
+    boolean copied = results.stream().allMatch(result -> result.getStatus() == Response.Status.CREATED.getStatusCode());
+    return Response.status(copied ? Response.Status.CREATED.getStatusCode() : MULTI_STATUS).entity(results).build();
+  }
+
+  /**
+   * Lists the objects, page by page when {@code maxKeys} is given, otherwise all of them
+   * in one streamed response. Only the responses holding a single S3 page get an entity
+   * tag, as tagging a longer listing would mean walking it twice.
+   */
   @GET
   @Path("list")
   @Produces(MediaType.APPLICATION_JSON)
-  public Response listFiles()
+  public Response listFiles(@QueryParam("prefix") String prefix, @QueryParam("delimiter") String delimiter,
+    @QueryParam("maxKeys") @Min(1) @Max(MAX_KEYS) Integer maxKeys, @QueryParam("continuationToken") String continuationToken,
+    @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding, @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch)
+  {
+    ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+      .bucket(bucketName)
+      .prefix(prefix)
+      .delimiter(delimiter)
+      .maxKeys(maxKeys)
+      .continuationToken(decodeToken(continuationToken))
+      .build();
+    if (maxKeys != null)
+    {
+      ListObjectsV2Response page = s3.listObjectsV2(listRequest);
+      String entityTag = S3EntityTags.listing().add(page).entityTag();
+      Response.ResponseBuilder response = S3EntityTags.matches(ifNoneMatch, entityTag) ? notModified(entityTag)
+        : listing(new S3FileListingOutput(objectMapper, page, Collections.emptyIterator()), estimatedSize(page), acceptEncoding)
+            .header(HttpHeaders.ETAG, entityTag);
+      return response.header(NEXT_CONTINUATION_TOKEN, encodeToken(page.nextContinuationToken())).build();
+    }
+    Iterator<ListObjectsV2Response> pages = s3.listObjectsV2Paginator(listRequest).iterator();
+    ListObjectsV2Response firstPage = pages.next();
+    if (Boolean.TRUE.equals(firstPage.isTruncated()))
+      return listing(new S3FileListingOutput(objectMapper, firstPage, pages), S3Compression.UNKNOWN_LENGTH, acceptEncoding).build();
+    String entityTag = S3EntityTags.listing().add(firstPage).entityTag();
+    if (S3EntityTags.matches(ifNoneMatch, entityTag))
+      return notModified(entityTag).build();
+    return listing(new S3FileListingOutput(objectMapper, firstPage, pages), estimatedSize(firstPage), acceptEncoding)
+      .header(HttpHeaders.ETAG, entityTag).build();
+  }
+
+  /**
+   * Queries the in-process key index, by prefix or by range, with no call to S3 once the
+   * index is loaded.
+   */
+  @GET
+  @Path("index")
+  @Produces(MediaType.APPLICATION_JSON)
+  public List<S3KeyIndex.Entry> queryIndex(@QueryParam("prefix") String prefix, @QueryParam("from") String from,
+    @QueryParam("to") String to, @QueryParam("limit") @DefaultValue("1000") @Min(1) @Max(MAX_KEYS) int limit)
+  {
+    S3KeyIndex index = loadedIndex();
+    if (prefix != null && (from != null || to != null))
+      throw new BadRequestException("Either prefix or from and to are expected");
+    return prefix != null ? index.prefix(prefix, limit) : index.range(from, to, limit);
+  }
+
+  @GET
+  @Path("index/largest")
+  @Produces(MediaType.APPLICATION_JSON)
+  public List<S3KeyIndex.Entry> largestFiles(@QueryParam("limit") @DefaultValue("10") @Min(1) @Max(S3KeyIndex.MAX_LARGEST) int limit)
+  {
+    return loadedIndex().largest(limit);
+  }
+
+  /**
+   * The key index, once loaded, the queries being answered by a 503 until then.
+   */
+  private S3KeyIndex loadedIndex()
+  {
+    S3KeyIndex index = keyIndex.orElseThrow(NotFoundException::new);
+    if (!index.isLoaded())
+    {
+      index.load();
+      throw new ServiceUnavailableException(INDEX_RETRY_AFTER);
+    }
+    return index;
+  }
+
+  private static Response.ResponseBuilder notModified(String entityTag)
+  {
+    return Response.status(Response.Status.NOT_MODIFIED).header(HttpHeaders.ETAG, entityTag);
+  }
+
+  private Response.ResponseBuilder listing(StreamingOutput listing, long estimatedSize, String acceptEncoding)
+  {
+    ContentEncoding encoding = compression.negotiate(acceptEncoding, MediaType.APPLICATION_JSON, estimatedSize);
+    if (encoding == ContentEncoding.IDENTITY)
+      return Response.ok(listing).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    return Response.ok(new EncodingStreamingOutput(listing, encoding))
+      .header(HttpHeaders.CONTENT_ENCODING, encoding.token())
+      .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+  }
+
+  private static long estimatedSize(ListObjectsV2Response page)
+  {
+    return (long) (page.contents().size() + page.commonPrefixes().size()) * ESTIMATED_LISTING_ENTRY_SIZE;
+  }
+
+  static String encodeToken(String token)
+  {
+    return token == null ? null : Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static String decodeToken(String token)
   {
-    ListObjectsRequest listRequest = ListObjectsRequest.builder().bucket(bucketName).build();
-    return Response.ok(s3.listObjects(listRequest).contents().stream()
-      .map(S3File::from)
-      .sorted(Comparator.comparing(S3File::getObjectKey))
-      .collect(Collectors.toList())).build();
+    try
+    {
+      return token == null || token.isEmpty() ? null : new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+    }
+    catch (IllegalArgumentException ex)
+    {
+      throw new BadRequestException("Invalid continuation token");
+    }
   }
 }
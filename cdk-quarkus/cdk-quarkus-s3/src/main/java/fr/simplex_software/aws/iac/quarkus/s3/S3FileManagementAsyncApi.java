@@ -0,0 +1,158 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import io.quarkus.arc.properties.*;
+import io.smallrye.common.annotation.*;
+import io.smallrye.mutiny.*;
+import io.smallrye.mutiny.infrastructure.*;
+import io.smallrye.mutiny.unchecked.*;
+import jakarta.inject.*;
+import jakarta.validation.*;
+import jakarta.validation.constraints.*;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.*;
+import mutiny.zero.flow.adapters.*;
+import org.eclipse.microprofile.config.inject.*;
+import org.jboss.resteasy.reactive.*;
+import org.jboss.resteasy.reactive.multipart.*;
+import software.amazon.awssdk.core.async.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.nio.*;
+import java.util.*;
+
+/**
+ * The non-blocking flavour of {@link S3FileManagementApi}, backed by the Netty based
+ * {@link S3AsyncClient}. It replaces the blocking endpoints when the application is
+ * built with {@code s3.file-management.mode=async}.
+ * <p>
+ * This is a frozen baseline, kept to compare the two I/O models on the same endpoints:
+ * upload, batch upload, download, archive and list. The features added since, i.e. the
+ * disk cache, compression, conditional requests, transfer offload, streaming upload, key
+ * index, delete, copy and move, are only served by the blocking API.
+ */
+@Path("/s3")
+@IfBuildProperty(name = "s3.file-management.mode", stringValue = "async")
+public class S3FileManagementAsyncApi
+{
+  @Inject
+  S3AsyncClient s3;
+  @ConfigProperty(name = "bucket.name")
+  String bucketName;
+  @Inject
+  S3BatchUploader batchUploader;
+  @Inject
+  S3Client blockingS3;
+  @Inject
+  S3FileManagementConfig config;
+
+  @POST
+  @Path("upload")
+  @Consumes(MediaType.MULTIPART_FORM_DATA)
+  public Uni<Response> uploadFile(@Valid FileMetadata fileMetadata)
+  {
+    if (!config.upload().dedup())
+      return putObject(fileMetadata, Map.of());
+    HeadObjectRequest head = HeadObjectRequest.builder().bucket(bucketName).key(fileMetadata.filename).build();
+    return Uni.createFrom().item(Unchecked.supplier(() -> S3UploadDeduplicator.digest(fileMetadata.file)))
+      .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+      .chain(digest -> Uni.createFrom().completionStage(() -> s3.headObject(head))
+        .map(headObjectResponse -> S3UploadDeduplicator.matches(headObjectResponse, digest, fileMetadata.mimetype))
+        .onFailure(NoSuchKeyException.class).recoverWithItem(false)
+        .chain(stored -> stored
+          ? Uni.createFrom().item(Response.ok().header(S3FileManagementApi.UPLOAD_OUTCOME, S3FileManagementApi.DEDUPLICATED).build())
+          : putObject(fileMetadata, S3UploadDeduplicator.metadata(digest))));
+  }
+
+  private Uni<Response> putObject(FileMetadata fileMetadata, Map<String, String> metadata)
+  {
+    PutObjectRequest request = PutObjectRequest.builder()
+      .bucket(bucketName)
+      .key(fileMetadata.filename)
+      .contentType(fileMetadata.mimetype)
+      .metadata(metadata)
+      .build();
+    return Uni.createFrom().completionStage(() -> s3.putObject(request, AsyncRequestBody.fromFile(fileMetadata.file)))
+      .map(putObjectResponse -> Response.ok().status(Response.Status.CREATED)
+        .header(S3FileManagementApi.UPLOAD_OUTCOME, S3FileManagementApi.WRITTEN).build());
+  }
+
+  @POST
+  @Path("upload/batch")
+  @Consumes(MediaType.MULTIPART_FORM_DATA)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Uni<Response> uploadFiles(@RestForm(S3FileManagementApi.FILE_PART) List<FileUpload> files)
+  {
+    return Uni.createFrom().item(() -> batchUploader.upload(bucketName, S3FileManagementApi.toFileMetadata(files)))
+      .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+      .map(results -> Response.status(S3FileManagementApi.batchStatus(results)).entity(results).build());
+  }
+
+  @GET
+  @Path("download/{objectKey}")
+  @Produces(MediaType.APPLICATION_OCTET_STREAM)
+  public Multi<byte[]> downloadFile(@PathParam("objectKey") String objectKey)
+  {
+    GetObjectRequest request = GetObjectRequest.builder()
+      .bucket(bucketName)
+      .key(objectKey)
+      .build();
+    Uni<ResponsePublisher<GetObjectResponse>> object =
+      Uni.createFrom().completionStage(() -> s3.getObject(request, AsyncResponseTransformer.toPublisher()));
+    return RestMulti.fromUniResponse(object,
+      publisher -> Multi.createFrom().publisher(AdaptersToFlow.publisher(publisher)).map(S3FileManagementAsyncApi::toBytes),
+      publisher -> headers(objectKey, publisher.response()));
+  }
+
+  private static Map<String, List<String>> headers(String objectKey, GetObjectResponse metadata)
+  {
+    Map<String, List<String>> headers = new HashMap<>();
+    headers.put(HttpHeaders.CONTENT_DISPOSITION, List.of(ContentDisposition.attachment(objectKey)));
+    headers.put(HttpHeaders.CONTENT_TYPE, List.of(Objects.requireNonNullElse(metadata.contentType(), MediaType.APPLICATION_OCTET_STREAM)));
+    if (metadata.contentLength() != null)
+      headers.put(HttpHeaders.CONTENT_LENGTH, List.of(String.valueOf(metadata.contentLength())));
+    return headers;
+  }
+
+  @GET
+  @Path("archive")
+  @Produces(S3FileManagementApi.APPLICATION_ZIP)
+  @Blocking
+  public Response downloadArchive(@QueryParam("key") List<String> objectKeys, @QueryParam("prefix") String prefix)
+  {
+    return S3FileManagementApi.archive(blockingS3, bucketName, objectKeys, prefix, config);
+  }
+
+  @GET
+  @Path("list")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Multi<S3File> listFiles(@QueryParam("prefix") String prefix, @QueryParam("delimiter") String delimiter,
+    @QueryParam("maxKeys") @Min(1) @Max(S3FileManagementApi.MAX_KEYS) Integer maxKeys, @QueryParam("continuationToken") String continuationToken)
+  {
+    ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+      .bucket(bucketName)
+      .prefix(prefix)
+      .delimiter(delimiter)
+      .maxKeys(maxKeys)
+      .continuationToken(S3FileManagementApi.decodeToken(continuationToken))
+      .build();
+    if (maxKeys != null)
+    {
+      Uni<ListObjectsV2Response> page = Uni.createFrom().completionStage(() -> s3.listObjectsV2(listRequest));
+      return RestMulti.fromUniResponse(page, p -> Multi.createFrom().iterable(S3FileListingOutput.files(p)),
+        p -> p.nextContinuationToken() == null ? Map.of() :
+          Map.of(S3FileManagementApi.NEXT_CONTINUATION_TOKEN, List.of(S3FileManagementApi.encodeToken(p.nextContinuationToken()))));
+    }
+    return Multi.createFrom().publisher(AdaptersToFlow.publisher(s3.listObjectsV2Paginator(listRequest)))
+      .onItem().transformToIterable(S3FileListingOutput::files);
+  }
+
+  private static byte[] toBytes(ByteBuffer buffer)
+  {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+}
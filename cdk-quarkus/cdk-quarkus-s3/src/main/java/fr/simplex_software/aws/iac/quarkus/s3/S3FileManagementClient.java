@@ -4,25 +4,141 @@ import jakarta.validation.*;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.*;
+import org.eclipse.microprofile.config.*;
 import org.eclipse.microprofile.rest.client.inject.*;
+import org.jboss.resteasy.reactive.client.api.*;
+
+import java.io.*;
+import java.util.*;
 
 @Path("s3")
 @RegisterRestClient(configKey = "base_uri")
 public interface S3FileManagementClient
 {
+  String UPLOAD_CONCURRENCY = "s3.file-management.client.upload-concurrency";
+
   @POST
   @Path("upload")
   @Consumes(MediaType.MULTIPART_FORM_DATA)
-  public Response uploadFile(@Valid FileMetadata fileMetadata) throws Exception;
+  public Response uploadFileThroughApi(@Valid FileMetadata fileMetadata) throws Exception;
+
+  /**
+   * Uploads a file directly to S3 when the API presigns the upload, through the API when
+   * it refuses to, with a 404, its offload being disabled. The metadata are validated as
+   * the API upload does, a missing file included.
+   */
+  public default Response uploadFile(FileMetadata fileMetadata) throws Exception
+  {
+    if (fileMetadata.file == null)
+      return uploadFileThroughApi(fileMetadata);
+    S3PresignedUpload upload;
+    try
+    {
+      upload = presignUpload(fileMetadata);
+    }
+    catch (WebApplicationException ex)
+    {
+      if (ex.getResponse().getStatus() != Response.Status.NOT_FOUND.getStatusCode())
+        throw ex;
+      return uploadFileThroughApi(fileMetadata);
+    }
+    return uploadFileDirect(fileMetadata, upload);
+  }
+  @POST
+  @Path("upload/batch")
+  @Consumes(MediaType.MULTIPART_FORM_DATA)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response uploadFiles(ClientMultipartForm files);
+  @POST
+  @Path("upload/presigned")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public S3PresignedUpload presignUpload(@Valid S3PresignedUploadRequest request);
+  @POST
+  @Path("upload/presigned/complete")
+  @Consumes(MediaType.APPLICATION_JSON)
+  public Response completeUpload(S3PresignedUpload upload);
+  @DELETE
+  @Path("upload/presigned/{uploadId}")
+  public Response abortUpload(@PathParam("uploadId") String uploadId, @QueryParam("key") String objectKey);
+
+  /**
+   * Uploads a file directly to S3, through the presigned PUT requests issued by the API,
+   * aborting the multipart upload if a part fails.
+   */
+  public default Response uploadFileDirect(FileMetadata fileMetadata) throws IOException
+  {
+    return uploadFileDirect(fileMetadata, presignUpload(fileMetadata));
+  }
+
+  public default Response uploadFileDirect(FileMetadata fileMetadata, S3PresignedUpload upload) throws IOException
+  {
+    try
+    {
+      S3PresignedTransfers.send(upload, fileMetadata.file, ConfigProvider.getConfig()
+        .getOptionalValue(UPLOAD_CONCURRENCY, Integer.class).orElse(S3PresignedTransfers.DEFAULT_CONCURRENCY));
+    }
+    catch (IOException | RuntimeException ex)
+    {
+      if (upload.getUploadId() != null)
+        abortUpload(upload.getUploadId(), upload.getObjectKey());
+      throw ex;
+    }
+    return completeUpload(upload);
+  }
+
+  public default S3PresignedUpload presignUpload(FileMetadata fileMetadata)
+  {
+    return presignUpload(new S3PresignedUploadRequest()
+      .setFilename(fileMetadata.filename).setMimetype(fileMetadata.mimetype).setSize(fileMetadata.file.length()));
+  }
+
+  /**
+   * Downloads a file, the redirect to S3 of the offloaded downloads being followed when
+   * {@code quarkus.rest-client.base_uri.follow-redirects} is set.
+   */
   @GET
   @Path("download/{objectKey}")
   @Produces(MediaType.APPLICATION_OCTET_STREAM)
   public Response downloadFile(@Valid @PathParam("objectKey")String objectKey);
   @GET
+  @Path("archive")
+  @Produces("application/zip")
+  public Response downloadArchive(@QueryParam("key") List<String> objectKeys, @QueryParam("prefix") String prefix);
+  @POST
+  @Path("delete")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response deleteFiles(S3DeleteRequest request);
+  @POST
+  @Path("copy")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response copyFiles(List<S3CopyRequest> requests);
+  @POST
+  @Path("move")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response moveFiles(List<S3CopyRequest> requests);
+  @GET
   @Path("list")
   @Produces(MediaType.APPLICATION_JSON)
   public Response listFiles();
   @GET
+  @Path("list")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response listFiles(@QueryParam("prefix") String prefix, @QueryParam("delimiter") String delimiter,
+    @QueryParam("maxKeys") Integer maxKeys, @QueryParam("continuationToken") String continuationToken);
+  @GET
+  @Path("index")
+  @Produces(MediaType.APPLICATION_JSON)
+  public List<S3KeyIndex.Entry> queryIndex(@QueryParam("prefix") String prefix, @QueryParam("from") String from,
+    @QueryParam("to") String to, @QueryParam("limit") Integer limit);
+  @GET
+  @Path("index/largest")
+  @Produces(MediaType.APPLICATION_JSON)
+  public List<S3KeyIndex.Entry> largestFiles(@QueryParam("limit") Integer limit);
+  @GET
   @Path("time")
   @Produces(MediaType.TEXT_PLAIN)
   public String currentTime();
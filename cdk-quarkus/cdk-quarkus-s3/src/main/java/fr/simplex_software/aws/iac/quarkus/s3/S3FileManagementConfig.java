@@ -0,0 +1,135 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import io.smallrye.config.*;
+
+import java.time.*;
+import java.util.*;
+
+@ConfigMapping(prefix = "s3.file-management")
+public interface S3FileManagementConfig
+{
+  @WithDefault("blocking")
+  String mode();
+  @WithDefault("10485760")
+  long maxBodySize();
+  Download download();
+  interface Download
+  {
+    @WithDefault("65536")
+    int chunkSize();
+  }
+  Upload upload();
+  interface Upload
+  {
+    @WithDefault("67108864")
+    long multipartThreshold();
+    @WithDefault("16777216")
+    long partSize();
+    @WithDefault("8")
+    int concurrency();
+    @WithDefault("false")
+    boolean dedup();
+  }
+  Batch batch();
+  interface Batch
+  {
+    @WithDefault("8")
+    int parallelism();
+  }
+  Delete delete();
+  interface Delete
+  {
+    @WithDefault("1000")
+    int batchSize();
+    @WithDefault("8")
+    int concurrency();
+  }
+  Copy copy();
+  interface Copy
+  {
+    @WithDefault("8")
+    int parallelism();
+  }
+  Compression compression();
+  interface Compression
+  {
+    @WithDefault("true")
+    boolean enabled();
+    @WithDefault("1024")
+    long threshold();
+    @WithDefault("5242880")
+    long maxBufferedSize();
+    @WithDefault("text/*,application/json,application/xml,application/javascript,application/x-yaml,image/svg+xml")
+    List<String> mimeTypes();
+    @WithDefault("false")
+    boolean store();
+    @WithDefault("gzip")
+    String storeEncoding();
+  }
+  Cache cache();
+  interface Cache
+  {
+    @WithDefault("false")
+    boolean enabled();
+    @WithDefault("${java.io.tmpdir}/s3-object-cache")
+    String directory();
+    @WithDefault("268435456")
+    long maxBytes();
+    @WithDefault("16777216")
+    long maxObjectSize();
+    @WithDefault("PT10S")
+    Duration validity();
+  }
+  Offload offload();
+  interface Offload
+  {
+    @WithDefault("false")
+    boolean enabled();
+    @WithDefault("5242880")
+    long downloadThreshold();
+    @WithDefault("PT5M")
+    Duration expiry();
+  }
+  Index index();
+  interface Index
+  {
+    @WithDefault("false")
+    boolean enabled();
+    @WithDefault("PT0S")
+    Duration reconciliation();
+  }
+  Archive archive();
+  interface Archive
+  {
+    @WithDefault("4")
+    int prefetch();
+  }
+  Admission admission();
+  interface Admission
+  {
+    @WithDefault("true")
+    boolean enabled();
+    @WithDefault("32")
+    int initialLimit();
+    @WithDefault("4")
+    int minLimit();
+    @WithDefault("256")
+    int maxLimit();
+    @WithDefault("0.5")
+    double backoffRatio();
+    @WithDefault("PT0.1S")
+    Duration backoffBase();
+    @WithDefault("PT5S")
+    Duration backoffMax();
+    @WithDefault("PT5S")
+    Duration queueTimeout();
+    @WithDefault("100")
+    int retryBudget();
+    @WithDefault("10")
+    double retryRate();
+    @WithDefault("1")
+    int prefixDepth();
+    @WithDefault("64")
+    int maxLimiters();
+  }
+}
@@ -0,0 +1,63 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import com.fasterxml.jackson.databind.*;
+import io.quarkus.runtime.*;
+import jakarta.enterprise.context.*;
+import jakarta.enterprise.event.*;
+import jakarta.inject.*;
+import jakarta.validation.*;
+import jakarta.ws.rs.core.*;
+import org.crac.Context;
+import org.crac.*;
+import org.eclipse.microprofile.config.inject.*;
+import org.jboss.logging.*;
+import software.amazon.awssdk.core.exception.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+/**
+ * Primes the hot paths before Lambda SnapStart takes its snapshot, such that a restored
+ * function doesn't pay for initializing the S3 client, the JSON serialization and the
+ * validation on its first request. It's a no-op outside SnapStart, as no checkpoint is
+ * ever taken.
+ */
+@ApplicationScoped
+public class S3FileManagementPriming implements Resource
+{
+  private static final Logger LOG = Logger.getLogger(S3FileManagementPriming.class);
+
+  @Inject
+  S3Client s3;
+  @Inject
+  ObjectMapper objectMapper;
+  @Inject
+  Validator validator;
+  @ConfigProperty(name = "bucket.name")
+  String bucketName;
+
+  void onStart(@Observes StartupEvent startupEvent)
+  {
+    Core.getGlobalContext().register(this);
+  }
+
+  @Override
+  public void beforeCheckpoint(Context<? extends Resource> context) throws Exception
+  {
+    objectMapper.writeValueAsString(S3File.from(S3Object.builder().key("priming").size(0L).build()));
+    objectMapper.writeValueAsString(new S3UploadResult().setObjectKey("priming").setStatus(Response.Status.CREATED.getStatusCode()));
+    validator.validate(new FileMetadata(null, "priming", MediaType.TEXT_PLAIN));
+    try
+    {
+      s3.listObjectsV2(ListObjectsV2Request.builder().bucket(bucketName).maxKeys(1).build());
+    }
+    catch (SdkException ex)
+    {
+      LOG.warnf(ex, "Unable to prime the S3 client on the bucket %s", bucketName);
+    }
+  }
+
+  @Override
+  public void afterRestore(Context<? extends Resource> context)
+  {
+  }
+}
@@ -0,0 +1,711 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import org.jboss.logging.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.time.*;
+import java.time.temporal.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+
+/**
+ * An in-process index of the bucket's keys, with their size, ETag and last modification
+ * date, answering prefix, range and largest objects queries without listing the bucket.
+ * <p>
+ * The keys live in an immutable segment sorted in S3 order, front coded in blocks of 16
+ * whose first key is stored in full, next to primitive arrays of sizes, packed MD5 ETags
+ * and dates, that is a few tens of bytes per key instead of the few hundreds of a map of
+ * objects. The segment is loaded by a single listing of the bucket, started by
+ * {@link #load()}, the queries failing until it's done, while the changes made since are
+ * kept in a sorted map, merged into a new segment once they outgrow an eighth of it. The
+ * index may be reloaded periodically, to catch up with the changes made by other
+ * writers. Loading, merging and reloading all run on a background thread, never on the
+ * threads querying or updating the index.
+ */
+public class S3KeyIndex implements Closeable
+{
+  public static final int MAX_LARGEST = 1000;
+  private static final Logger LOG = Logger.getLogger(S3KeyIndex.class);
+  private static final int MIN_COMPACTION = 4096;
+  private static final int BLOCK_SIZE = 16;
+  private static final int ETAG_SIZE = 16;
+  private static final short OTHER_ETAG = -1;
+
+  private final S3Client s3;
+  private final String bucketName;
+  private final ScheduledExecutorService worker;
+  private final ConcurrentSkipListMap<String, Change> changes = new ConcurrentSkipListMap<>(S3KeyIndex::compareKeys);
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicLong sequence = new AtomicLong();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final ReentrantLock maintenance = new ReentrantLock();
+  private volatile Segment segment = new Segment.Builder(0).build();
+  private final AtomicReference<CompletableFuture<Void>> loading = new AtomicReference<>();
+  private final AtomicReference<CompletableFuture<Void>> compaction = new AtomicReference<>();
+  private volatile boolean loaded;
+
+  public record Entry(String key, long size, String eTag, Instant lastModified)
+  {
+  }
+
+  private record Change(Entry entry, long sequence)
+  {
+  }
+
+  /**
+   * @param reconciliationInterval the delay between two reloads of the index, none when zero
+   */
+  public S3KeyIndex(S3Client s3, String bucketName, Duration reconciliationInterval)
+  {
+    this.s3 = s3;
+    this.bucketName = bucketName;
+    worker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("s3-key-index").factory());
+    if (!reconciliationInterval.isZero())
+      worker.scheduleWithFixedDelay(this::reconcile, reconciliationInterval.toMillis(), reconciliationInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Starts loading the index in the background, unless it's loaded or loading already.
+   * A failed load is started again by the next call.
+   */
+  public CompletableFuture<Void> load()
+  {
+    CompletableFuture<Void> load = new CompletableFuture<>();
+    CompletableFuture<Void> current = loading.compareAndExchange(null, load);
+    if (current != null)
+      return current;
+    CompletableFuture.runAsync(() -> {
+      if (!loaded)
+        reload();
+    }, worker).whenComplete((result, ex) -> {
+      if (ex == null)
+        load.complete(null);
+      else
+      {
+        LOG.warnf(ex, "Failed to load the key index of %s", bucketName);
+        loading.set(null);
+        load.completeExceptionally(ex);
+      }
+    });
+    return load;
+  }
+
+  public boolean isLoaded()
+  {
+    return loaded;
+  }
+
+  /**
+   * Merges the pending changes into a new segment in the background. A merge that hasn't
+   * started yet is shared, as it will take the changes made until then.
+   */
+  public CompletableFuture<Void> compact()
+  {
+    CompletableFuture<Void> merge = new CompletableFuture<>();
+    CompletableFuture<Void> current = compaction.compareAndExchange(null, merge);
+    if (current != null)
+      return current;
+    CompletableFuture.runAsync(() -> {
+      compaction.set(null);
+      mergeChanges();
+    }, worker).whenComplete((result, ex) -> {
+      if (ex == null)
+        merge.complete(null);
+      else
+      {
+        LOG.warnf(ex, "Failed to compact the key index of %s", bucketName);
+        merge.completeExceptionally(ex);
+      }
+    });
+    return merge;
+  }
+
+  public void put(String key, long size, String eTag, Instant lastModified)
+  {
+    change(key, new Entry(key, size, eTag, lastModified == null ? null : lastModified.truncatedTo(ChronoUnit.SECONDS)));
+  }
+
+  public void remove(String key)
+  {
+    change(key, null);
+  }
+
+  /**
+   * Updates a key from the metadata of its object, for the writes whose size or ETag
+   * isn't known to the caller.
+   */
+  public void refresh(String key)
+  {
+    try
+    {
+      HeadObjectResponse head = s3.headObject(HeadObjectRequest.builder().bucket(bucketName).key(key).build());
+      put(key, head.contentLength(), head.eTag(), head.lastModified());
+    }
+    catch (NoSuchKeyException ex)
+    {
+      remove(key);
+    }
+  }
+
+  public Optional<Entry> get(String key)
+  {
+    checkLoaded();
+    lock.readLock().lock();
+    try
+    {
+      Change change = changes.get(key);
+      return change != null ? Optional.ofNullable(change.entry()) : segment.get(key);
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  public List<Entry> prefix(String prefix, int limit)
+  {
+    return query(prefix, key -> key.startsWith(prefix), limit);
+  }
+
+  /**
+   * The keys from {@code from} included to {@code to} excluded, in S3 order, either bound
+   * being optional.
+   */
+  public List<Entry> range(String from, String to, int limit)
+  {
+    return query(from == null ? "" : from, key -> to == null || compareKeys(key, to) < 0, limit);
+  }
+
+  /**
+   * The largest objects, by decreasing size. The segment keeps the positions of its
+   * {@value #MAX_LARGEST} largest keys, such that the whole index is only scanned when too
+   * many of them have been changed since.
+   */
+  public List<Entry> largest(int limit)
+  {
+    checkLoaded();
+    lock.readLock().lock();
+    try
+    {
+      PriorityQueue<Entry> largest = new PriorityQueue<>(Comparator.comparingLong(Entry::size));
+      for (Change change : changes.values())
+        if (change.entry() != null)
+          offer(largest, change.entry(), limit);
+      Segment current = segment;
+      int unchanged = 0;
+      for (int index : current.largest)
+      {
+        String key = current.key(index);
+        if (changes.containsKey(key))
+          continue;
+        offer(largest, current.entry(index, key), limit);
+        if (++unchanged == limit)
+          break;
+      }
+      if (unchanged < limit && current.largest.length < current.size)
+      {
+        largest.clear();
+        merge(current, changes, "").forEachRemaining(entry -> offer(largest, entry, limit));
+      }
+      List<Entry> entries = new ArrayList<>(largest);
+      entries.sort(Comparator.comparingLong(Entry::size).reversed());
+      return entries;
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Replaces the index content by a listing of the bucket. The changes made before the
+   * listing has started are reflected by it and dropped, the later ones are kept.
+   */
+  public void reload()
+  {
+    maintenance.lock();
+    try
+    {
+      long start = sequence.get();
+      Segment.Builder builder = new Segment.Builder(segment.size);
+      for (S3Object object : s3.listObjectsV2Paginator(ListObjectsV2Request.builder().bucket(bucketName).build()).contents())
+        builder.add(object.key(), object.size(), object.eTag(), object.lastModified());
+      swap(builder.build(), change -> change.sequence() <= start, changes);
+      loaded = true;
+    }
+    finally
+    {
+      maintenance.unlock();
+    }
+  }
+
+  public int pending()
+  {
+    return pending.get();
+  }
+
+  /**
+   * The estimated heap size of the segment, in bytes.
+   */
+  public long footprint()
+  {
+    return segment.footprint();
+  }
+
+  @Override
+  public void close()
+  {
+    worker.shutdownNow();
+  }
+
+  /**
+   * Compares keys in S3 order, that is the order of their UTF-8 bytes, which is the order
+   * of their code points and differs from the one of {@link String#compareTo} for the
+   * characters beyond the basic multilingual plane.
+   */
+  public static int compareKeys(String key1, String key2)
+  {
+    int length = Math.min(key1.length(), key2.length());
+    for (int i = 0; i < length; i++)
+      if (key1.charAt(i) != key2.charAt(i))
+        return Integer.compare(key1.codePointAt(i), key2.codePointAt(i));
+    return key1.length() - key2.length();
+  }
+
+  private void change(String key, Entry entry)
+  {
+    if (changes.put(key, new Change(entry, sequence.incrementAndGet())) == null
+      && pending.incrementAndGet() > Math.max(MIN_COMPACTION, segment.size / 8))
+      compact();
+  }
+
+  private void mergeChanges()
+  {
+    if (!maintenance.tryLock())
+      return;
+    try
+    {
+      NavigableMap<String, Change> merged = new TreeMap<>(changes);
+      Segment.Builder builder = new Segment.Builder(segment.size + merged.size());
+      merge(segment, merged, "").forEachRemaining(entry -> builder.add(entry.key(), entry.size(), entry.eTag(), entry.lastModified()));
+      swap(builder.build(), change -> true, merged);
+    }
+    finally
+    {
+      maintenance.unlock();
+    }
+  }
+
+  /**
+   * Installs a new segment and drops the changes it reflects, unless they have been
+   * superseded meanwhile.
+   */
+  private void swap(Segment replacement, Predicate<Change> reflected, Map<String, Change> candidates)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      segment = replacement;
+      for (Map.Entry<String, Change> change : candidates.entrySet())
+        if (reflected.test(change.getValue()) && changes.remove(change.getKey(), change.getValue()))
+          pending.decrementAndGet();
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void reconcile()
+  {
+    try
+    {
+      reload();
+    }
+    catch (RuntimeException ex)
+    {
+      LOG.warnf(ex, "Failed to reload the key index of %s", bucketName);
+    }
+  }
+
+  private void checkLoaded()
+  {
+    if (!loaded)
+    {
+      load();
+      throw new IllegalStateException("The key index of " + bucketName + " is still loading");
+    }
+  }
+
+  private List<Entry> query(String from, Predicate<String> within, int limit)
+  {
+    checkLoaded();
+    lock.readLock().lock();
+    try
+    {
+      List<Entry> entries = new ArrayList<>();
+      Iterator<Entry> merged = merge(segment, changes, from);
+      while (entries.size() < limit && merged.hasNext())
+      {
+        Entry entry = merged.next();
+        if (!within.test(entry.key()))
+          break;
+        entries.add(entry);
+      }
+      return entries;
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static void offer(PriorityQueue<Entry> largest, Entry entry, int limit)
+  {
+    if (largest.size() < limit)
+      largest.add(entry);
+    else if (entry.size() > largest.peek().size())
+    {
+      largest.poll();
+      largest.add(entry);
+    }
+  }
+
+  /**
+   * The entries of the segment overridden by the changes, from the given key on.
+   */
+  private static Iterator<Entry> merge(Segment segment, NavigableMap<String, Change> changes, String from)
+  {
+    Segment.Cursor cursor = segment.seek(from.getBytes(StandardCharsets.UTF_8));
+    Iterator<Map.Entry<String, Change>> pendingChanges = changes.tailMap(from, true).entrySet().iterator();
+    return new Iterator<>()
+    {
+      private String key = cursor.key();
+      private Map.Entry<String, Change> change = pendingChanges.hasNext() ? pendingChanges.next() : null;
+      private Entry next = advance();
+
+      @Override
+      public boolean hasNext()
+      {
+        return next != null;
+      }
+
+      @Override
+      public Entry next()
+      {
+        if (next == null)
+          throw new NoSuchElementException();
+        Entry entry = next;
+        next = advance();
+        return entry;
+      }
+
+      private Entry advance()
+      {
+        while (key != null || change != null)
+        {
+          int order = key == null ? 1 : change == null ? -1 : compareKeys(key, change.getKey());
+          if (order <= 0)
+          {
+            Entry entry = order < 0 ? segment.entry(cursor.index, key) : null;
+            cursor.next();
+            key = cursor.key();
+            if (entry != null)
+              return entry;
+          }
+          Entry changed = change.getValue().entry();
+          change = pendingChanges.hasNext() ? pendingChanges.next() : null;
+          if (changed != null)
+            return changed;
+        }
+        return null;
+      }
+    };
+  }
+
+  private static final class Segment
+  {
+    private final int size;
+    private final byte[] keys;
+    private final int[] blocks;
+    private final long[] sizes;
+    private final byte[] eTags;
+    private final short[] parts;
+    private final int[] lastModified;
+    private final Map<Integer, String> otherETags;
+    private final int[] largest;
+
+    private Segment(Builder builder)
+    {
+      size = builder.size;
+      keys = Arrays.copyOf(builder.keys, builder.length);
+      blocks = Arrays.copyOf(builder.blocks, (size + BLOCK_SIZE - 1) / BLOCK_SIZE);
+      sizes = Arrays.copyOf(builder.sizes, size);
+      eTags = Arrays.copyOf(builder.eTags, size * ETAG_SIZE);
+      parts = Arrays.copyOf(builder.parts, size);
+      lastModified = Arrays.copyOf(builder.lastModified, size);
+      otherETags = Map.copyOf(builder.otherETags);
+      largest = largest();
+    }
+
+    private Optional<Entry> get(String key)
+    {
+      Cursor cursor = seek(key.getBytes(StandardCharsets.UTF_8));
+      String found = cursor.key();
+      return key.equals(found) ? Optional.of(entry(cursor.index, found)) : Optional.empty();
+    }
+
+    private String key(int index)
+    {
+      Cursor cursor = new Cursor(index / BLOCK_SIZE);
+      while (cursor.index < index)
+        cursor.next();
+      return cursor.key();
+    }
+
+    private Entry entry(int index, String key)
+    {
+      return new Entry(key, sizes[index], eTag(index), lastModified[index] == 0 ? null : Instant.ofEpochSecond(Integer.toUnsignedLong(lastModified[index])));
+    }
+
+    /**
+     * A cursor on the first key which isn't lower than the given one, found by a binary
+     * search on the first keys of the blocks and a scan of the block.
+     */
+    private Cursor seek(byte[] key)
+    {
+      int low = 0;
+      int high = blocks.length - 1;
+      while (low < high)
+      {
+        int middle = (low + high + 1) >>> 1;
+        int start = blocks[middle];
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+          b = keys[start++];
+          length |= (b & 0x7F) << shift;
+          shift += 7;
+        }
+        while (b < 0);
+        if (Arrays.compareUnsigned(keys, start, start + length, key, 0, key.length) <= 0)
+          low = middle;
+        else
+          high = middle - 1;
+      }
+      Cursor cursor = new Cursor(low);
+      while (cursor.index < size && cursor.compareTo(key) < 0)
+        cursor.next();
+      return cursor;
+    }
+
+    private String eTag(int index)
+    {
+      if (parts[index] == OTHER_ETAG)
+        return otherETags.get(index);
+      String md5 = HexFormat.of().formatHex(eTags, index * ETAG_SIZE, (index + 1) * ETAG_SIZE);
+      return "\"" + md5 + (parts[index] == 0 ? "" : "-" + parts[index]) + "\"";
+    }
+
+    private int[] largest()
+    {
+      PriorityQueue<Integer> largest = new PriorityQueue<>(Comparator.comparingLong(index -> sizes[index]));
+      for (int index = 0; index < size; index++)
+        if (largest.size() < MAX_LARGEST)
+          largest.add(index);
+        else if (sizes[index] > sizes[largest.peek()])
+        {
+          largest.poll();
+          largest.add(index);
+        }
+      int[] indexes = new int[largest.size()];
+      for (int i = indexes.length - 1; i >= 0; i--)
+        indexes[i] = largest.poll();
+      return indexes;
+    }
+
+    private long footprint()
+    {
+      return keys.length + 4L * blocks.length + 8L * sizes.length + eTags.length + 2L * parts.length + 4L * lastModified.length
+        + 4L * largest.length + otherETags.values().stream().mapToLong(eTag -> 64 + 2L * eTag.length()).sum();
+    }
+
+    private final class Cursor
+    {
+      private int index;
+      private int position;
+      private byte[] key = new byte[64];
+      private int length;
+
+      private Cursor(int block)
+      {
+        index = block * BLOCK_SIZE;
+        position = size == 0 ? 0 : blocks[block];
+        decode();
+      }
+
+      private void next()
+      {
+        index++;
+        decode();
+      }
+
+      private String key()
+      {
+        return index < size ? new String(key, 0, length, StandardCharsets.UTF_8) : null;
+      }
+
+      private int compareTo(byte[] other)
+      {
+        return Arrays.compareUnsigned(key, 0, length, other, 0, other.length);
+      }
+
+      private void decode()
+      {
+        if (index >= size)
+          return;
+        int shared = index % BLOCK_SIZE == 0 ? 0 : readVarint();
+        int suffix = readVarint();
+        length = shared + suffix;
+        if (length > key.length)
+          key = Arrays.copyOf(key, Math.max(length, 2 * key.length));
+        System.arraycopy(keys, position, key, shared, suffix);
+        position += suffix;
+      }
+
+      private int readVarint()
+      {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+          b = keys[position++];
+          value |= (b & 0x7F) << shift;
+          shift += 7;
+        }
+        while (b < 0);
+        return value;
+      }
+    }
+
+    /**
+     * Appends the keys in S3 order, as they are listed.
+     */
+    private static final class Builder
+    {
+      private byte[] keys;
+      private int length;
+      private int[] blocks;
+      private long[] sizes;
+      private byte[] eTags;
+      private short[] parts;
+      private int[] lastModified;
+      private final Map<Integer, String> otherETags = new HashMap<>();
+      private byte[] previous = new byte[0];
+      private int size;
+
+      private Builder(int capacity)
+      {
+        capacity = Math.max(capacity, BLOCK_SIZE);
+        keys = new byte[capacity * 8];
+        blocks = new int[(capacity + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        sizes = new long[capacity];
+        eTags = new byte[capacity * ETAG_SIZE];
+        parts = new short[capacity];
+        lastModified = new int[capacity];
+      }
+
+      private void add(String key, long objectSize, String eTag, Instant modified)
+      {
+        if (size == sizes.length)
+          grow();
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        if (size % BLOCK_SIZE == 0)
+        {
+          blocks[size / BLOCK_SIZE] = length;
+          write(bytes, 0);
+        }
+        else
+        {
+          int shared = Arrays.mismatch(previous, bytes);
+          shared = shared < 0 ? bytes.length : shared;
+          writeVarint(shared);
+          write(bytes, shared);
+        }
+        previous = bytes;
+        sizes[size] = objectSize;
+        parts[size] = packETag(eTag, size);
+        lastModified[size] = modified == null ? 0 : (int) modified.getEpochSecond();
+        size++;
+      }
+
+      private Segment build()
+      {
+        return new Segment(this);
+      }
+
+      /**
+       * Packs the MD5 of a single or multipart ETag, {@code "<md5>"} or {@code "<md5>-<parts>"},
+       * returning its number of parts, any other ETag being kept as it is.
+       */
+      private short packETag(String eTag, int index)
+      {
+        if (eTag != null && eTag.length() >= 2 * ETAG_SIZE + 2 && eTag.startsWith("\"") && eTag.endsWith("\""))
+        {
+          String md5 = eTag.substring(1, 2 * ETAG_SIZE + 1);
+          String suffix = eTag.substring(2 * ETAG_SIZE + 1, eTag.length() - 1);
+          if (md5.chars().allMatch(c -> Character.isDigit(c) || (c >= 'a' && c <= 'f'))
+            && (suffix.isEmpty() || suffix.matches("-[1-9][0-9]{0,3}")))
+          {
+            System.arraycopy(HexFormat.of().parseHex(md5), 0, eTags, index * ETAG_SIZE, ETAG_SIZE);
+            return suffix.isEmpty() ? 0 : Short.parseShort(suffix.substring(1));
+          }
+        }
+        if (eTag != null)
+          otherETags.put(index, eTag);
+        return OTHER_ETAG;
+      }
+
+      private void write(byte[] bytes, int from)
+      {
+        writeVarint(bytes.length - from);
+        if (length + bytes.length - from > keys.length)
+          keys = Arrays.copyOf(keys, Math.max(2 * keys.length, length + bytes.length - from));
+        System.arraycopy(bytes, from, keys, length, bytes.length - from);
+        length += bytes.length - from;
+      }
+
+      private void writeVarint(int value)
+      {
+        if (length + 5 > keys.length)
+          keys = Arrays.copyOf(keys, 2 * keys.length);
+        while ((value & ~0x7F) != 0)
+        {
+          keys[length++] = (byte) ((value & 0x7F) | 0x80);
+          value >>>= 7;
+        }
+        keys[length++] = (byte) value;
+      }
+
+      private void grow()
+      {
+        int capacity = 2 * sizes.length;
+        blocks = Arrays.copyOf(blocks, (capacity + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        sizes = Arrays.copyOf(sizes, capacity);
+        eTags = Arrays.copyOf(eTags, capacity * ETAG_SIZE);
+        parts = Arrays.copyOf(parts, capacity);
+        lastModified = Arrays.copyOf(lastModified, capacity);
+      }
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import io.quarkus.runtime.*;
+import jakarta.enterprise.context.*;
+import jakarta.enterprise.event.*;
+import jakarta.enterprise.inject.*;
+import jakarta.inject.*;
+import org.eclipse.microprofile.config.inject.*;
+import software.amazon.awssdk.services.s3.*;
+
+import java.util.*;
+
+/**
+ * Creates the in-process key index of the bucket when {@code s3.file-management.index.enabled}
+ * is set, loaded in the background from startup and reloaded every
+ * {@code s3.file-management.index.reconciliation} unless zero.
+ */
+@ApplicationScoped
+public class S3KeyIndexConfiguration
+{
+  @Produces
+  @Singleton
+  public Optional<S3KeyIndex> keyIndex(S3Client s3, @ConfigProperty(name = "bucket.name") String bucketName, S3FileManagementConfig config)
+  {
+    if (!config.index().enabled())
+      return Optional.empty();
+    return Optional.of(new S3KeyIndex(s3, bucketName, config.index().reconciliation()));
+  }
+
+  void onStart(@Observes StartupEvent startupEvent, Optional<S3KeyIndex> keyIndex)
+  {
+    keyIndex.ifPresent(S3KeyIndex::load);
+  }
+
+  void close(@Disposes Optional<S3KeyIndex> keyIndex)
+  {
+    keyIndex.ifPresent(S3KeyIndex::close);
+  }
+}
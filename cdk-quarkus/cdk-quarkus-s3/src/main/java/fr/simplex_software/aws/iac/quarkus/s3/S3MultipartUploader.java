@@ -0,0 +1,161 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import jakarta.annotation.*;
+import jakarta.enterprise.context.*;
+import jakarta.inject.*;
+import org.jboss.logging.*;
+import software.amazon.awssdk.core.exception.*;
+import software.amazon.awssdk.core.sync.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Uploads files above the configured threshold as S3 multipart uploads, whose parts
+ * are sent concurrently by a bounded worker pool. Each part is streamed from its own
+ * region of the file, such that the memory footprint doesn't depend on the part size.
+ * Large objects are copied the same way, their parts being copied within S3.
+ */
+@ApplicationScoped
+public class S3MultipartUploader
+{
+  private static final Logger LOG = Logger.getLogger(S3MultipartUploader.class);
+  private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+  private static final int MAX_PARTS = 10_000;
+
+  @Inject
+  S3Client s3;
+  @Inject
+  S3FileManagementConfig config;
+  private ExecutorService workers;
+
+  @PostConstruct
+  void init()
+  {
+    workers = Executors.newFixedThreadPool(config.upload().concurrency());
+  }
+
+  @PreDestroy
+  void destroy()
+  {
+    workers.shutdownNow();
+  }
+
+  public boolean isMultipart(File file)
+  {
+    return file.length() > config.upload().multipartThreshold();
+  }
+
+  public String upload(String bucketName, String key, String contentType, File file) throws IOException
+  {
+    return upload(CreateMultipartUploadRequest.builder().bucket(bucketName).key(key).contentType(contentType).build(), file);
+  }
+
+  public String upload(CreateMultipartUploadRequest createRequest, File file) throws IOException
+  {
+    return transfer(createRequest, file.length(), (uploadId, partNumber, offset, size) -> uploadPart(UploadPartRequest.builder()
+      .bucket(createRequest.bucket()).key(createRequest.key()).uploadId(uploadId).partNumber(partNumber).build(), file, offset, size));
+  }
+
+  /**
+   * Copies an object of the bucket to the key of the given request, the parts being
+   * copied by S3 itself from ranges of the source, such that no byte goes through the
+   * application. Each part is conditioned on the source's ETag, such that a source
+   * replaced during the copy fails it rather than mixing two versions.
+   */
+  public String copy(CreateMultipartUploadRequest createRequest, String sourceKey, long length, String sourceETag) throws IOException
+  {
+    return transfer(createRequest, length, (uploadId, partNumber, offset, size) ->
+    {
+      UploadPartCopyResponse response = s3.uploadPartCopy(UploadPartCopyRequest.builder()
+        .sourceBucket(createRequest.bucket())
+        .sourceKey(sourceKey)
+        .copySourceIfMatch(sourceETag)
+        .copySourceRange("bytes=%d-%d".formatted(offset, offset + size - 1))
+        .destinationBucket(createRequest.bucket())
+        .destinationKey(createRequest.key())
+        .uploadId(uploadId)
+        .partNumber(partNumber)
+        .build());
+      return CompletedPart.builder().partNumber(partNumber).eTag(response.copyPartResult().eTag()).build();
+    });
+  }
+
+  private interface PartTransfer
+  {
+    CompletedPart transfer(String uploadId, int partNumber, long offset, long size);
+  }
+
+  private String transfer(CreateMultipartUploadRequest createRequest, long length, PartTransfer partTransfer) throws IOException
+  {
+    String bucketName = createRequest.bucket();
+    String key = createRequest.key();
+    long partSize = partSize(length);
+    String uploadId = s3.createMultipartUpload(createRequest).uploadId();
+    List<Future<CompletedPart>> parts = new ArrayList<>();
+    try
+    {
+      int partNumber = 1;
+      for (long offset = 0; offset < length; offset += partSize, partNumber++)
+      {
+        int number = partNumber;
+        long from = offset;
+        long size = Math.min(partSize, length - offset);
+        parts.add(workers.submit(() -> partTransfer.transfer(uploadId, number, from, size)));
+      }
+      List<CompletedPart> completedParts = new ArrayList<>(parts.size());
+      for (Future<CompletedPart> part : parts)
+        completedParts.add(part.get());
+      return s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder().bucket(bucketName).key(key)
+        .uploadId(uploadId).multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build()).build()).eTag();
+    }
+    catch (Exception ex)
+    {
+      parts.forEach(part -> part.cancel(true));
+      abort(bucketName, key, uploadId);
+      if (ex instanceof InterruptedException)
+        Thread.currentThread().interrupt();
+      Throwable cause = ex instanceof ExecutionException ? ex.getCause() : ex;
+      if (cause instanceof RuntimeException runtimeException)
+        throw runtimeException;
+      throw new IOException("Multipart upload of %s failed".formatted(key), cause);
+    }
+  }
+
+  private CompletedPart uploadPart(UploadPartRequest request, File file, long offset, long size)
+  {
+    UploadPartResponse response = s3.uploadPart(request, RequestBody.fromContentProvider(() ->
+    {
+      try
+      {
+        return new FileRegionInputStream(file.toPath(), offset, size);
+      }
+      catch (IOException ex)
+      {
+        throw new UncheckedIOException(ex);
+      }
+    }, size, "application/octet-stream"));
+    return CompletedPart.builder().partNumber(request.partNumber()).eTag(response.eTag()).build();
+  }
+
+  long partSize(long length)
+  {
+    long partSize = Math.max(config.upload().partSize(), MIN_PART_SIZE);
+    return Math.max(partSize, (length + MAX_PARTS - 1) / MAX_PARTS);
+  }
+
+  private void abort(String bucketName, String key, String uploadId)
+  {
+    try
+    {
+      s3.abortMultipartUpload(AbortMultipartUploadRequest.builder().bucket(bucketName).key(key).uploadId(uploadId).build());
+    }
+    catch (SdkException ex)
+    {
+      LOG.warnf(ex, "Failed to abort the multipart upload %s of %s", uploadId, key);
+    }
+  }
+}
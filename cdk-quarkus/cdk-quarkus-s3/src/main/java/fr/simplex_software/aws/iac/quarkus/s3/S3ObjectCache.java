@@ -0,0 +1,237 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import io.micrometer.core.instrument.*;
+import org.jboss.logging.*;
+import software.amazon.awssdk.core.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * A read-through cache of S3 objects on the local disk, {@code /tmp} in Lambda, bounded
+ * by the total size of the cached objects, the least recently used ones being evicted
+ * first. The index lives on the heap, the contents only on the disk, such that a hit
+ * may be sent from the file, with no copy of the object on the heap. An entry is served
+ * without asking S3 during its validity window, after which it's revalidated. Evicted
+ * and invalidated files are only deleted after a grace period, as a response may be
+ * about to send them, by a background task.
+ */
+public class S3ObjectCache implements Closeable
+{
+  private static final Logger LOG = Logger.getLogger(S3ObjectCache.class);
+  private static final long RETIREMENT_NANOS = TimeUnit.MINUTES.toNanos(1);
+  private static final String RESULT = "result";
+  private static final String PREFIX = "object-";
+  private static final String SUFFIX = ".cache";
+
+  private final Path directory;
+  private final long maxBytes;
+  private final long maxObjectSize;
+  private final long validityNanos;
+  private final ScheduledExecutorService purge;
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final Deque<Retired> retired = new ArrayDeque<>();
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter evictions;
+  private long size;
+
+  /**
+   * @param validated the {@link System#nanoTime()} of the entry's last validation against S3
+   */
+  public record Entry(Path file, GetObjectResponse metadata, long validated)
+  {
+  }
+
+  private record Retired(Path file, long since)
+  {
+  }
+
+  /**
+   * @param validity the time during which an entry is served without being revalidated
+   */
+  public S3ObjectCache(Path directory, long maxBytes, long maxObjectSize, Duration validity, MeterRegistry registry) throws IOException
+  {
+    this.directory = Files.createDirectories(directory);
+    this.maxBytes = maxBytes;
+    this.maxObjectSize = maxObjectSize;
+    validityNanos = validity.toNanos();
+    deleteFiles();
+    hits = registry.counter("s3.cache.requests", RESULT, "hit");
+    misses = registry.counter("s3.cache.requests", RESULT, "miss");
+    evictions = registry.counter("s3.cache.evictions");
+    Gauge.builder("s3.cache.size", this, S3ObjectCache::size).baseUnit("bytes").register(registry);
+    Gauge.builder("s3.cache.entries", this, S3ObjectCache::entries).register(registry);
+    Gauge.builder("s3.cache.hit.ratio", this, S3ObjectCache::hitRatio).register(registry);
+    purge = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("s3-object-cache-purge").factory());
+    purge.scheduleWithFixedDelay(this::purge, RETIREMENT_NANOS, RETIREMENT_NANOS / 2, TimeUnit.NANOSECONDS);
+  }
+
+  public synchronized Optional<Entry> get(String key)
+  {
+    return Optional.ofNullable(entries.get(key));
+  }
+
+  /**
+   * Whether the entry may be served without asking S3, its validity window not being over.
+   */
+  public boolean isFresh(Entry entry)
+  {
+    return System.nanoTime() - entry.validated() < validityNanos;
+  }
+
+  /**
+   * Records that S3 confirmed the entry as current, opening a new validity window.
+   */
+  public synchronized Entry revalidate(String key, Entry entry)
+  {
+    Entry revalidated = new Entry(entry.file(), entry.metadata(), System.nanoTime());
+    if (entries.get(key) == entry)
+      entries.put(key, revalidated);
+    return revalidated;
+  }
+
+  public boolean isCacheable(GetObjectResponse metadata)
+  {
+    return metadata.contentLength() != null && metadata.contentLength() <= Math.min(maxObjectSize, maxBytes);
+  }
+
+  /**
+   * Stores the object's content, consuming and closing its stream, and evicts the least
+   * recently used entries above the size bound. Objects that aren't cacheable are left
+   * untouched, their stream being for the caller to consume, but the key's entry, if any,
+   * is invalidated, being older than them, as it is when the content can't be stored.
+   */
+  public Optional<Entry> put(String key, ResponseInputStream<GetObjectResponse> object) throws IOException
+  {
+    if (!isCacheable(object.response()))
+    {
+      invalidate(key);
+      return Optional.empty();
+    }
+    Path file = Files.createTempFile(directory, PREFIX, SUFFIX);
+    try (InputStream input = object)
+    {
+      Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (IOException | RuntimeException ex)
+    {
+      invalidate(key);
+      Files.deleteIfExists(file);
+      throw ex;
+    }
+    Entry entry = new Entry(file, object.response(), System.nanoTime());
+    synchronized (this)
+    {
+      Entry previous = entries.put(key, entry);
+      size += entry.metadata().contentLength();
+      if (previous != null)
+        retire(previous);
+      Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+      while (size > maxBytes && leastRecentlyUsed.hasNext())
+      {
+        Entry evicted = leastRecentlyUsed.next();
+        if (evicted == entry)
+          break;
+        leastRecentlyUsed.remove();
+        retire(evicted);
+        evictions.increment();
+      }
+    }
+    return Optional.of(entry);
+  }
+
+  public synchronized void invalidate(String key)
+  {
+    Entry entry = entries.remove(key);
+    if (entry != null)
+      retire(entry);
+  }
+
+  public void hit()
+  {
+    hits.increment();
+  }
+
+  public void miss()
+  {
+    misses.increment();
+  }
+
+  public synchronized long size()
+  {
+    return size;
+  }
+
+  public synchronized int entries()
+  {
+    return entries.size();
+  }
+
+  public double hitRatio()
+  {
+    double requests = hits.count() + misses.count();
+    return requests == 0 ? 0 : hits.count() / requests;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    purge.shutdownNow();
+    synchronized (this)
+    {
+      entries.clear();
+      retired.clear();
+      size = 0;
+    }
+    deleteFiles();
+  }
+
+  private void retire(Entry entry)
+  {
+    size -= entry.metadata().contentLength();
+    retired.add(new Retired(entry.file(), System.nanoTime()));
+  }
+
+  /**
+   * Deletes the files retired for longer than the grace period.
+   */
+  void purge()
+  {
+    List<Path> expired = new ArrayList<>();
+    synchronized (this)
+    {
+      long now = System.nanoTime();
+      while (!retired.isEmpty() && now - retired.peek().since() > RETIREMENT_NANOS)
+        expired.add(retired.poll().file());
+    }
+    for (Path file : expired)
+      try
+      {
+        Files.deleteIfExists(file);
+      }
+      catch (IOException ex)
+      {
+        LOG.warnf(ex, "Failed to delete the retired cache file %s", file);
+      }
+  }
+
+  private static void delete(List<Path> files) throws IOException
+  {
+    for (Path file : files)
+      Files.deleteIfExists(file);
+  }
+
+  private void deleteFiles() throws IOException
+  {
+    try (Stream<Path> files = Files.list(directory))
+    {
+      delete(files.filter(file -> file.getFileName().toString().startsWith(PREFIX) && file.getFileName().toString().endsWith(SUFFIX)).toList());
+    }
+  }
+}
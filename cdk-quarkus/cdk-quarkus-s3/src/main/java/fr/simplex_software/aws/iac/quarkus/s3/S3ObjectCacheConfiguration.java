@@ -0,0 +1,34 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import io.micrometer.core.instrument.*;
+import jakarta.enterprise.context.*;
+import jakarta.enterprise.inject.*;
+import jakarta.inject.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Creates the local disk cache of S3 objects when {@code s3.file-management.cache.enabled}
+ * is set, in {@code s3.file-management.cache.directory}, and removes its files on shutdown.
+ */
+@ApplicationScoped
+public class S3ObjectCacheConfiguration
+{
+  @Produces
+  @Singleton
+  public Optional<S3ObjectCache> objectCache(S3FileManagementConfig config, MeterRegistry registry) throws IOException
+  {
+    if (!config.cache().enabled())
+      return Optional.empty();
+    return Optional.of(new S3ObjectCache(Paths.get(config.cache().directory()), config.cache().maxBytes(),
+      config.cache().maxObjectSize(), config.cache().validity(), registry));
+  }
+
+  void close(@Disposes Optional<S3ObjectCache> objectCache) throws IOException
+  {
+    if (objectCache.isPresent())
+      objectCache.get().close();
+  }
+}
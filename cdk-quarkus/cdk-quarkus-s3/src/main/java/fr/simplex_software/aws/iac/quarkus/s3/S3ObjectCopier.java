@@ -0,0 +1,125 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import jakarta.enterprise.context.*;
+import jakarta.inject.*;
+import jakarta.validation.*;
+import jakarta.ws.rs.core.*;
+import org.jboss.logging.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * Copies, or moves, objects within the bucket, S3 copying their content itself, such that
+ * none of it goes through the application. The objects up to the multipart threshold are
+ * copied by a single CopyObject request, the larger ones by a multipart upload whose parts
+ * are copied concurrently, both conditioned on the ETag of the source, as read first.
+ * <p>
+ * A move deletes the source once copied. Each object is copied on its own virtual thread,
+ * with no more than the configured number of copies in flight, and is reported on
+ * individually.
+ */
+@ApplicationScoped
+public class S3ObjectCopier
+{
+  private static final Logger LOG = Logger.getLogger(S3ObjectCopier.class);
+  private static final long MAX_COPY_OBJECT_SIZE = 5L * 1024 * 1024 * 1024;
+
+  @Inject
+  S3Client s3;
+  @Inject
+  S3FileManagementConfig config;
+  @Inject
+  S3MultipartUploader multipartUploader;
+  @Inject
+  Validator validator;
+  @Inject
+  Optional<S3ObjectCache> objectCache;
+  @Inject
+  Optional<S3KeyIndex> keyIndex;
+
+  public List<S3CopyResult> copy(String bucketName, List<S3CopyRequest> requests, boolean move)
+  {
+    Semaphore permits = new Semaphore(config.copy().parallelism());
+    List<Future<S3CopyResult>> results = new ArrayList<>(requests.size());
+    try (ExecutorService copies = Executors.newVirtualThreadPerTaskExecutor())
+    {
+      for (S3CopyRequest request : requests)
+        results.add(copies.submit(() ->
+        {
+          permits.acquire();
+          try
+          {
+            return copy(bucketName, request, move);
+          }
+          finally
+          {
+            permits.release();
+          }
+        }));
+    }
+    return results.stream().map(Future::resultNow).collect(Collectors.toList());
+  }
+
+  private S3CopyResult copy(String bucketName, S3CopyRequest request, boolean move)
+  {
+    String sourceKey = request.getSourceKey();
+    String objectKey = request.getObjectKey();
+    S3CopyResult result = new S3CopyResult().setSourceKey(sourceKey).setObjectKey(objectKey);
+    Set<ConstraintViolation<S3CopyRequest>> violations = validator.validate(request);
+    if (!violations.isEmpty())
+      return result.setStatus(Response.Status.BAD_REQUEST.getStatusCode()).setError(violations.stream()
+        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage()).collect(Collectors.joining(", ")));
+    if (sourceKey.equals(objectKey))
+      return result.setStatus(Response.Status.BAD_REQUEST.getStatusCode()).setError("The source and the target are the same object");
+    try
+    {
+      HeadObjectResponse source = s3.headObject(HeadObjectRequest.builder().bucket(bucketName).key(sourceKey).build());
+      String eTag = source.contentLength() > Math.min(config.upload().multipartThreshold(), MAX_COPY_OBJECT_SIZE)
+        ? multipartUploader.copy(CreateMultipartUploadRequest.builder()
+            .bucket(bucketName)
+            .key(objectKey)
+            .contentType(source.contentType())
+            .contentEncoding(source.contentEncoding())
+            .metadata(source.metadata())
+            .build(), sourceKey, source.contentLength(), source.eTag())
+        : s3.copyObject(CopyObjectRequest.builder()
+            .sourceBucket(bucketName)
+            .sourceKey(sourceKey)
+            .copySourceIfMatch(source.eTag())
+            .destinationBucket(bucketName)
+            .destinationKey(objectKey)
+            .build()).copyObjectResult().eTag();
+      objectCache.ifPresent(cache -> cache.invalidate(objectKey));
+      keyIndex.ifPresent(index -> index.put(objectKey, source.contentLength(), eTag, Instant.now()));
+      result.setSize(source.contentLength()).setEtag(eTag);
+    }
+    catch (Exception ex)
+    {
+      LOG.warnf(ex, "Failed to copy %s to %s", sourceKey, objectKey);
+      return result.setStatus(status(ex)).setError(ex.getMessage());
+    }
+    if (move)
+      try
+      {
+        s3.deleteObject(DeleteObjectRequest.builder().bucket(bucketName).key(sourceKey).build());
+        objectCache.ifPresent(cache -> cache.invalidate(sourceKey));
+        keyIndex.ifPresent(index -> index.remove(sourceKey));
+      }
+      catch (Exception ex)
+      {
+        LOG.warnf(ex, "Failed to delete %s once copied to %s", sourceKey, objectKey);
+        return result.setStatus(status(ex)).setError("Copied but not deleted: " + ex.getMessage());
+      }
+    return result.setStatus(Response.Status.CREATED.getStatusCode());
+  }
+
+  private static int status(Exception ex)
+  {
+    return ex instanceof S3Exception s3Exception ? s3Exception.statusCode() : Response.Status.INTERNAL_SERVER_ERROR.getStatusCode();
+  }
+}
@@ -0,0 +1,35 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import jakarta.ws.rs.core.*;
+
+import java.io.*;
+
+/**
+ * Copies an S3 object stream to the HTTP response in fixed-size chunks, such that
+ * only one chunk of the object is ever held on the heap. The S3 stream is closed
+ * once the copy is done, whether it succeeded or not.
+ */
+public class S3ObjectStreamingOutput implements StreamingOutput
+{
+  private final InputStream objectStream;
+  private final int chunkSize;
+
+  public S3ObjectStreamingOutput(InputStream objectStream, int chunkSize)
+  {
+    this.objectStream = objectStream;
+    this.chunkSize = chunkSize;
+  }
+
+  @Override
+  public void write(OutputStream output) throws IOException
+  {
+    try (InputStream input = objectStream)
+    {
+      byte[] chunk = new byte[chunkSize];
+      int read;
+      while ((read = input.read(chunk)) != -1)
+        output.write(chunk, 0, read);
+      output.flush();
+    }
+  }
+}
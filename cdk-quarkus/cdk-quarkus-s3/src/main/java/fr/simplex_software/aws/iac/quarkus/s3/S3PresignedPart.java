@@ -0,0 +1,83 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import java.util.*;
+
+public class S3PresignedPart
+{
+  private int partNumber;
+  private String url;
+  private Map<String, String> headers = new HashMap<>();
+  private long offset;
+  private long length;
+  private String etag;
+
+  public S3PresignedPart()
+  {
+  }
+
+  public int getPartNumber()
+  {
+    return partNumber;
+  }
+
+  public S3PresignedPart setPartNumber(int partNumber)
+  {
+    this.partNumber = partNumber;
+    return this;
+  }
+
+  public String getUrl()
+  {
+    return url;
+  }
+
+  public S3PresignedPart setUrl(String url)
+  {
+    this.url = url;
+    return this;
+  }
+
+  public Map<String, String> getHeaders()
+  {
+    return headers;
+  }
+
+  public S3PresignedPart setHeaders(Map<String, String> headers)
+  {
+    this.headers = headers;
+    return this;
+  }
+
+  public long getOffset()
+  {
+    return offset;
+  }
+
+  public S3PresignedPart setOffset(long offset)
+  {
+    this.offset = offset;
+    return this;
+  }
+
+  public long getLength()
+  {
+    return length;
+  }
+
+  public S3PresignedPart setLength(long length)
+  {
+    this.length = length;
+    return this;
+  }
+
+  public String getEtag()
+  {
+    return etag;
+  }
+
+  public S3PresignedPart setEtag(String etag)
+  {
+    this.etag = etag;
+    return this;
+  }
+}
@@ -0,0 +1,75 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import java.io.*;
+import java.net.*;
+import java.net.http.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Sends the parts of a presigned upload directly to S3, concurrently, each one streamed
+ * from its own region of the file, and records the ETag S3 returns for each of them. At
+ * most {@code concurrency} parts are in flight at once.
+ */
+public final class S3PresignedTransfers
+{
+  public static final int DEFAULT_CONCURRENCY = 8;
+  private static final String ETAG = "ETag";
+
+  private S3PresignedTransfers()
+  {
+  }
+
+  public static S3PresignedUpload send(S3PresignedUpload upload, File file) throws IOException
+  {
+    return send(upload, file, DEFAULT_CONCURRENCY);
+  }
+
+  public static S3PresignedUpload send(S3PresignedUpload upload, File file, int concurrency) throws IOException
+  {
+    Semaphore permits = new Semaphore(concurrency);
+    try (HttpClient httpClient = HttpClient.newHttpClient())
+    {
+      List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+      for (S3PresignedPart part : upload.getParts())
+      {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(part.getUrl()))
+          .PUT(HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofInputStream(() -> region(file, part)), part.getLength()));
+        part.getHeaders().forEach(request::header);
+        permits.acquire();
+        responses.add(httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding())
+          .whenComplete((response, failure) -> permits.release()));
+      }
+      for (int i = 0; i < responses.size(); i++)
+      {
+        HttpResponse<Void> response = responses.get(i).join();
+        if (response.statusCode() / 100 != 2)
+          throw new IOException("Presigned upload of part %d of %s failed with status %d"
+            .formatted(upload.getParts().get(i).getPartNumber(), upload.getObjectKey(), response.statusCode()));
+        upload.getParts().get(i).setEtag(response.headers().firstValue(ETAG).orElse(null));
+      }
+      return upload;
+    }
+    catch (InterruptedException ex)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Presigned upload of %s interrupted".formatted(upload.getObjectKey()));
+    }
+    catch (CompletionException ex)
+    {
+      throw ex.getCause() instanceof IOException ioException ? ioException : new IOException(ex.getCause());
+    }
+  }
+
+  private static InputStream region(File file, S3PresignedPart part)
+  {
+    try
+    {
+      return new FileRegionInputStream(file.toPath(), part.getOffset(), part.getLength());
+    }
+    catch (IOException ex)
+    {
+      throw new UncheckedIOException(ex);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import java.time.*;
+import java.util.*;
+
+/**
+ * The presigned PUT requests of a direct upload to S3: a single one, or one per part
+ * of a multipart upload, identified by its upload ID. Once the parts are sent, the
+ * same document, with the ETag S3 returned for each part, completes the upload.
+ */
+public class S3PresignedUpload
+{
+  private String objectKey;
+  private String uploadId;
+  private Instant expiration;
+  private List<S3PresignedPart> parts = new ArrayList<>();
+
+  public S3PresignedUpload()
+  {
+  }
+
+  public String getObjectKey()
+  {
+    return objectKey;
+  }
+
+  public S3PresignedUpload setObjectKey(String objectKey)
+  {
+    this.objectKey = objectKey;
+    return this;
+  }
+
+  public String getUploadId()
+  {
+    return uploadId;
+  }
+
+  public S3PresignedUpload setUploadId(String uploadId)
+  {
+    this.uploadId = uploadId;
+    return this;
+  }
+
+  public Instant getExpiration()
+  {
+    return expiration;
+  }
+
+  public S3PresignedUpload setExpiration(Instant expiration)
+  {
+    this.expiration = expiration;
+    return this;
+  }
+
+  public List<S3PresignedPart> getParts()
+  {
+    return parts;
+  }
+
+  public S3PresignedUpload setParts(List<S3PresignedPart> parts)
+  {
+    this.parts = parts;
+    return this;
+  }
+}
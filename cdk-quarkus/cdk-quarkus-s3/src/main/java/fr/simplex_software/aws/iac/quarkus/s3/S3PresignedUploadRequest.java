@@ -0,0 +1,50 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import jakarta.validation.constraints.*;
+
+public class S3PresignedUploadRequest
+{
+  @ObjectFilename
+  private String filename;
+  @ObjectMimetype
+  private String mimetype;
+  @PositiveOrZero
+  private long size;
+
+  public S3PresignedUploadRequest()
+  {
+  }
+
+  public String getFilename()
+  {
+    return filename;
+  }
+
+  public S3PresignedUploadRequest setFilename(String filename)
+  {
+    this.filename = filename;
+    return this;
+  }
+
+  public String getMimetype()
+  {
+    return mimetype;
+  }
+
+  public S3PresignedUploadRequest setMimetype(String mimetype)
+  {
+    this.mimetype = mimetype;
+    return this;
+  }
+
+  public long getSize()
+  {
+    return size;
+  }
+
+  public S3PresignedUploadRequest setSize(long size)
+  {
+    this.size = size;
+    return this;
+  }
+}
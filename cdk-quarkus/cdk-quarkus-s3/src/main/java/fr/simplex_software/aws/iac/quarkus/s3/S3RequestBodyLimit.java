@@ -0,0 +1,52 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import io.vertx.core.http.*;
+import io.vertx.ext.web.*;
+import jakarta.enterprise.context.*;
+import jakarta.enterprise.event.*;
+import jakarta.inject.*;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Holds the requests to {@code s3.file-management.max-body-size}, except the streamed
+ * uploads, {@code PUT /s3/upload/{objectKey}}, which are only bounded by the global
+ * {@code quarkus.http.limits.max-body-size}, set to S3's own object size limit. Run right
+ * after the global check, it answers 413 to a request whose {@code Content-Length} is
+ * above its limit, and bounds the bodies read as a stream, the chunked ones included,
+ * through the request attribute the global check sets.
+ */
+@ApplicationScoped
+public class S3RequestBodyLimit
+{
+  private static final String MAX_REQUEST_SIZE = "io.quarkus.max-request-size";
+  private static final String STREAMED_UPLOADS = "/s3/upload/";
+  private static final int ORDER = -1;
+
+  @Inject
+  S3FileManagementConfig config;
+
+  void onRouter(@Observes Router router)
+  {
+    router.route().order(ORDER).handler(context ->
+    {
+      HttpServerRequest request = context.request();
+      if (request.method() == HttpMethod.PUT && context.normalizedPath().startsWith(STREAMED_UPLOADS))
+      {
+        context.next();
+        return;
+      }
+      long limit = config.maxBodySize();
+      String contentLength = request.getHeader(HttpHeaders.CONTENT_LENGTH);
+      if (contentLength != null && Long.parseLong(contentLength) > limit)
+      {
+        context.response().putHeader(HttpHeaders.CONNECTION, HttpHeaders.CLOSE)
+          .setStatusCode(Response.Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode())
+          .endHandler(ended -> request.connection().close())
+          .end();
+        return;
+      }
+      context.put(MAX_REQUEST_SIZE, limit);
+      context.next();
+    });
+  }
+}
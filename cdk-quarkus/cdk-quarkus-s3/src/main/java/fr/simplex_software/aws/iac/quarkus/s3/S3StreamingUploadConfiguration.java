@@ -0,0 +1,26 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import jakarta.enterprise.context.*;
+import jakarta.enterprise.inject.*;
+import jakarta.inject.*;
+import software.amazon.awssdk.services.s3.*;
+
+/**
+ * Creates the streaming uploader with the part size and the concurrency of the
+ * multipart uploads, and stops its workers on shutdown.
+ */
+@ApplicationScoped
+public class S3StreamingUploadConfiguration
+{
+  @Produces
+  @Singleton
+  public S3StreamingUploader streamingUploader(S3Client s3, S3FileManagementConfig config)
+  {
+    return new S3StreamingUploader(s3, config.upload().partSize(), config.upload().concurrency());
+  }
+
+  void close(@Disposes S3StreamingUploader streamingUploader)
+  {
+    streamingUploader.close();
+  }
+}
@@ -0,0 +1,186 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import org.jboss.logging.*;
+import software.amazon.awssdk.core.exception.*;
+import software.amazon.awssdk.core.sync.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Pipes an upload's body straight into S3, without spooling it to a file first. A body
+ * of known length that fits in a part is sent as a single PUT, read from the request
+ * as S3 consumes it. Any other body is read one part at a time and sent as a multipart
+ * upload, the parts being uploaded concurrently from a pool of {@code concurrency} part
+ * buffers, shared by all the uploads, which bounds the heap used whatever the number of
+ * uploads in progress. A body of unknown length shorter than a part ends up as a single
+ * PUT as well.
+ */
+public class S3StreamingUploader implements Closeable
+{
+  public static final long UNKNOWN_LENGTH = -1;
+  private static final Logger LOG = Logger.getLogger(S3StreamingUploader.class);
+  private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+  private static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
+
+  private final S3Client s3;
+  private final int partSize;
+  private final int concurrency;
+  private final BlockingQueue<byte[]> buffers;
+  private final AtomicInteger allocated = new AtomicInteger();
+  private final ExecutorService workers;
+
+  public S3StreamingUploader(S3Client s3, long partSize, int concurrency)
+  {
+    this.s3 = s3;
+    this.partSize = Math.toIntExact(Math.max(partSize, MIN_PART_SIZE));
+    this.concurrency = concurrency;
+    this.buffers = new ArrayBlockingQueue<>(concurrency);
+    this.workers = Executors.newFixedThreadPool(concurrency);
+  }
+
+  public String upload(PutObjectRequest request, InputStream body, long length) throws IOException
+  {
+    if (length != UNKNOWN_LENGTH && length <= partSize)
+      return s3.putObject(request, RequestBody.fromInputStream(body, length)).eTag();
+    byte[] first = acquire();
+    int read = 0;
+    try
+    {
+      read = body.readNBytes(first, 0, partSize);
+      if (read < partSize)
+        return s3.putObject(request, requestBody(first, read)).eTag();
+    }
+    finally
+    {
+      if (read < partSize)
+        buffers.add(first);
+    }
+    String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder().bucket(request.bucket()).key(request.key())
+      .contentType(request.contentType()).contentEncoding(request.contentEncoding()).metadata(request.metadata()).build()).uploadId();
+    List<Future<CompletedPart>> parts = new ArrayList<>();
+    try
+    {
+      byte[] buffer = first;
+      for (int partNumber = 1; read > 0; partNumber++)
+      {
+        UploadPartRequest partRequest = UploadPartRequest.builder().bucket(request.bucket()).key(request.key())
+          .uploadId(uploadId).partNumber(partNumber).build();
+        byte[] content = buffer;
+        int size = read;
+        parts.add(workers.submit(() ->
+        {
+          try
+          {
+            String eTag = s3.uploadPart(partRequest, requestBody(content, size)).eTag();
+            return CompletedPart.builder().partNumber(partRequest.partNumber()).eTag(eTag).build();
+          }
+          finally
+          {
+            buffers.add(content);
+          }
+        }));
+        buffer = acquire();
+        read = 0;
+        try
+        {
+          read = body.readNBytes(buffer, 0, partSize);
+        }
+        finally
+        {
+          if (read == 0)
+            buffers.add(buffer);
+        }
+      }
+      List<CompletedPart> completedParts = new ArrayList<>(parts.size());
+      for (Future<CompletedPart> completedPart : parts)
+        completedParts.add(completedPart.get());
+      return s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder().bucket(request.bucket()).key(request.key())
+        .uploadId(uploadId).multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build()).build()).eTag();
+    }
+    catch (Exception ex)
+    {
+      awaitQuietly(parts);
+      abort(request.bucket(), request.key(), uploadId);
+      if (ex instanceof InterruptedException)
+        Thread.currentThread().interrupt();
+      Throwable cause = ex instanceof ExecutionException ? ex.getCause() : ex;
+      if (cause instanceof RuntimeException runtimeException)
+        throw runtimeException;
+      throw new IOException("Streaming upload of %s failed".formatted(request.key()), cause);
+    }
+  }
+
+  @Override
+  public void close()
+  {
+    workers.shutdownNow();
+  }
+
+  /**
+   * Takes a part buffer from the pool shared by all the uploads, allocating it as long as
+   * fewer than {@code concurrency} buffers exist, waiting for one to be released otherwise.
+   */
+  private byte[] acquire() throws IOException
+  {
+    byte[] buffer = buffers.poll();
+    if (buffer != null)
+      return buffer;
+    if (allocated.getAndUpdate(count -> count < concurrency ? count + 1 : count) < concurrency)
+      return new byte[partSize];
+    try
+    {
+      return buffers.take();
+    }
+    catch (InterruptedException ex)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for an upload buffer");
+    }
+  }
+
+  /**
+   * Waits for the parts already submitted instead of cancelling them, as a part that
+   * never runs would never give its buffer back to the pool.
+   */
+  private static void awaitQuietly(List<Future<CompletedPart>> parts)
+  {
+    for (Future<CompletedPart> part : parts)
+    {
+      try
+      {
+        part.get();
+      }
+      catch (InterruptedException ex)
+      {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      catch (ExecutionException ex)
+      {
+        LOG.debugf(ex, "Part upload failed");
+      }
+    }
+  }
+
+  private static RequestBody requestBody(byte[] buffer, int size)
+  {
+    return RequestBody.fromContentProvider(() -> new ByteArrayInputStream(buffer, 0, size), size, APPLICATION_OCTET_STREAM);
+  }
+
+  private void abort(String bucketName, String key, String uploadId)
+  {
+    try
+    {
+      s3.abortMultipartUpload(AbortMultipartUploadRequest.builder().bucket(bucketName).key(key).uploadId(uploadId).build());
+    }
+    catch (SdkException ex)
+    {
+      LOG.warnf(ex, "Failed to abort the multipart upload %s of %s", uploadId, key);
+    }
+  }
+}
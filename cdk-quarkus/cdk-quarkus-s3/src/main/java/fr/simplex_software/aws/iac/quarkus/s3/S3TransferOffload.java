@@ -0,0 +1,121 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import jakarta.enterprise.context.*;
+import jakarta.inject.*;
+import software.amazon.awssdk.awscore.presigner.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.*;
+import software.amazon.awssdk.services.s3.presigner.model.*;
+
+import java.net.*;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * Takes the object bytes off the function, when {@code s3.file-management.offload.enabled}
+ * is set, by presigning short-lived S3 requests the client sends directly: a GET for
+ * the downloads above {@code s3.file-management.offload.download-threshold}, and PUTs
+ * for the uploads, one per part above the multipart threshold. The URLs expire after
+ * {@code s3.file-management.offload.expiry}. The size of a download is the one the
+ * caller already knows, from its cache or from the response of its own GET, such that
+ * offloading costs no extra request to S3.
+ */
+@ApplicationScoped
+public class S3TransferOffload
+{
+  private static final String HOST = "host";
+
+  @Inject
+  S3Client s3;
+  @Inject
+  S3Presigner presigner;
+  @Inject
+  S3FileManagementConfig config;
+  @Inject
+  S3MultipartUploader multipartUploader;
+
+  public boolean isEnabled()
+  {
+    return config.offload().enabled();
+  }
+
+  /**
+   * Whether a download of the given size, unknown when null, is to be redirected to S3.
+   */
+  public boolean isOffloaded(Long contentLength)
+  {
+    return isEnabled() && contentLength != null && contentLength > config.offload().downloadThreshold();
+  }
+
+  public URI downloadRedirect(String bucketName, String objectKey)
+  {
+    GetObjectRequest request = GetObjectRequest.builder()
+      .bucket(bucketName)
+      .key(objectKey)
+      .responseContentDisposition(ContentDisposition.attachment(objectKey))
+      .build();
+    PresignedGetObjectRequest presigned = presigner.presignGetObject(GetObjectPresignRequest.builder()
+      .signatureDuration(config.offload().expiry()).getObjectRequest(request).build());
+    return URI.create(presigned.url().toString());
+  }
+
+  public S3PresignedUpload presignUpload(String bucketName, S3PresignedUploadRequest request)
+  {
+    S3PresignedUpload upload = new S3PresignedUpload().setObjectKey(request.getFilename());
+    if (request.getSize() <= config.upload().multipartThreshold())
+    {
+      PresignedPutObjectRequest presigned = presigner.presignPutObject(PutObjectPresignRequest.builder()
+        .signatureDuration(config.offload().expiry())
+        .putObjectRequest(PutObjectRequest.builder().bucket(bucketName).key(request.getFilename()).contentType(request.getMimetype()).build())
+        .build());
+      upload.getParts().add(part(presigned, 1, 0, request.getSize()));
+      return upload.setExpiration(presigned.expiration());
+    }
+    String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder().bucket(bucketName)
+      .key(request.getFilename()).contentType(request.getMimetype()).build()).uploadId();
+    upload.setUploadId(uploadId);
+    long partSize = multipartUploader.partSize(request.getSize());
+    int partNumber = 1;
+    for (long offset = 0; offset < request.getSize(); offset += partSize, partNumber++)
+    {
+      PresignedUploadPartRequest presigned = presigner.presignUploadPart(UploadPartPresignRequest.builder()
+        .signatureDuration(config.offload().expiry())
+        .uploadPartRequest(UploadPartRequest.builder().bucket(bucketName).key(request.getFilename())
+          .uploadId(uploadId).partNumber(partNumber).build())
+        .build());
+      upload.getParts().add(part(presigned, partNumber, offset, Math.min(partSize, request.getSize() - offset)));
+      upload.setExpiration(presigned.expiration());
+    }
+    return upload;
+  }
+
+  /**
+   * Completes a multipart upload with the ETags of its parts, the single PUT uploads
+   * having nothing to complete.
+   */
+  public void complete(String bucketName, S3PresignedUpload upload)
+  {
+    if (upload.getUploadId() == null)
+      return;
+    List<CompletedPart> parts = upload.getParts().stream()
+      .map(part -> CompletedPart.builder().partNumber(part.getPartNumber()).eTag(part.getEtag()).build())
+      .toList();
+    s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder().bucket(bucketName).key(upload.getObjectKey())
+      .uploadId(upload.getUploadId()).multipartUpload(CompletedMultipartUpload.builder().parts(parts).build()).build());
+  }
+
+  public void abort(String bucketName, String objectKey, String uploadId)
+  {
+    s3.abortMultipartUpload(AbortMultipartUploadRequest.builder().bucket(bucketName).key(objectKey).uploadId(uploadId).build());
+  }
+
+  private static S3PresignedPart part(PresignedRequest presigned, int partNumber, long offset, long length)
+  {
+    Map<String, String> headers = presigned.signedHeaders().entrySet().stream()
+      .filter(header -> !HOST.equalsIgnoreCase(header.getKey()))
+      .collect(Collectors.toMap(Map.Entry::getKey, header -> String.join(",", header.getValue())));
+    return new S3PresignedPart().setPartNumber(partNumber).setUrl(presigned.url().toString())
+      .setHeaders(headers).setOffset(offset).setLength(length);
+  }
+}
@@ -0,0 +1,84 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import jakarta.enterprise.context.*;
+import jakarta.inject.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+
+/**
+ * Decides whether an upload may be skipped, because the object already stored under
+ * the same key has the same content and content type. The spooled file is hashed with
+ * MD5 in a single pass and the digest compared with the one recorded in the object's
+ * metadata at upload time or, for objects uploaded before, with its ETag, which is the
+ * MD5 of the content for a single part upload.
+ */
+@ApplicationScoped
+public class S3UploadDeduplicator
+{
+  public static final String CONTENT_MD5 = "content-md5";
+  private static final int BUFFER_SIZE = 65536;
+
+  @Inject
+  S3Client s3;
+
+  public static byte[] digest(File file) throws IOException
+  {
+    MessageDigest md5 = md5();
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      while (channel.read(buffer) != -1)
+      {
+        md5.update(buffer.flip());
+        buffer.clear();
+      }
+    }
+    return md5.digest();
+  }
+
+  public static Map<String, String> metadata(byte[] digest)
+  {
+    return Map.of(CONTENT_MD5, HexFormat.of().formatHex(digest));
+  }
+
+  public static boolean matches(HeadObjectResponse head, byte[] digest, String contentType)
+  {
+    if (!Objects.equals(head.contentType(), contentType))
+      return false;
+    String hex = HexFormat.of().formatHex(digest);
+    if (head.metadata().containsKey(CONTENT_MD5))
+      return hex.equals(head.metadata().get(CONTENT_MD5));
+    return head.eTag() != null && hex.equals(head.eTag().replace("\"", ""));
+  }
+
+  public boolean isStored(String bucketName, String key, byte[] digest, String contentType)
+  {
+    try
+    {
+      return matches(s3.headObject(HeadObjectRequest.builder().bucket(bucketName).key(key).build()), digest, contentType);
+    }
+    catch (NoSuchKeyException ex)
+    {
+      return false;
+    }
+  }
+
+  private static MessageDigest md5()
+  {
+    try
+    {
+      return MessageDigest.getInstance("MD5");
+    }
+    catch (NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+public class S3UploadResult
+{
+  private String objectKey;
+  private Long size;
+  private int status;
+  private String etag;
+  private String error;
+
+  public S3UploadResult()
+  {
+  }
+
+  public String getObjectKey()
+  {
+    return objectKey;
+  }
+
+  public S3UploadResult setObjectKey(String objectKey)
+  {
+    this.objectKey = objectKey;
+    return this;
+  }
+
+  public Long getSize()
+  {
+    return size;
+  }
+
+  public S3UploadResult setSize(Long size)
+  {
+    this.size = size;
+    return this;
+  }
+
+  public int getStatus()
+  {
+    return status;
+  }
+
+  public S3UploadResult setStatus(int status)
+  {
+    this.status = status;
+    return this;
+  }
+
+  public String getEtag()
+  {
+    return etag;
+  }
+
+  public S3UploadResult setEtag(String etag)
+  {
+    this.etag = etag;
+    return this;
+  }
+
+  public String getError()
+  {
+    return error;
+  }
+
+  public S3UploadResult setError(String error)
+  {
+    this.error = error;
+    return this;
+  }
+}
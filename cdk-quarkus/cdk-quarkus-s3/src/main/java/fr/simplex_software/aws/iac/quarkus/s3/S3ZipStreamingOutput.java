@@ -0,0 +1,100 @@
+package fr.simplex_software.aws.iac.quarkus.s3;
+
+import jakarta.ws.rs.core.*;
+import software.amazon.awssdk.core.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/**
+ * Writes a ZIP archive of S3 objects to the HTTP response. The archive is written one
+ * entry at a time while the GetObject calls of the next few keys are already in flight,
+ * such that the next entry's bytes are ready to flow as soon as the current one is done.
+ * Only the response headers of the prefetched objects are read ahead, their content is
+ * streamed in fixed-size chunks, hence nothing is ever buffered in full.
+ */
+public class S3ZipStreamingOutput implements StreamingOutput
+{
+  private final S3Client s3;
+  private final String bucketName;
+  private final Iterator<String> objectKeys;
+  private final int prefetch;
+  private final int chunkSize;
+
+  public S3ZipStreamingOutput(S3Client s3, String bucketName, Iterator<String> objectKeys, int prefetch, int chunkSize)
+  {
+    this.s3 = s3;
+    this.bucketName = bucketName;
+    this.objectKeys = objectKeys;
+    this.prefetch = Math.max(prefetch, 1);
+    this.chunkSize = chunkSize;
+  }
+
+  @Override
+  public void write(OutputStream output) throws IOException
+  {
+    Deque<Fetch> window = new ArrayDeque<>(prefetch);
+    try (ExecutorService fetches = Executors.newVirtualThreadPerTaskExecutor())
+    {
+      try
+      {
+        ZipOutputStream zip = new ZipOutputStream(output);
+        while (window.size() < prefetch && objectKeys.hasNext())
+          window.add(fetch(fetches, objectKeys.next()));
+        byte[] chunk = new byte[chunkSize];
+        while (!window.isEmpty())
+        {
+          Fetch fetch = window.poll();
+          try (ResponseInputStream<GetObjectResponse> object = fetch.object().get())
+          {
+            if (objectKeys.hasNext())
+              window.add(fetch(fetches, objectKeys.next()));
+            ZipEntry entry = new ZipEntry(fetch.objectKey());
+            if (object.response().lastModified() != null)
+              entry.setLastModifiedTime(FileTime.from(object.response().lastModified()));
+            zip.putNextEntry(entry);
+            int read;
+            while ((read = object.read(chunk)) != -1)
+              zip.write(chunk, 0, read);
+            zip.closeEntry();
+          }
+        }
+        zip.finish();
+        zip.flush();
+      }
+      catch (InterruptedException ex)
+      {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+      catch (ExecutionException ex)
+      {
+        throw new IOException(ex.getCause());
+      }
+      finally
+      {
+        window.forEach(Fetch::abort);
+      }
+    }
+  }
+
+  private Fetch fetch(ExecutorService fetches, String objectKey)
+  {
+    GetObjectRequest request = GetObjectRequest.builder().bucket(bucketName).key(objectKey).build();
+    return new Fetch(objectKey, fetches.submit(() -> s3.getObject(request)));
+  }
+
+  private record Fetch(String objectKey, Future<ResponseInputStream<GetObjectResponse>> object)
+  {
+    private void abort()
+    {
+      if (!object.cancel(true) && object.state() == Future.State.SUCCESS)
+        object.resultNow().abort();
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import io.quarkus.test.junit.callback.*;
+import io.restassured.*;
+import org.apache.http.*;
+
+/**
+ * Has the RestAssured requests close their connection once answered. The Lambda
+ * adapter drops the {@code chunked} value of the {@code Transfer-Encoding} header of the
+ * streamed responses, the listings and the archives, but not the header, such that the
+ * mock event server sends them with neither a length nor chunks, their end being only
+ * marked by the connection's.
+ */
+public class ConnectionCloseCallback implements QuarkusTestBeforeEachCallback
+{
+  @Override
+  public void beforeEach(QuarkusTestMethodContext context)
+  {
+    RestAssured.replaceFiltersWith((request, response, filterContext) ->
+    {
+      request.header(HttpHeaders.CONNECTION, "close");
+      return filterContext.next(request, response);
+    });
+  }
+}
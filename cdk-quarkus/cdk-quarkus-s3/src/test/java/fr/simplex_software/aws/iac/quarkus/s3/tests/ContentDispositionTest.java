@@ -0,0 +1,20 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import org.junit.jupiter.api.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ContentDispositionTest
+{
+  @Test
+  public void testAttachment()
+  {
+    assertThat(ContentDisposition.attachment("README.md")).isEqualTo("attachment;filename=\"README.md\";filename*=UTF-8''README.md");
+    assertThat(ContentDisposition.attachment("a \"b\"\\c.txt"))
+      .isEqualTo("attachment;filename=\"a \\\"b\\\"\\\\c.txt\";filename*=UTF-8''a%20%22b%22%5Cc.txt");
+    assertThat(ContentDisposition.attachment("r\u00e9sum\u00e9\r\n.pdf"))
+      .isEqualTo("attachment;filename=\"r_sum___.pdf\";filename*=UTF-8''r%C3%A9sum%C3%A9%0D%0A.pdf");
+    assertThat(ContentDisposition.attachment("docs/a;b.txt")).isEqualTo("attachment;filename=\"docs/a;b.txt\";filename*=UTF-8''docs%2Fa%3Bb.txt");
+  }
+}
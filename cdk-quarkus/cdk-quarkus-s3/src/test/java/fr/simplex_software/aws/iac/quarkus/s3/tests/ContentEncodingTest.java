@@ -0,0 +1,43 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.charset.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ContentEncodingTest
+{
+  @Test
+  public void testNegotiate()
+  {
+    assertThat(ContentEncoding.negotiate(null)).isEqualTo(ContentEncoding.IDENTITY);
+    assertThat(ContentEncoding.negotiate("br, deflate")).isEqualTo(ContentEncoding.IDENTITY);
+    assertThat(ContentEncoding.negotiate("gzip, deflate, br")).isEqualTo(ContentEncoding.GZIP);
+    assertThat(ContentEncoding.negotiate("gzip, zstd")).isEqualTo(ContentEncoding.ZSTD);
+    assertThat(ContentEncoding.negotiate("gzip;q=1.0, zstd;q=0.5")).isEqualTo(ContentEncoding.GZIP);
+    assertThat(ContentEncoding.negotiate("*;q=0.1, zstd;q=0")).isEqualTo(ContentEncoding.GZIP);
+    assertThat(ContentEncoding.negotiate("gzip;q=0")).isEqualTo(ContentEncoding.IDENTITY);
+    assertThat(ContentEncoding.GZIP.isAccepted("deflate")).isFalse();
+    assertThat(ContentEncoding.IDENTITY.isAccepted(null)).isTrue();
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException
+  {
+    byte[] content = "{\"objectKey\":\"README.md\"}".repeat(1000).getBytes(StandardCharsets.UTF_8);
+    for (ContentEncoding encoding : ContentEncoding.values())
+    {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      new EncodingStreamingOutput(output -> output.write(content), encoding).write(compressed);
+      if (encoding != ContentEncoding.IDENTITY)
+        assertThat(compressed.size()).isLessThan(content.length / 10);
+      try (InputStream decompressed = encoding.decompress(new ByteArrayInputStream(compressed.toByteArray())))
+      {
+        assertThat(decompressed.readAllBytes()).isEqualTo(content);
+      }
+    }
+  }
+}
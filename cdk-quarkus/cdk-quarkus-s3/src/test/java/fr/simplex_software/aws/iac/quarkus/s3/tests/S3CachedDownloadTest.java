@@ -0,0 +1,81 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import io.quarkus.test.junit.*;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.*;
+import org.apache.http.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static io.restassured.RestAssured.*;
+import static org.hamcrest.Matchers.*;
+
+@QuarkusTest
+@TestProfile(S3CachedDownloadTest.CacheProfile.class)
+public class S3CachedDownloadTest
+{
+  private static final File readme = new File("./src/test/resources/README.md");
+
+  @Test
+  public void testCachedDownload(@TempDir Path tempDir) throws IOException
+  {
+    upload(readme);
+    String content = Files.readString(readme.toPath());
+    String entityTag = download(content);
+    download(content);
+    given()
+      .header(HttpHeaders.IF_NONE_MATCH, entityTag)
+      .pathParam("objectKey", "cached/README.md")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_NOT_MODIFIED);
+    File changed = tempDir.resolve("README.md").toFile();
+    Files.writeString(changed.toPath(), content + "changed");
+    upload(changed);
+    download(content + "changed");
+    when().get("/q/metrics")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .body(containsString("s3_cache_requests_total{result=\"hit\"} 2.0"))
+      .body(containsString("s3_cache_hit_ratio"));
+  }
+
+  private String download(String content)
+  {
+    return given()
+      .header(HttpHeaders.ACCEPT_ENCODING, "identity")
+      .pathParam("objectKey", "cached/README.md")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .header(HttpHeaders.ETAG, notNullValue())
+      .body(equalTo(content))
+      .extract().header(HttpHeaders.ETAG);
+  }
+
+  private void upload(File file)
+  {
+    given()
+      .contentType(MediaType.MULTIPART_FORM_DATA)
+      .multiPart("file", file)
+      .multiPart("filename", "cached/README.md")
+      .multiPart("mimetype", MediaType.TEXT_PLAIN)
+      .when()
+      .post("/s3/upload")
+      .then()
+      .statusCode(HttpStatus.SC_CREATED);
+  }
+
+  public static class CacheProfile implements QuarkusTestProfile
+  {
+    @Override
+    public Map<String, String> getConfigOverrides()
+    {
+      return Map.of("s3.file-management.cache.enabled", "true");
+    }
+  }
+}
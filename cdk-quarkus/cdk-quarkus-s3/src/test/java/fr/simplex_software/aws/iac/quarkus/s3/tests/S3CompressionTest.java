@@ -0,0 +1,90 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import io.quarkus.test.junit.*;
+import io.restassured.config.*;
+import jakarta.inject.*;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.*;
+import org.apache.http.*;
+import org.eclipse.microprofile.config.inject.*;
+import org.junit.jupiter.api.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+import static io.restassured.RestAssured.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.hamcrest.Matchers.*;
+
+@QuarkusTest
+@TestProfile(S3CompressionTest.CompressionProfile.class)
+public class S3CompressionTest
+{
+  private static final File readme = new File("./src/test/resources/README.md");
+
+  @Inject
+  S3Client s3;
+  @ConfigProperty(name = "bucket.name")
+  String bucketName;
+
+  @Test
+  public void testCompression() throws IOException
+  {
+    given()
+      .contentType(MediaType.MULTIPART_FORM_DATA)
+      .multiPart("file", readme)
+      .multiPart("filename", "compressed/README.md")
+      .multiPart("mimetype", MediaType.TEXT_PLAIN)
+      .when()
+      .post("/s3/upload")
+      .then()
+      .statusCode(HttpStatus.SC_CREATED);
+    HeadObjectResponse head = s3.headObject(HeadObjectRequest.builder().bucket(bucketName).key("compressed/README.md").build());
+    assertThat(head.contentEncoding()).isEqualTo("gzip");
+    byte[] gzipped = given()
+      .config(config().decoderConfig(DecoderConfig.decoderConfig().noContentDecoders()))
+      .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+      .pathParam("objectKey", "compressed/README.md")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(200)
+      .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+      .extract().asByteArray();
+    try (InputStream content = new GZIPInputStream(new ByteArrayInputStream(gzipped)))
+    {
+      assertThat(content.readAllBytes()).isEqualTo(Files.readAllBytes(readme.toPath()));
+    }
+    given()
+      .config(config().decoderConfig(DecoderConfig.decoderConfig().noContentDecoders()))
+      .header(HttpHeaders.ACCEPT_ENCODING, "identity")
+      .pathParam("objectKey", "compressed/README.md")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(200)
+      .header(HttpHeaders.CONTENT_ENCODING, nullValue())
+      .body(equalTo(Files.readString(readme.toPath())));
+    given()
+      .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+      .queryParam("prefix", "compressed/")
+      .when().get("/s3/list")
+      .then()
+      .statusCode(200)
+      .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+      .body("[0].objectKey", equalTo("compressed/README.md"));
+  }
+
+  public static class CompressionProfile implements QuarkusTestProfile
+  {
+    @Override
+    public Map<String, String> getConfigOverrides()
+    {
+      return Map.of("s3.file-management.compression.store", "true",
+        "s3.file-management.compression.threshold", "64");
+    }
+  }
+}
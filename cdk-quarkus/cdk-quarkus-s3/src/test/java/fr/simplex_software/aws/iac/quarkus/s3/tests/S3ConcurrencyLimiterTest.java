@@ -0,0 +1,90 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import org.junit.jupiter.api.*;
+
+import java.time.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class S3ConcurrencyLimiterTest
+{
+  @Test
+  public void testLimit() throws Exception
+  {
+    S3ConcurrencyLimiter limiter = new S3ConcurrencyLimiter(settings(2, Duration.ZERO, 10));
+    assertThat(limiter.acquire(Duration.ZERO)).isEqualTo(1);
+    assertThat(limiter.acquire(Duration.ZERO)).isEqualTo(2);
+    assertThat(limiter.acquire(Duration.ZERO)).isEqualTo(-1);
+    assertThat(limiter.inFlight()).isEqualTo(2);
+    try (ExecutorService executor = Executors.newSingleThreadExecutor())
+    {
+      Future<Long> waiting = executor.submit(() -> limiter.acquire(Duration.ofSeconds(10)));
+      Thread.sleep(100);
+      assertThat(waiting).isNotDone();
+      limiter.release(true);
+      assertThat(waiting.get(10, TimeUnit.SECONDS)).isEqualTo(3);
+    }
+  }
+
+  @Test
+  public void testAdditiveIncrease() throws Exception
+  {
+    S3ConcurrencyLimiter limiter = new S3ConcurrencyLimiter(settings(4, Duration.ZERO, 10));
+    for (int i = 0; i < 4; i++)
+      limiter.acquire(Duration.ZERO);
+    for (int i = 0; i < 4; i++)
+      limiter.release(true);
+    assertThat(limiter.limit()).isCloseTo(4.485, within(0.001));
+    limiter.acquire(Duration.ZERO);
+    limiter.release(true);
+    assertThat(limiter.limit()).as("not increased below half of the limit").isCloseTo(4.485, within(0.001));
+  }
+
+  @Test
+  public void testMultiplicativeDecrease() throws Exception
+  {
+    S3ConcurrencyLimiter limiter = new S3ConcurrencyLimiter(settings(16, Duration.ZERO, 10));
+    long first = limiter.acquire(Duration.ZERO);
+    long second = limiter.acquire(Duration.ZERO);
+    limiter.slowDown(first);
+    assertThat(limiter.limit()).isEqualTo(8);
+    limiter.slowDown(second);
+    assertThat(limiter.limit()).as("once per round trip").isEqualTo(8);
+    limiter.release(false);
+    limiter.release(false);
+    for (int i = 0; i < 4; i++)
+    {
+      long admission = limiter.acquire(Duration.ZERO);
+      limiter.slowDown(admission);
+      limiter.release(false);
+    }
+    assertThat(limiter.limit()).as("not below the minimum").isEqualTo(2);
+  }
+
+  @Test
+  public void testBackoff() throws Exception
+  {
+    S3ConcurrencyLimiter limiter = new S3ConcurrencyLimiter(settings(4, Duration.ofMillis(200), 10));
+    limiter.slowDown(limiter.acquire(Duration.ZERO));
+    limiter.release(false);
+    long start = System.nanoTime();
+    assertThat(limiter.acquire(Duration.ofSeconds(10))).isPositive();
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+  }
+
+  @Test
+  public void testRetryBudget()
+  {
+    S3ConcurrencyLimiter limiter = new S3ConcurrencyLimiter(settings(4, Duration.ZERO, 2));
+    assertThat(limiter.tryRetry()).isTrue();
+    assertThat(limiter.tryRetry()).isTrue();
+    assertThat(limiter.tryRetry()).isFalse();
+  }
+
+  private static S3ConcurrencyLimiter.Settings settings(int initialLimit, Duration backoffBase, int retryBudget)
+  {
+    return new S3ConcurrencyLimiter.Settings(initialLimit, 2, 64, 0.5, backoffBase, Duration.ofSeconds(5), retryBudget, 0);
+  }
+}
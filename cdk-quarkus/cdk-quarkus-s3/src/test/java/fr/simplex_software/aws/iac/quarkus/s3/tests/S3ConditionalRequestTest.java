@@ -0,0 +1,92 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import io.quarkus.test.junit.*;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.*;
+import org.apache.http.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+
+import static io.restassured.RestAssured.*;
+import static org.hamcrest.Matchers.*;
+
+@QuarkusTest
+public class S3ConditionalRequestTest
+{
+  private static final File readme = new File("./src/test/resources/README.md");
+
+  @Test
+  public void testConditionalDownload()
+  {
+    upload("conditional/README.md");
+    String entityTag = given()
+      .pathParam("objectKey", "conditional/README.md")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .header(HttpHeaders.ETAG, notNullValue())
+      .header(HttpHeaders.LAST_MODIFIED, notNullValue())
+      .extract().header(HttpHeaders.ETAG);
+    given()
+      .header(HttpHeaders.IF_NONE_MATCH, entityTag)
+      .pathParam("objectKey", "conditional/README.md")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_NOT_MODIFIED)
+      .body(emptyString());
+    given()
+      .header(HttpHeaders.IF_MODIFIED_SINCE, "Fri, 31 Dec 2100 23:59:59 GMT")
+      .pathParam("objectKey", "conditional/README.md")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_NOT_MODIFIED);
+    given()
+      .header(HttpHeaders.IF_NONE_MATCH, "\"stale\"")
+      .pathParam("objectKey", "conditional/README.md")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_OK);
+  }
+
+  @Test
+  public void testConditionalList()
+  {
+    upload("listed/README-1.md");
+    String entityTag = given()
+      .queryParam("prefix", "listed/")
+      .when().get("/s3/list")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .header(HttpHeaders.ETAG, startsWith("W/"))
+      .extract().header(HttpHeaders.ETAG);
+    given()
+      .header(HttpHeaders.IF_NONE_MATCH, entityTag)
+      .queryParam("prefix", "listed/")
+      .when().get("/s3/list")
+      .then()
+      .statusCode(HttpStatus.SC_NOT_MODIFIED);
+    upload("listed/README-2.md");
+    given()
+      .header(HttpHeaders.IF_NONE_MATCH, entityTag)
+      .queryParam("prefix", "listed/")
+      .when().get("/s3/list")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .header(HttpHeaders.ETAG, not(entityTag))
+      .body("size()", equalTo(2));
+  }
+
+  private void upload(String objectKey)
+  {
+    given()
+      .contentType(MediaType.MULTIPART_FORM_DATA)
+      .multiPart("file", readme)
+      .multiPart("filename", objectKey)
+      .multiPart("mimetype", MediaType.TEXT_PLAIN)
+      .when()
+      .post("/s3/upload")
+      .then()
+      .statusCode(HttpStatus.SC_CREATED);
+  }
+}
@@ -0,0 +1,133 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import io.quarkus.test.junit.*;
+import io.restassured.http.*;
+import jakarta.inject.*;
+import org.apache.http.*;
+import org.eclipse.microprofile.config.inject.*;
+import org.junit.jupiter.api.*;
+import software.amazon.awssdk.core.sync.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+import static io.restassured.RestAssured.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.hamcrest.Matchers.*;
+
+@QuarkusTest
+@TestProfile(S3CopyDeleteTest.CopyDeleteProfile.class)
+public class S3CopyDeleteTest
+{
+  private static final int PART_SIZE = 5 * 1024 * 1024;
+
+  @Inject
+  S3Client s3;
+  @ConfigProperty(name = "bucket.name")
+  String bucketName;
+
+  @Test
+  public void testCopy()
+  {
+    byte[] large = new byte[2 * PART_SIZE + 1024];
+    new Random(8701).nextBytes(large);
+    put("copy/small.txt", "small".getBytes());
+    put("copy/large.bin", large);
+    given()
+      .contentType(ContentType.JSON)
+      .body(List.of(new S3CopyRequest().setSourceKey("copy/small.txt").setObjectKey("copied/small.txt"),
+        new S3CopyRequest().setSourceKey("copy/large.bin").setObjectKey("copied/large.bin")))
+      .when()
+      .post("/s3/copy")
+      .then()
+      .statusCode(HttpStatus.SC_CREATED)
+      .body("status", everyItem(equalTo(HttpStatus.SC_CREATED)));
+    assertThat(s3.getObjectAsBytes(GetObjectRequest.builder().bucket(bucketName).key("copied/small.txt").build()).asUtf8String())
+      .isEqualTo("small");
+    assertThat(s3.getObjectAsBytes(GetObjectRequest.builder().bucket(bucketName).key("copied/large.bin").build()).asByteArray())
+      .isEqualTo(large);
+    assertThat(s3.headObject(HeadObjectRequest.builder().bucket(bucketName).key("copied/large.bin").build()).eTag()).endsWith("-3\"");
+  }
+
+  @Test
+  public void testMove()
+  {
+    put("move/file.txt", "moved".getBytes());
+    given()
+      .contentType(ContentType.JSON)
+      .body(List.of(new S3CopyRequest().setSourceKey("move/file.txt").setObjectKey("moved/file.txt"),
+        new S3CopyRequest().setSourceKey("move/missing.txt").setObjectKey("moved/missing.txt")))
+      .when()
+      .post("/s3/move")
+      .then()
+      .statusCode(207)
+      .body("find { it.sourceKey == 'move/file.txt' }.status", equalTo(HttpStatus.SC_CREATED))
+      .body("find { it.sourceKey == 'move/missing.txt' }.status", equalTo(HttpStatus.SC_NOT_FOUND));
+    assertThat(keys("move/")).isEmpty();
+    assertThat(keys("moved/")).containsExactly("moved/file.txt");
+  }
+
+  @Test
+  public void testDelete()
+  {
+    IntStream.range(0, 5).forEach(i -> put("delete/keys/" + i, new byte[1]));
+    IntStream.range(0, 5).forEach(i -> put("delete/prefix/" + i, new byte[1]));
+    given()
+      .contentType(ContentType.JSON)
+      .body(new S3DeleteRequest().setKeys(List.of("delete/keys/0", "delete/keys/1", "delete/keys/2")))
+      .when()
+      .post("/s3/delete")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .body("objectKey", containsInAnyOrder("delete/keys/0", "delete/keys/1", "delete/keys/2"))
+      .body("status", everyItem(equalTo(HttpStatus.SC_NO_CONTENT)));
+    assertThat(keys("delete/keys/")).containsExactly("delete/keys/3", "delete/keys/4");
+    given()
+      .contentType(ContentType.JSON)
+      .body(new S3DeleteRequest().setPrefix("delete/prefix/"))
+      .when()
+      .post("/s3/delete")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .body("size()", equalTo(5));
+    assertThat(keys("delete/prefix/")).isEmpty();
+    given()
+      .contentType(ContentType.JSON)
+      .body(new S3DeleteRequest().setPrefix(""))
+      .when()
+      .post("/s3/delete")
+      .then()
+      .statusCode(HttpStatus.SC_BAD_REQUEST);
+    given()
+      .contentType(ContentType.JSON)
+      .when()
+      .post("/s3/delete")
+      .then()
+      .statusCode(HttpStatus.SC_BAD_REQUEST);
+  }
+
+  private void put(String key, byte[] content)
+  {
+    s3.putObject(PutObjectRequest.builder().bucket(bucketName).key(key).build(), RequestBody.fromBytes(content));
+  }
+
+  private List<String> keys(String prefix)
+  {
+    return s3.listObjectsV2(ListObjectsV2Request.builder().bucket(bucketName).prefix(prefix).build())
+      .contents().stream().map(S3Object::key).toList();
+  }
+
+  public static class CopyDeleteProfile implements QuarkusTestProfile
+  {
+    @Override
+    public Map<String, String> getConfigOverrides()
+    {
+      return Map.of("s3.file-management.upload.multipart-threshold", String.valueOf(PART_SIZE),
+        "s3.file-management.upload.part-size", String.valueOf(PART_SIZE),
+        "s3.file-management.delete.batch-size", "2");
+    }
+  }
+}
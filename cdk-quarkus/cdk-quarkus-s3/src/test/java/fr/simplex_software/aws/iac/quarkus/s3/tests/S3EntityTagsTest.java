@@ -0,0 +1,65 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import org.junit.jupiter.api.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.time.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class S3EntityTagsTest
+{
+  @Test
+  public void testMatches()
+  {
+    assertThat(S3EntityTags.matches(null, "\"abc\"")).isFalse();
+    assertThat(S3EntityTags.matches("\"abc\"", "\"abc\"")).isTrue();
+    assertThat(S3EntityTags.matches("W/\"abc\"", "\"abc\"")).isTrue();
+    assertThat(S3EntityTags.matches("\"xyz\", W/\"abc\"", "W/\"abc\"")).isTrue();
+    assertThat(S3EntityTags.matches("*", "\"abc\"")).isTrue();
+    assertThat(S3EntityTags.matches("\"xyz\"", "\"abc\"")).isFalse();
+    assertThat(S3EntityTags.strong("W/\"abc\", \"xyz\"")).isEqualTo("\"abc\", \"xyz\"");
+    assertThat(S3EntityTags.strong("\"W/abc\",W/\"xyz\"")).isEqualTo("\"W/abc\", \"xyz\"");
+    assertThat(S3EntityTags.matches("\"W/abc\"", "\"abc\"")).isFalse();
+    assertThat(S3EntityTags.weak("\"abc\"")).isEqualTo("W/\"abc\"");
+    assertThat(S3EntityTags.weak("W/\"abc\"")).isEqualTo("W/\"abc\"");
+  }
+
+  @Test
+  public void testParseHttpDate()
+  {
+    assertThat(S3EntityTags.parseHttpDate("Wed, 21 Oct 2015 07:28:00 GMT")).contains(Instant.parse("2015-10-21T07:28:00Z"));
+    assertThat(S3EntityTags.parseHttpDate("yesterday")).isEmpty();
+    assertThat(S3EntityTags.parseHttpDate(null)).isEmpty();
+  }
+
+  @Test
+  public void testIsNotModified()
+  {
+    Instant lastModified = Instant.parse("2015-10-21T07:28:00.500Z");
+    assertThat(S3EntityTags.isNotModified("W/\"abc\"", null, "\"abc\"", lastModified)).isTrue();
+    assertThat(S3EntityTags.isNotModified("\"xyz\"", "Fri, 31 Dec 2100 23:59:59 GMT", "\"abc\"", lastModified)).isFalse();
+    assertThat(S3EntityTags.isNotModified(null, "Wed, 21 Oct 2015 07:28:00 GMT", "\"abc\"", lastModified)).isTrue();
+    assertThat(S3EntityTags.isNotModified(null, "Wed, 21 Oct 2015 07:27:59 GMT", "\"abc\"", lastModified)).isFalse();
+    assertThat(S3EntityTags.asSent("W/\"abc\"", "\"abc\"")).isEqualTo("W/\"abc\"");
+    assertThat(S3EntityTags.asSent("\"abc\"", "\"abc\"")).isEqualTo("\"abc\"");
+    assertThat(S3EntityTags.asSent("\"xyz\", W/\"abc\"", "\"abc\"")).isEqualTo("W/\"abc\"");
+    assertThat(S3EntityTags.asSent("W/\"abc\"", null)).isNull();
+  }
+
+  @Test
+  public void testListingEntityTag()
+  {
+    ListObjectsV2Response page = ListObjectsV2Response.builder()
+      .contents(S3Object.builder().key("README.md").eTag("\"abc\"").size(675L).lastModified(Instant.EPOCH).build())
+      .build();
+    ListObjectsV2Response changed = page.toBuilder()
+      .contents(S3Object.builder().key("README.md").eTag("\"xyz\"").size(675L).lastModified(Instant.EPOCH).build())
+      .build();
+    String entityTag = S3EntityTags.listing().add(page).entityTag();
+    assertThat(entityTag).startsWith("W/\"");
+    assertThat(S3EntityTags.listing().add(page).entityTag()).isEqualTo(entityTag);
+    assertThat(S3EntityTags.listing().add(changed).entityTag()).isNotEqualTo(entityTag);
+  }
+}
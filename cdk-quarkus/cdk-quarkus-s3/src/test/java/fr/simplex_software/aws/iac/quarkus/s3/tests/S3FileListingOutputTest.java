@@ -0,0 +1,43 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import com.fasterxml.jackson.databind.*;
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import org.junit.jupiter.api.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class S3FileListingOutputTest
+{
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void testKeyOrderWithDelimiter() throws IOException
+  {
+    ListObjectsV2Response firstPage = ListObjectsV2Response.builder()
+      .contents(object("a.txt"), object("c.txt"), object("e.txt"))
+      .commonPrefixes(prefix("b/"), prefix("d/"), prefix("f/"))
+      .build();
+    ListObjectsV2Response nextPage = ListObjectsV2Response.builder()
+      .contents(object("h.txt"))
+      .commonPrefixes(prefix("g/"))
+      .build();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new S3FileListingOutput(objectMapper, firstPage, List.of(nextPage).iterator()).write(output);
+    List<String> keys = objectMapper.readTree(output.toByteArray()).findValuesAsText("objectKey");
+    assertThat(keys).containsExactly("a.txt", "b/", "c.txt", "d/", "e.txt", "f/", "g/", "h.txt");
+  }
+
+  private static S3Object object(String key)
+  {
+    return S3Object.builder().key(key).size(1L).build();
+  }
+
+  private static CommonPrefix prefix(String prefix)
+  {
+    return CommonPrefix.builder().prefix(prefix).build();
+  }
+}
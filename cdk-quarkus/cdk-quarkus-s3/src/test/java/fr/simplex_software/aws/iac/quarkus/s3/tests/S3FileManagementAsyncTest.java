@@ -0,0 +1,132 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import io.quarkus.test.junit.*;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.*;
+import org.apache.http.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+import static io.restassured.RestAssured.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.hamcrest.Matchers.*;
+
+@QuarkusTest
+@TestProfile(S3FileManagementAsyncTest.AsyncProfile.class)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class S3FileManagementAsyncTest
+{
+  private static final File readme = new File("./src/test/resources/README.md");
+
+  @Test
+  @Order(10)
+  public void testUploadFile()
+  {
+    given()
+      .contentType(MediaType.MULTIPART_FORM_DATA)
+      .multiPart("file", readme)
+      .multiPart("filename", "async/README.md")
+      .multiPart("mimetype", MediaType.TEXT_PLAIN)
+      .when()
+      .post("/s3/upload")
+      .then()
+      .statusCode(HttpStatus.SC_CREATED)
+      .header(S3FileManagementApi.UPLOAD_OUTCOME, equalTo(S3FileManagementApi.WRITTEN));
+  }
+
+  @Test
+  @Order(20)
+  public void testUploadFiles() throws IOException
+  {
+    given()
+      .contentType(MediaType.MULTIPART_FORM_DATA)
+      .multiPart("file", "async/batch/README-1.md", Files.readAllBytes(readme.toPath()), MediaType.TEXT_PLAIN)
+      .multiPart("file", "async/batch/README-2.md", Files.readAllBytes(readme.toPath()), MediaType.TEXT_PLAIN)
+      .when()
+      .post("/s3/upload/batch")
+      .then()
+      .statusCode(HttpStatus.SC_CREATED)
+      .body("size()", equalTo(2));
+  }
+
+  @Test
+  @Order(30)
+  public void testDownloadFile() throws IOException
+  {
+    given()
+      .pathParam("objectKey", "async/README.md")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .header(HttpHeaders.CONTENT_LENGTH, equalTo(String.valueOf(readme.length())))
+      .header(HttpHeaders.CONTENT_TYPE, startsWith(MediaType.TEXT_PLAIN))
+      .body(equalTo(Files.readString(readme.toPath())));
+  }
+
+  @Test
+  @Order(40)
+  public void testListFiles()
+  {
+    given()
+      .queryParam("prefix", "async/")
+      .queryParam("delimiter", "/")
+      .when().get("/s3/list")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .body("objectKey", contains("async/README.md", "async/batch/"));
+    given()
+      .queryParam("prefix", "async/batch/")
+      .queryParam("maxKeys", 1)
+      .when().get("/s3/list")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .header(S3FileManagementApi.NEXT_CONTINUATION_TOKEN, notNullValue())
+      .body("size()", equalTo(1))
+      .body("[0].objectKey", equalTo("async/batch/README-1.md"));
+  }
+
+  @Test
+  @Order(50)
+  public void testDownloadArchive() throws IOException
+  {
+    byte[] archive = given()
+      .queryParam("prefix", "async/batch/")
+      .when().get("/s3/archive")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .extract().asByteArray();
+    Map<String, String> entries = new TreeMap<>();
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive)))
+    {
+      for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry())
+        entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+    }
+    assertThat(entries).containsOnlyKeys("async/batch/README-1.md", "async/batch/README-2.md");
+  }
+
+  @Test
+  @Order(60)
+  public void testBlockingOnlyEndpoints()
+  {
+    given()
+      .queryParam("prefix", "async/")
+      .when().get("/s3/index")
+      .then()
+      .statusCode(HttpStatus.SC_NOT_FOUND);
+  }
+
+  public static class AsyncProfile implements QuarkusTestProfile
+  {
+    @Override
+    public Map<String, String> getConfigOverrides()
+    {
+      return Map.of("s3.file-management.mode", "async");
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import fr.simplex_software.aws.iac.quarkus.test_support.*;
+import io.quarkus.test.common.*;
+import io.quarkus.test.junit.*;
+import jakarta.inject.*;
+import jakarta.ws.rs.core.*;
+import org.eclipse.microprofile.rest.client.inject.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Uploads through the client, with the offload enabled, against an {@link S3StubServer},
+ * such that the presigned PUT, and the redirect of the download, go to the stub.
+ */
+@QuarkusTest
+@TestProfile(S3FileManagementClientTest.OffloadProfile.class)
+@QuarkusTestResource(value = S3StubResource.class, restrictToAnnotatedClass = true)
+public class S3FileManagementClientTest
+{
+  private static final File readme = new File("./src/test/resources/README.md");
+
+  @Inject
+  @RestClient
+  S3FileManagementClient s3FileManagementClient;
+  S3StubServer stub;
+
+  @Test
+  public void testUploadFileDirect() throws Exception
+  {
+    try (Response response = s3FileManagementClient.uploadFile(new FileMetadata(readme, "client/README.md", MediaType.TEXT_PLAIN)))
+    {
+      assertThat(response.getStatus()).isEqualTo(Response.Status.CREATED.getStatusCode());
+    }
+    try (Response response = s3FileManagementClient.downloadFile("client/README.md"))
+    {
+      assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+      assertThat(response.readEntity(byte[].class)).isEqualTo(Files.readAllBytes(readme.toPath()));
+    }
+  }
+
+  @Test
+  public void testDeleteFiles()
+  {
+    stub.put("client/delete/a", new byte[1]);
+    stub.put("client/delete/b", new byte[1]);
+    try (Response response = s3FileManagementClient.deleteFiles(new S3DeleteRequest().setPrefix("client/delete/")))
+    {
+      assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+    }
+  }
+
+  public static class OffloadProfile implements QuarkusTestProfile
+  {
+    @Override
+    public Map<String, String> getConfigOverrides()
+    {
+      return Map.of("base_uri/mp-rest/url", "http://localhost:${quarkus.http.test-port}",
+        "quarkus.s3.devservices.enabled", "false",
+        "quarkus.s3.path-style-access", "true",
+        "s3.file-management.offload.enabled", "true",
+        "s3.file-management.offload.download-threshold", "100");
+    }
+  }
+}
@@ -12,7 +12,10 @@ import org.eclipse.microprofile.rest.client.inject.*;
 import org.junit.jupiter.api.*;
 
 import java.io.*;
+import java.nio.charset.*;
 import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
 
 import static io.restassured.RestAssured.*;
 import static org.assertj.core.api.Assertions.*;
@@ -52,6 +55,27 @@ public class S3FileManagementTest
       .body("[0].size", greaterThan(0));
   }
 
+  @Test
+  @Order(25)
+  public void testListFilesWithPrefix()
+  {
+    given()
+      .queryParam("prefix", "READ")
+      .queryParam("maxKeys", 1)
+      .when().get("/s3/list")
+      .then()
+      .statusCode(200)
+      .header(S3FileManagementApi.NEXT_CONTINUATION_TOKEN, nullValue())
+      .body("size()", equalTo(1))
+      .body("[0].objectKey", equalTo("README.md"));
+    given()
+      .queryParam("prefix", "nothing/")
+      .when().get("/s3/list")
+      .then()
+      .statusCode(200)
+      .body("size()", equalTo(0));
+  }
+
   @Test
   @Order(30)
   public void testDownloadFile() throws IOException
@@ -63,4 +87,65 @@ public class S3FileManagementTest
       .statusCode(200)
       .body(equalTo(Files.readString(readme.toPath())));
   }
+
+  @Test
+  @Order(40)
+  public void testUploadFiles() throws IOException
+  {
+    given()
+      .contentType(MediaType.MULTIPART_FORM_DATA)
+      .multiPart("file", "batch/README-1.md", Files.readAllBytes(readme.toPath()), MediaType.TEXT_PLAIN)
+      .multiPart("file", "batch/README-2.md", Files.readAllBytes(readme.toPath()), MediaType.TEXT_PLAIN)
+      .multiPart("file", "AA", Files.readAllBytes(readme.toPath()), MediaType.TEXT_PLAIN)
+      .when()
+      .post("/s3/upload/batch")
+      .then()
+      .statusCode(207)
+      .body("size()", equalTo(3))
+      .body("[0].objectKey", equalTo("batch/README-1.md"))
+      .body("[0].status", equalTo(HttpStatus.SC_CREATED))
+      .body("[0].size", equalTo((int) readme.length()))
+      .body("[0].etag", notNullValue())
+      .body("[1].status", equalTo(HttpStatus.SC_CREATED))
+      .body("[2].status", equalTo(HttpStatus.SC_BAD_REQUEST));
+  }
+
+  @Test
+  @Order(50)
+  public void testDownloadArchive() throws IOException
+  {
+    byte[] archive = given()
+      .queryParam("prefix", "batch/")
+      .when().get("/s3/archive")
+      .then()
+      .statusCode(200)
+      .extract().asByteArray();
+    Map<String, String> entries = new TreeMap<>();
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive)))
+    {
+      for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry())
+        entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+    }
+    assertThat(entries).containsOnlyKeys("batch/README-1.md", "batch/README-2.md");
+    assertThat(entries.values()).containsOnly(Files.readString(readme.toPath()));
+  }
+
+  @Test
+  @Order(50)
+  public void testDownloadArchiveWithDuplicateKeys() throws IOException
+  {
+    byte[] archive = given()
+      .queryParam("key", "batch/README-1.md", "batch/README-2.md", "batch/README-1.md")
+      .when().get("/s3/archive")
+      .then()
+      .statusCode(200)
+      .extract().asByteArray();
+    List<String> names = new ArrayList<>();
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive)))
+    {
+      for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry())
+        names.add(entry.getName());
+    }
+    assertThat(names).containsExactly("batch/README-1.md", "batch/README-2.md");
+  }
 }
@@ -0,0 +1,209 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import org.junit.jupiter.api.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.time.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class S3KeyIndexTest
+{
+  private static final Instant LAST_MODIFIED = Instant.parse("2024-06-01T00:00:00Z");
+  private static final String MD5 = "\"0123456789abcdef0123456789abcdef\"";
+
+  @Test
+  public void testQueries()
+  {
+    ListingS3Client s3 = new ListingS3Client();
+    Map.of("a/1", 10L, "a/2", 40L, "a/3", 30L, "b/1", 20L, "b/2", 50L, "c", 0L).forEach(s3::add);
+    try (S3KeyIndex index = new S3KeyIndex(s3, "bucket", Duration.ZERO))
+    {
+      index.load().join();
+      assertThat(keys(index.prefix("a/", 10))).containsExactly("a/1", "a/2", "a/3");
+      assertThat(keys(index.prefix("a/", 2))).containsExactly("a/1", "a/2");
+      assertThat(keys(index.prefix("d", 10))).isEmpty();
+      assertThat(keys(index.range("a/3", "b/2", 10))).containsExactly("a/3", "b/1");
+      assertThat(keys(index.range(null, "a/2", 10))).containsExactly("a/1");
+      assertThat(keys(index.range("b/2", null, 10))).containsExactly("b/2", "c");
+      assertThat(index.get("b/1")).hasValue(new S3KeyIndex.Entry("b/1", 20, MD5, LAST_MODIFIED));
+      assertThat(index.get("b")).isEmpty();
+      assertThat(keys(index.largest(2))).containsExactly("b/2", "a/2");
+      assertThat(s3.listings).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void testIncrementalUpdates()
+  {
+    ListingS3Client s3 = new ListingS3Client();
+    s3.add("a/1", 1);
+    s3.add("a/2", 2);
+    try (S3KeyIndex index = new S3KeyIndex(s3, "bucket", Duration.ZERO))
+    {
+      index.put("a/0", 100, MD5, LAST_MODIFIED);
+      index.load().join();
+      assertThat(keys(index.prefix("a/", 10))).containsExactly("a/1", "a/2");
+      index.put("a/2", 20, MD5, LAST_MODIFIED);
+      index.put("a/3", 3, MD5, LAST_MODIFIED);
+      index.remove("a/1");
+      assertThat(keys(index.prefix("a/", 10))).containsExactly("a/2", "a/3");
+      assertThat(index.get("a/2").map(S3KeyIndex.Entry::size)).hasValue(20L);
+      assertThat(keys(index.largest(1))).containsExactly("a/2");
+      s3.add("a/4", 4);
+      index.reload();
+      assertThat(keys(index.prefix("a/", 10))).containsExactly("a/1", "a/2", "a/4");
+      assertThat(index.get("a/2").map(S3KeyIndex.Entry::size)).hasValue(2L);
+      assertThat(s3.listings).isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void testReloadReflectsEarlierChanges()
+  {
+    ListingS3Client s3 = new ListingS3Client();
+    s3.add("a", 1);
+    try (S3KeyIndex index = new S3KeyIndex(s3, "bucket", Duration.ZERO))
+    {
+      index.load().join();
+      assertThat(keys(index.prefix("", 10))).containsExactly("a");
+      index.put("b", 2, MD5, LAST_MODIFIED);
+      assertThat(index.pending()).isEqualTo(1);
+      index.reload();
+      assertThat(index.pending()).isZero();
+      assertThat(keys(index.prefix("", 10))).containsExactly("a");
+    }
+  }
+
+  @Test
+  public void testCompaction()
+  {
+    ListingS3Client s3 = new ListingS3Client();
+    try (S3KeyIndex index = new S3KeyIndex(s3, "bucket", Duration.ZERO))
+    {
+      index.load().join();
+      assertThat(index.prefix("", 10)).isEmpty();
+      for (int i = 0; i < 5000; i++)
+        index.put(String.format("key-%05d", i), i, MD5, LAST_MODIFIED);
+      index.remove("key-00000");
+      index.compact().join();
+      assertThat(index.pending()).isLessThan(5000);
+      assertThat(index.footprint()).isPositive();
+      assertThat(keys(index.prefix("key-0", 2))).containsExactly("key-00001", "key-00002");
+      assertThat(keys(index.range("key-04998", null, 10))).containsExactly("key-04998", "key-04999");
+      assertThat(keys(index.largest(2))).containsExactly("key-04999", "key-04998");
+      assertThat(index.get("key-00000")).isEmpty();
+      assertThat(index.get("key-02500").map(S3KeyIndex.Entry::eTag)).hasValue(MD5);
+    }
+  }
+
+  @Test
+  public void testLargestWhenTheLargestHaveChanged()
+  {
+    ListingS3Client s3 = new ListingS3Client();
+    for (int i = 0; i < S3KeyIndex.MAX_LARGEST + 10; i++)
+      s3.add(String.format("key-%05d", i), i);
+    try (S3KeyIndex index = new S3KeyIndex(s3, "bucket", Duration.ZERO))
+    {
+      index.load().join();
+      assertThat(keys(index.largest(1))).containsExactly(String.format("key-%05d", S3KeyIndex.MAX_LARGEST + 9));
+      for (int i = 10; i < S3KeyIndex.MAX_LARGEST + 10; i++)
+        index.remove(String.format("key-%05d", i));
+      assertThat(keys(index.largest(3))).containsExactly("key-00009", "key-00008", "key-00007");
+    }
+  }
+
+  @Test
+  public void testETags()
+  {
+    ListingS3Client s3 = new ListingS3Client();
+    List<String> eTags = Arrays.asList(MD5, "\"0123456789abcdef0123456789abcdef-12\"", "\"0123456789ABCDEF0123456789ABCDEF\"", "\"other\"", null);
+    for (int i = 0; i < eTags.size(); i++)
+      s3.objects.put("key-" + i, S3Object.builder().key("key-" + i).size(1L).eTag(eTags.get(i)).build());
+    try (S3KeyIndex index = new S3KeyIndex(s3, "bucket", Duration.ZERO))
+    {
+      index.load().join();
+      assertThat(index.prefix("key-", 10)).extracting(S3KeyIndex.Entry::eTag).containsExactlyElementsOf(eTags);
+      assertThat(index.get("key-0").map(S3KeyIndex.Entry::lastModified)).isEmpty();
+    }
+  }
+
+  @Test
+  public void testS3Order()
+  {
+    ListingS3Client s3 = new ListingS3Client();
+    for (String key : List.of("a\uFFFD", "a\uD83D\uDE00", "a", "ab"))
+      s3.add(key, 1);
+    try (S3KeyIndex index = new S3KeyIndex(s3, "bucket", Duration.ZERO))
+    {
+      index.load().join();
+      assertThat(keys(index.prefix("a", 10))).containsExactly("a", "ab", "a\uFFFD", "a\uD83D\uDE00");
+      assertThat(keys(index.range("a\uFFFD", null, 10))).containsExactly("a\uFFFD", "a\uD83D\uDE00");
+      assertThat(index.get("a\uD83D\uDE00")).isPresent();
+    }
+  }
+
+  @Test
+  public void testQueriesWaitForTheBackgroundLoad()
+  {
+    ListingS3Client s3 = new ListingS3Client();
+    s3.add("a", 1);
+    try (S3KeyIndex index = new S3KeyIndex(s3, "bucket", Duration.ZERO))
+    {
+      assertThat(index.isLoaded()).isFalse();
+      assertThatIllegalStateException().isThrownBy(() -> index.prefix("", 10));
+      index.load().join();
+      assertThat(index.isLoaded()).isTrue();
+      assertThat(keys(index.prefix("", 10))).containsExactly("a");
+      assertThat(index.load()).isCompleted();
+      assertThat(s3.listings).isEqualTo(1);
+    }
+  }
+
+  private static List<String> keys(List<S3KeyIndex.Entry> entries)
+  {
+    return entries.stream().map(S3KeyIndex.Entry::key).toList();
+  }
+
+  private static class ListingS3Client implements S3Client
+  {
+    private static final int PAGE_SIZE = 2;
+    private final NavigableMap<String, S3Object> objects = new TreeMap<>(S3KeyIndex::compareKeys);
+    private int listings;
+
+    private void add(String key, long size)
+    {
+      objects.put(key, S3Object.builder().key(key).size(size).eTag(MD5).lastModified(LAST_MODIFIED).build());
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2(ListObjectsV2Request request)
+    {
+      if (request.continuationToken() == null)
+        listings++;
+      Collection<S3Object> remaining = request.continuationToken() == null ? objects.values()
+        : objects.tailMap(request.continuationToken(), false).values();
+      List<S3Object> contents = remaining.stream().limit(PAGE_SIZE).toList();
+      boolean truncated = remaining.size() > PAGE_SIZE;
+      return ListObjectsV2Response.builder()
+        .contents(contents)
+        .isTruncated(truncated)
+        .nextContinuationToken(truncated ? contents.get(contents.size() - 1).key() : null)
+        .build();
+    }
+
+    @Override
+    public String serviceName()
+    {
+      return SERVICE_NAME;
+    }
+
+    @Override
+    public void close()
+    {
+    }
+  }
+}
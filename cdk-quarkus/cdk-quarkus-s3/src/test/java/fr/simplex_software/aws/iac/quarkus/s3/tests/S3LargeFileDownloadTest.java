@@ -0,0 +1,94 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import io.quarkus.test.common.http.*;
+import io.quarkus.test.junit.*;
+import jakarta.inject.*;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.*;
+import org.eclipse.microprofile.config.inject.*;
+import org.junit.jupiter.api.*;
+import software.amazon.awssdk.core.sync.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.net.*;
+import java.net.http.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Runs in its own surefire execution with a small heap (see the module's POM), such
+ * that downloading an object several times larger than the heap only succeeds if the
+ * object is streamed end to end.
+ */
+@QuarkusTest
+public class S3LargeFileDownloadTest
+{
+  private static final String OBJECT_KEY = "large-file.bin";
+  private static final int HEAP_FACTOR = 4;
+
+  @Inject
+  S3Client s3;
+  @ConfigProperty(name = "bucket.name")
+  String bucketName;
+  @TestHTTPResource("/s3/download/" + OBJECT_KEY)
+  URI downloadUri;
+
+  @Test
+  public void testDownloadFileLargerThanHeap() throws Exception
+  {
+    long size = HEAP_FACTOR * Runtime.getRuntime().maxMemory();
+    s3.putObject(PutObjectRequest.builder().bucket(bucketName).key(OBJECT_KEY).build(),
+      RequestBody.fromContentProvider(() -> new PatternInputStream(size), size, MediaType.APPLICATION_OCTET_STREAM));
+    HttpResponse<InputStream> response = HttpClient.newHttpClient()
+      .send(HttpRequest.newBuilder(downloadUri).build(), HttpResponse.BodyHandlers.ofInputStream());
+    assertThat(response.statusCode()).isEqualTo(Response.Status.OK.getStatusCode());
+    assertThat(response.headers().firstValueAsLong(HttpHeaders.CONTENT_LENGTH)).hasValue(size);
+    assertThat(response.headers().firstValue(HttpHeaders.CONTENT_DISPOSITION)).hasValueSatisfying(cd -> assertThat(cd).contains(OBJECT_KEY));
+    long position = 0;
+    try (InputStream body = response.body())
+    {
+      byte[] chunk = new byte[65536];
+      int read;
+      while ((read = body.read(chunk)) != -1)
+        for (int i = 0; i < read; i++, position++)
+          if (chunk[i] != PatternInputStream.byteAt(position))
+            fail("Unexpected byte at position %d", position);
+    }
+    assertThat(position).isEqualTo(size);
+  }
+
+  private static class PatternInputStream extends InputStream
+  {
+    private final long size;
+    private long position;
+
+    private PatternInputStream(long size)
+    {
+      this.size = size;
+    }
+
+    private static byte byteAt(long position)
+    {
+      return (byte) (position % 251);
+    }
+
+    @Override
+    public int read()
+    {
+      return position < size ? byteAt(position++) & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length)
+    {
+      if (position >= size)
+        return -1;
+      int count = (int) Math.min(length, size - position);
+      for (int i = 0; i < count; i++)
+        buffer[offset + i] = byteAt(position++);
+      return count;
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import io.quarkus.test.junit.*;
+import jakarta.inject.*;
+import jakarta.ws.rs.core.*;
+import org.apache.http.*;
+import org.eclipse.microprofile.config.inject.*;
+import org.junit.jupiter.api.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+
+import static io.restassured.RestAssured.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.hamcrest.Matchers.*;
+
+@QuarkusTest
+public class S3MetricsTest
+{
+  @Inject
+  S3Client s3;
+  @ConfigProperty(name = "bucket.name")
+  String bucketName;
+
+  @Test
+  public void testMetrics()
+  {
+    given()
+      .contentType(MediaType.MULTIPART_FORM_DATA)
+      .multiPart("file", new File("./src/test/resources/README.md"))
+      .multiPart("filename", "metrics/README.md")
+      .multiPart("mimetype", MediaType.TEXT_PLAIN)
+      .when()
+      .post("/s3/upload")
+      .then()
+      .statusCode(HttpStatus.SC_CREATED);
+    given()
+      .queryParam("prefix", "metrics/")
+      .when().get("/s3/list")
+      .then()
+      .statusCode(200);
+    given()
+      .pathParam("objectKey", "metrics/README.md")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(200);
+    assertThatThrownBy(() -> s3.getObject(GetObjectRequest.builder().bucket(bucketName).key("metrics/missing").build()))
+      .isInstanceOf(NoSuchKeyException.class);
+    given()
+      .when().get("/q/metrics")
+      .then()
+      .statusCode(200)
+      .body(containsString("s3_client_requests_seconds_bucket{operation=\"PutObject\",outcome=\"SUCCESS\""))
+      .body(containsString("s3_client_bytes_uploaded_bytes_total{operation=\"PutObject\"}"))
+      .body(containsString("s3_client_bytes_downloaded_bytes_total{operation=\"GetObject\"}"))
+      .body(containsString("s3_client_list_keys_count{operation=\"ListObjectsV2\"}"))
+      .body(containsString("s3_client_errors_total{error_code=\"NoSuchKey\",operation=\"GetObject\"}"))
+      .body(containsString("s3_client_requests_in_flight"))
+      .body(containsString("s3_client_admission_limit{operation=\"PutObject\",prefix=\"metrics/\"}"))
+      .body(containsString("s3_client_admission_queue_seconds_count{operation=\"PutObject\",outcome=\"ADMITTED\",prefix=\"metrics/\"}"))
+      .body(containsString("http_server_requests_seconds_bucket{method=\"POST\""));
+  }
+}
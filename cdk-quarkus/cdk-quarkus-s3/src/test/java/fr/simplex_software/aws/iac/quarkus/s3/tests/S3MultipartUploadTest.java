@@ -0,0 +1,68 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import io.quarkus.test.junit.*;
+import jakarta.inject.*;
+import jakarta.ws.rs.core.*;
+import org.apache.http.*;
+import org.eclipse.microprofile.config.inject.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static io.restassured.RestAssured.*;
+import static org.assertj.core.api.Assertions.*;
+
+@QuarkusTest
+@TestProfile(S3MultipartUploadTest.MultipartProfile.class)
+public class S3MultipartUploadTest
+{
+  private static final int PART_SIZE = 5 * 1024 * 1024;
+
+  @Inject
+  S3Client s3;
+  @ConfigProperty(name = "bucket.name")
+  String bucketName;
+
+  @Test
+  public void testMultipartUpload(@TempDir Path tempDir) throws IOException
+  {
+    File largeFile = tempDir.resolve("large-file.bin").toFile();
+    byte[] part = new byte[PART_SIZE];
+    new Random(8701).nextBytes(part);
+    try (OutputStream os = new FileOutputStream(largeFile))
+    {
+      for (int i = 0; i < 3; i++)
+        os.write(part);
+      os.write(part, 0, 1024);
+    }
+    given()
+      .contentType(MediaType.MULTIPART_FORM_DATA)
+      .multiPart("file", largeFile)
+      .multiPart("filename", "large-file.bin")
+      .multiPart("mimetype", MediaType.APPLICATION_OCTET_STREAM)
+      .when()
+      .post("/s3/upload")
+      .then()
+      .statusCode(HttpStatus.SC_CREATED);
+    HeadObjectResponse head = s3.headObject(HeadObjectRequest.builder().bucket(bucketName).key("large-file.bin").build());
+    assertThat(head.contentLength()).isEqualTo(largeFile.length());
+    assertThat(head.eTag()).endsWith("-4\"");
+    assertThat(s3.listMultipartUploads(ListMultipartUploadsRequest.builder().bucket(bucketName).build()).uploads()).isEmpty();
+  }
+
+  public static class MultipartProfile implements QuarkusTestProfile
+  {
+    @Override
+    public Map<String, String> getConfigOverrides()
+    {
+      return Map.of("s3.file-management.upload.multipart-threshold", String.valueOf(PART_SIZE),
+        "s3.file-management.upload.part-size", String.valueOf(PART_SIZE),
+        "s3.file-management.upload.concurrency", "2");
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.simple.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import software.amazon.awssdk.core.*;
+import software.amazon.awssdk.http.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class S3ObjectCacheTest
+{
+  @Test
+  public void testLeastRecentlyUsedEviction(@TempDir Path directory) throws IOException
+  {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    try (S3ObjectCache cache = new S3ObjectCache(directory, 300, 200, Duration.ZERO, registry))
+    {
+      S3ObjectCache.Entry first = cache.put("first", object("\"1\"", 100)).orElseThrow();
+      cache.put("second", object("\"2\"", 100));
+      assertThat(Files.size(first.file())).isEqualTo(100);
+      assertThat(cache.get("first")).isPresent();
+      cache.put("third", object("\"3\"", 100));
+      assertThat(cache.size()).isEqualTo(300);
+      cache.put("fourth", object("\"4\"", 100));
+      assertThat(cache.get("first")).isPresent();
+      assertThat(cache.get("second")).isEmpty();
+      assertThat(cache.entries()).isEqualTo(3);
+      assertThat(cache.put("large", object("\"5\"", 201))).isEmpty();
+      assertThat(registry.counter("s3.cache.evictions").count()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void testInvalidateAndReplace(@TempDir Path directory) throws IOException
+  {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    try (S3ObjectCache cache = new S3ObjectCache(directory, 1000, 1000, Duration.ZERO, registry))
+    {
+      cache.put("key", object("\"1\"", 100));
+      cache.put("key", object("\"2\"", 50));
+      assertThat(cache.get("key").orElseThrow().metadata().eTag()).isEqualTo("\"2\"");
+      assertThat(cache.size()).isEqualTo(50);
+      cache.invalidate("key");
+      assertThat(cache.get("key")).isEmpty();
+      assertThat(cache.size()).isZero();
+      cache.put("key", object("\"3\"", 100));
+      assertThat(cache.put("key", object("\"4\"", 1001))).isEmpty();
+      assertThat(cache.get("key")).isEmpty();
+      assertThat(cache.size()).isZero();
+      cache.hit();
+      cache.hit();
+      cache.hit();
+      cache.miss();
+      assertThat(registry.get("s3.cache.hit.ratio").gauge().value()).isEqualTo(0.75);
+    }
+  }
+
+  @Test
+  public void testValidityWindow(@TempDir Path directory) throws IOException
+  {
+    try (S3ObjectCache cache = new S3ObjectCache(directory, 1000, 1000, Duration.ofMinutes(1), new SimpleMeterRegistry());
+         S3ObjectCache expiring = new S3ObjectCache(directory.resolve("expiring"), 1000, 1000, Duration.ZERO, new SimpleMeterRegistry()))
+    {
+      S3ObjectCache.Entry entry = cache.put("key", object("\"1\"", 100)).orElseThrow();
+      assertThat(cache.isFresh(entry)).isTrue();
+      S3ObjectCache.Entry stale = expiring.put("key", object("\"1\"", 100)).orElseThrow();
+      assertThat(expiring.isFresh(stale)).isFalse();
+      S3ObjectCache.Entry revalidated = expiring.revalidate("key", stale);
+      assertThat(revalidated.validated()).isGreaterThanOrEqualTo(stale.validated());
+      assertThat(expiring.get("key")).contains(revalidated);
+      assertThat(revalidated.file()).isEqualTo(stale.file());
+    }
+  }
+
+  private static ResponseInputStream<GetObjectResponse> object(String entityTag, int length)
+  {
+    GetObjectResponse response = GetObjectResponse.builder().eTag(entityTag).contentLength((long) length).build();
+    return new ResponseInputStream<>(response, AbortableInputStream.create(new ByteArrayInputStream(new byte[length])));
+  }
+}
@@ -0,0 +1,115 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import io.quarkus.test.junit.*;
+import io.restassured.http.*;
+import jakarta.ws.rs.core.HttpHeaders;
+import org.apache.http.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static io.restassured.RestAssured.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.hamcrest.Matchers.*;
+
+@QuarkusTest
+@TestProfile(S3PresignedTransferTest.OffloadProfile.class)
+public class S3PresignedTransferTest
+{
+  private static final File readme = new File("./src/test/resources/README.md");
+  private static final int LARGE_FILE_SIZE = 6 * 1024 * 1024;
+
+  @Test
+  public void testPresignedUploadAndDownload() throws IOException
+  {
+    S3PresignedUpload upload = presign("offload/README.md", readme);
+    assertThat(upload.getUploadId()).isNull();
+    assertThat(upload.getParts()).hasSize(1);
+    complete(S3PresignedTransfers.send(upload, readme));
+    given()
+      .redirects().follow(false)
+      .pathParam("objectKey", "offload/README.md")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_TEMPORARY_REDIRECT)
+      .header(HttpHeaders.LOCATION, containsString("X-Amz-Signature="))
+      .header(HttpHeaders.LOCATION, containsString("response-content-disposition="));
+    given()
+      .pathParam("objectKey", "offload/README.md")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .body(equalTo(Files.readString(readme.toPath())));
+  }
+
+  @Test
+  public void testPresignedMultipartUpload(@TempDir Path tempDir) throws IOException
+  {
+    File large = tempDir.resolve("large.bin").toFile();
+    try (RandomAccessFile file = new RandomAccessFile(large, "rw"))
+    {
+      file.setLength(LARGE_FILE_SIZE);
+    }
+    S3PresignedUpload upload = presign("offload/large.bin", large);
+    assertThat(upload.getUploadId()).isNotNull();
+    assertThat(upload.getParts()).hasSize(2);
+    assertThat(upload.getParts().get(1).getOffset() + upload.getParts().get(1).getLength()).isEqualTo(LARGE_FILE_SIZE);
+    complete(S3PresignedTransfers.send(upload, large, 1));
+    byte[] downloaded = given()
+      .pathParam("objectKey", "offload/large.bin")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .extract().asByteArray();
+    assertThat(downloaded).hasSize(LARGE_FILE_SIZE);
+  }
+
+  @Test
+  public void testPresignedUploadValidation()
+  {
+    given()
+      .contentType(ContentType.JSON)
+      .body(new S3PresignedUploadRequest().setFilename("AA").setMimetype("text/plain").setSize(readme.length()))
+      .when().post("/s3/upload/presigned")
+      .then()
+      .statusCode(HttpStatus.SC_BAD_REQUEST);
+  }
+
+  private S3PresignedUpload presign(String objectKey, File file)
+  {
+    return given()
+      .contentType(ContentType.JSON)
+      .body(new S3PresignedUploadRequest().setFilename(objectKey).setMimetype("application/octet-stream").setSize(file.length()))
+      .when().post("/s3/upload/presigned")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .extract().as(S3PresignedUpload.class);
+  }
+
+  private void complete(S3PresignedUpload upload)
+  {
+    assertThat(upload.getParts()).allSatisfy(part -> assertThat(part.getEtag()).isNotNull());
+    given()
+      .contentType(ContentType.JSON)
+      .body(upload)
+      .when().post("/s3/upload/presigned/complete")
+      .then()
+      .statusCode(HttpStatus.SC_CREATED);
+  }
+
+  public static class OffloadProfile implements QuarkusTestProfile
+  {
+    @Override
+    public Map<String, String> getConfigOverrides()
+    {
+      return Map.of("s3.file-management.offload.enabled", "true",
+        "s3.file-management.offload.download-threshold", "100",
+        "s3.file-management.upload.multipart-threshold", "5242880",
+        "s3.file-management.upload.part-size", "5242880");
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import io.quarkus.test.junit.*;
+import jakarta.ws.rs.core.*;
+import org.apache.http.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static io.restassured.RestAssured.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.hamcrest.Matchers.*;
+
+@QuarkusTest
+@TestProfile(S3StreamingUploadTest.StreamingProfile.class)
+public class S3StreamingUploadTest
+{
+  private static final File readme = new File("./src/test/resources/README.md");
+  private static final int LARGE_BODY_SIZE = 8 * 1024 * 1024;
+  private static final int MAX_BODY_SIZE = 1024 * 1024;
+
+  @Test
+  public void testStreamingUpload() throws IOException
+  {
+    given()
+      .contentType(MediaType.TEXT_PLAIN)
+      .body(Files.readAllBytes(readme.toPath()))
+      .pathParam("objectKey", "README-streamed.md")
+      .when().put("/s3/upload/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_CREATED)
+      .header(S3FileManagementApi.UPLOAD_OUTCOME, equalTo(S3FileManagementApi.WRITTEN));
+    given()
+      .pathParam("objectKey", "README-streamed.md")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .body(equalTo(Files.readString(readme.toPath())));
+  }
+
+  @Test
+  public void testStreamingMultipartUpload()
+  {
+    given()
+      .contentType(MediaType.APPLICATION_OCTET_STREAM)
+      .body(new ByteArrayInputStream(new byte[LARGE_BODY_SIZE]))
+      .pathParam("objectKey", "large-streamed.bin")
+      .when().put("/s3/upload/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_CREATED);
+    byte[] downloaded = given()
+      .pathParam("objectKey", "large-streamed.bin")
+      .when().get("/s3/download/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_OK)
+      .extract().asByteArray();
+    assertThat(downloaded).hasSize(LARGE_BODY_SIZE);
+  }
+
+  @Test
+  public void testBodyLimitOfTheOtherRequests()
+  {
+    given()
+      .contentType(MediaType.APPLICATION_JSON)
+      .body(new byte[MAX_BODY_SIZE + 1])
+      .when().post("/s3/delete")
+      .then()
+      .statusCode(HttpStatus.SC_REQUEST_TOO_LONG);
+  }
+
+  @Test
+  public void testStreamingUploadValidation()
+  {
+    given()
+      .contentType(MediaType.TEXT_PLAIN)
+      .body("content")
+      .pathParam("objectKey", "AA")
+      .when().put("/s3/upload/{objectKey}")
+      .then()
+      .statusCode(HttpStatus.SC_BAD_REQUEST);
+  }
+
+  public static class StreamingProfile implements QuarkusTestProfile
+  {
+    @Override
+    public Map<String, String> getConfigOverrides()
+    {
+      return Map.of("s3.file-management.upload.part-size", "5242880",
+        "s3.file-management.max-body-size", String.valueOf(MAX_BODY_SIZE));
+    }
+  }
+}
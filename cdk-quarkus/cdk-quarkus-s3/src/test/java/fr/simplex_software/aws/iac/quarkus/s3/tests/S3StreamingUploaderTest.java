@@ -0,0 +1,104 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import org.junit.jupiter.api.*;
+import software.amazon.awssdk.core.sync.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class S3StreamingUploaderTest
+{
+  private static final int PART_SIZE = 5 * 1024 * 1024;
+  private static final PutObjectRequest REQUEST = PutObjectRequest.builder().bucket("bucket").key("key").build();
+
+  @Test
+  public void testSinglePut() throws IOException
+  {
+    RecordingS3Client s3 = new RecordingS3Client();
+    try (S3StreamingUploader uploader = new S3StreamingUploader(s3, PART_SIZE, 2))
+    {
+      assertThat(uploader.upload(REQUEST, new ByteArrayInputStream(new byte[1024]), 1024)).isEqualTo("\"put\"");
+      assertThat(uploader.upload(REQUEST, new ByteArrayInputStream(new byte[1024]), S3StreamingUploader.UNKNOWN_LENGTH)).isEqualTo("\"put\"");
+      assertThat(s3.puts).containsExactly(1024L, 1024L);
+      assertThat(s3.parts).isEmpty();
+    }
+  }
+
+  @Test
+  public void testMultipartUploadOfUnknownLength() throws IOException
+  {
+    RecordingS3Client s3 = new RecordingS3Client();
+    try (S3StreamingUploader uploader = new S3StreamingUploader(s3, PART_SIZE, 2))
+    {
+      long length = 2L * PART_SIZE + 1;
+      assertThat(uploader.upload(REQUEST, new ByteArrayInputStream(new byte[(int) length]), S3StreamingUploader.UNKNOWN_LENGTH))
+        .isEqualTo("\"complete\"");
+      assertThat(s3.puts).isEmpty();
+      assertThat(s3.parts).containsOnlyKeys(1, 2, 3).containsEntry(1, (long) PART_SIZE).containsEntry(3, 1L);
+      assertThat(s3.completed).containsExactly(1, 2, 3);
+    }
+  }
+
+  private static class RecordingS3Client implements S3Client
+  {
+    private final List<Long> puts = new ArrayList<>();
+    private final Map<Integer, Long> parts = new ConcurrentHashMap<>();
+    private final List<Integer> completed = new ArrayList<>();
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest request, RequestBody requestBody)
+    {
+      puts.add(length(requestBody));
+      return PutObjectResponse.builder().eTag("\"put\"").build();
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request)
+    {
+      return CreateMultipartUploadResponse.builder().uploadId("upload").build();
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody requestBody)
+    {
+      parts.put(request.partNumber(), length(requestBody));
+      return UploadPartResponse.builder().eTag("\"" + request.partNumber() + "\"").build();
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request)
+    {
+      request.multipartUpload().parts().forEach(part -> completed.add(part.partNumber()));
+      return CompleteMultipartUploadResponse.builder().eTag("\"complete\"").build();
+    }
+
+    @Override
+    public String serviceName()
+    {
+      return SERVICE_NAME;
+    }
+
+    @Override
+    public void close()
+    {
+    }
+
+    private static long length(RequestBody requestBody)
+    {
+      try (InputStream body = requestBody.contentStreamProvider().newStream())
+      {
+        return body.transferTo(OutputStream.nullOutputStream());
+      }
+      catch (IOException ex)
+      {
+        throw new UncheckedIOException(ex);
+      }
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package fr.simplex_software.aws.iac.quarkus.s3.tests;
+
+import fr.simplex_software.aws.iac.quarkus.s3.*;
+import io.quarkus.test.junit.*;
+import jakarta.ws.rs.core.*;
+import org.apache.http.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static io.restassured.RestAssured.*;
+import static org.hamcrest.Matchers.*;
+
+@QuarkusTest
+@TestProfile(S3UploadDeduplicationTest.DedupProfile.class)
+public class S3UploadDeduplicationTest
+{
+  private static final File readme = new File("./src/test/resources/README.md");
+
+  @Test
+  public void testDeduplicatedUpload(@TempDir Path tempDir) throws IOException
+  {
+    upload(readme, HttpStatus.SC_CREATED, S3FileManagementApi.WRITTEN);
+    upload(readme, HttpStatus.SC_OK, S3FileManagementApi.DEDUPLICATED);
+    File changed = tempDir.resolve("README.md").toFile();
+    Files.writeString(changed.toPath(), Files.readString(readme.toPath()) + "changed");
+    upload(changed, HttpStatus.SC_CREATED, S3FileManagementApi.WRITTEN);
+    upload(changed, HttpStatus.SC_OK, S3FileManagementApi.DEDUPLICATED);
+  }
+
+  private void upload(File file, int status, String outcome)
+  {
+    given()
+      .contentType(MediaType.MULTIPART_FORM_DATA)
+      .multiPart("file", file)
+      .multiPart("filename", "dedup/README.md")
+      .multiPart("mimetype", MediaType.TEXT_PLAIN)
+      .when()
+      .post("/s3/upload")
+      .then()
+      .statusCode(status)
+      .header(S3FileManagementApi.UPLOAD_OUTCOME, equalTo(outcome));
+  }
+
+  public static class DedupProfile implements QuarkusTestProfile
+  {
+    @Override
+    public Map<String, String> getConfigOverrides()
+    {
+      return Map.of("s3.file-management.upload.dedup", "true");
+    }
+  }
+}
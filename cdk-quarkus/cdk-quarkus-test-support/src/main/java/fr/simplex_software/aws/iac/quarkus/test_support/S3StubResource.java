@@ -0,0 +1,49 @@
+package fr.simplex_software.aws.iac.quarkus.test_support;
+
+import io.quarkus.test.common.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Serves the application's S3 calls from an in-process {@link S3StubServer}, such that the
+ * tests run offline, the load tests only measuring the application. It's injected into
+ * the test's {@code S3StubServer} field, if any. The application is to disable the S3
+ * dev services and to use path style requests.
+ */
+public class S3StubResource implements QuarkusTestResourceLifecycleManager
+{
+  private S3StubServer server;
+
+  @Override
+  public Map<String, String> start()
+  {
+    try
+    {
+      server = new S3StubServer();
+    }
+    catch (IOException ex)
+    {
+      throw new UncheckedIOException(ex);
+    }
+    return Map.of("quarkus.s3.endpoint-override", server.endpoint().toString(),
+      "quarkus.s3.aws.region", "us-east-1",
+      "quarkus.s3.aws.credentials.type", "static",
+      "quarkus.s3.aws.credentials.static-provider.access-key-id", "stub",
+      "quarkus.s3.aws.credentials.static-provider.secret-access-key", "stub",
+      "bucket.name", S3StubServer.BUCKET);
+  }
+
+  @Override
+  public void inject(TestInjector testInjector)
+  {
+    testInjector.injectIntoFields(server, new TestInjector.MatchesType(S3StubServer.class));
+  }
+
+  @Override
+  public void stop()
+  {
+    if (server != null)
+      server.close();
+  }
+}
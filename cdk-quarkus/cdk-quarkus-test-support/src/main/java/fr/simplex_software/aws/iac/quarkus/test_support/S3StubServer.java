@@ -0,0 +1,267 @@
+package fr.simplex_software.aws.iac.quarkus.test_support;
+
+import com.sun.net.httpserver.*;
+import org.w3c.dom.*;
+import org.xml.sax.*;
+
+import javax.xml.parsers.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.security.*;
+import java.time.*;
+import java.time.format.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A local, S3-compatible HTTP stub, such that the SDK's HTTP transports may be compared
+ * on the wire without the network noise of a real endpoint. It serves path style
+ * requests to one in-memory bucket: PUT, GET and HEAD of objects, ListObjectsV2 and
+ * DeleteObjects, decoding the {@code aws-chunked} bodies sent by the SDK and ignoring the
+ * signatures.
+ */
+public class S3StubServer implements Closeable
+{
+  public static final String BUCKET = "benchmark";
+  private static final String LAST_MODIFIED = "2024-06-01T00:00:00.000Z";
+  private static final String LAST_MODIFIED_HTTP = DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.parse(LAST_MODIFIED).atZone(ZoneOffset.UTC));
+  private static final int MAX_KEYS = 1000;
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final ConcurrentSkipListMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+
+  private record StoredObject(byte[] content, String eTag)
+  {
+  }
+
+  public S3StubServer() throws IOException
+  {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  public URI endpoint()
+  {
+    return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+  }
+
+  public void put(String key, byte[] content)
+  {
+    objects.put(key, new StoredObject(content, "\"" + HexFormat.of().formatHex(md5().digest(content)) + "\""));
+  }
+
+  @Override
+  public void close()
+  {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException
+  {
+    try (exchange)
+    {
+      String path = exchange.getRequestURI().getPath();
+      String key = path.length() > BUCKET.length() + 2 ? path.substring(BUCKET.length() + 2) : null;
+      switch (exchange.getRequestMethod())
+      {
+        case "PUT" -> putObject(exchange, key);
+        case "GET" ->
+        {
+          if (key == null)
+            listObjects(exchange);
+          else
+            getObject(exchange, key, true);
+        }
+        case "HEAD" -> getObject(exchange, key, false);
+        case "POST" ->
+        {
+          if (key == null && query(exchange.getRequestURI()).containsKey("delete"))
+            deleteObjects(exchange);
+          else
+            exchange.sendResponseHeaders(405, -1);
+        }
+        default -> exchange.sendResponseHeaders(405, -1);
+      }
+    }
+  }
+
+  private void putObject(HttpExchange exchange, String key) throws IOException
+  {
+    put(key, body(exchange));
+    exchange.getResponseHeaders().set("ETag", objects.get(key).eTag());
+    exchange.sendResponseHeaders(200, -1);
+  }
+
+  private void getObject(HttpExchange exchange, String key, boolean withContent) throws IOException
+  {
+    StoredObject object = key == null ? null : objects.get(key);
+    if (object == null)
+    {
+      error(exchange, 404, "NoSuchKey");
+      return;
+    }
+    Headers headers = exchange.getResponseHeaders();
+    headers.set("ETag", object.eTag());
+    headers.set("Last-Modified", LAST_MODIFIED_HTTP);
+    headers.set("Content-Type", "application/octet-stream");
+    if (!withContent)
+    {
+      headers.set("Content-Length", String.valueOf(object.content().length));
+      exchange.sendResponseHeaders(200, -1);
+      return;
+    }
+    exchange.sendResponseHeaders(200, object.content().length);
+    exchange.getResponseBody().write(object.content());
+  }
+
+  private void listObjects(HttpExchange exchange) throws IOException
+  {
+    Map<String, String> query = query(exchange.getRequestURI());
+    String prefix = query.getOrDefault("prefix", "");
+    int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", String.valueOf(MAX_KEYS)));
+    String from = query.getOrDefault("continuation-token", prefix);
+    StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+      .append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+      .append("<Name>").append(BUCKET).append("</Name><Prefix>").append(escape(prefix)).append("</Prefix>");
+    int count = 0;
+    String next = null;
+    for (Map.Entry<String, StoredObject> entry : objects.tailMap(from, true).entrySet())
+    {
+      if (!entry.getKey().startsWith(prefix))
+        break;
+      if (count == maxKeys)
+      {
+        next = entry.getKey();
+        break;
+      }
+      xml.append("<Contents><Key>").append(escape(entry.getKey())).append("</Key><LastModified>").append(LAST_MODIFIED)
+        .append("</LastModified><ETag>").append(escape(entry.getValue().eTag())).append("</ETag><Size>")
+        .append(entry.getValue().content().length).append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+      count++;
+    }
+    xml.append("<KeyCount>").append(count).append("</KeyCount><MaxKeys>").append(maxKeys).append("</MaxKeys><IsTruncated>")
+      .append(next != null).append("</IsTruncated>");
+    if (next != null)
+      xml.append("<NextContinuationToken>").append(escape(next)).append("</NextContinuationToken>");
+    xml.append("</ListBucketResult>");
+    send(exchange, 200, xml.toString());
+  }
+
+  /**
+   * Deletes the keys of the request, reporting them all as deleted, as S3 does for the
+   * keys which don't exist, unless in quiet mode.
+   */
+  private void deleteObjects(HttpExchange exchange) throws IOException
+  {
+    Document request;
+    try
+    {
+      request = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(body(exchange)));
+    }
+    catch (ParserConfigurationException | SAXException ex)
+    {
+      error(exchange, 400, "MalformedXML");
+      return;
+    }
+    NodeList keys = request.getElementsByTagName("Key");
+    NodeList quiet = request.getElementsByTagName("Quiet");
+    boolean verbose = quiet.getLength() == 0 || !Boolean.parseBoolean(quiet.item(0).getTextContent().trim());
+    StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+      .append("<DeleteResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">");
+    for (int i = 0; i < keys.getLength(); i++)
+    {
+      String key = keys.item(i).getTextContent();
+      objects.remove(key);
+      if (verbose)
+        xml.append("<Deleted><Key>").append(escape(key)).append("</Key></Deleted>");
+    }
+    xml.append("</DeleteResult>");
+    send(exchange, 200, xml.toString());
+  }
+
+  private static void error(HttpExchange exchange, int status, String code) throws IOException
+  {
+    send(exchange, status, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>" + code + "</Code></Error>");
+  }
+
+  private static void send(HttpExchange exchange, int status, String xml) throws IOException
+  {
+    byte[] body = xml.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/xml");
+    exchange.sendResponseHeaders(status, body.length);
+    exchange.getResponseBody().write(body);
+  }
+
+  private static byte[] body(HttpExchange exchange) throws IOException
+  {
+    Headers headers = exchange.getRequestHeaders();
+    boolean chunked = Optional.ofNullable(headers.getFirst("x-amz-content-sha256")).orElse("").startsWith("STREAMING-")
+      || Optional.ofNullable(headers.getFirst("Content-Encoding")).orElse("").contains("aws-chunked");
+    return chunked ? decodeChunks(exchange.getRequestBody()) : exchange.getRequestBody().readAllBytes();
+  }
+
+  /**
+   * Decodes an {@code aws-chunked} body: chunks made of their hexadecimal size, a chunk
+   * signature and their data, up to an empty one, optionally followed by trailers.
+   */
+  private static byte[] decodeChunks(InputStream body) throws IOException
+  {
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    while (true)
+    {
+      String header = readLine(body);
+      int size = Integer.parseInt(header.split(";", 2)[0].trim(), 16);
+      if (size == 0)
+        break;
+      content.write(body.readNBytes(size));
+      readLine(body);
+    }
+    body.transferTo(OutputStream.nullOutputStream());
+    return content.toByteArray();
+  }
+
+  private static String readLine(InputStream input) throws IOException
+  {
+    StringBuilder line = new StringBuilder();
+    int c;
+    while ((c = input.read()) != -1 && c != '\n')
+      if (c != '\r')
+        line.append((char) c);
+    return line.toString();
+  }
+
+  private static Map<String, String> query(URI uri)
+  {
+    Map<String, String> query = new HashMap<>();
+    if (uri.getRawQuery() != null)
+      for (String parameter : uri.getRawQuery().split("&"))
+      {
+        String[] nameValue = parameter.split("=", 2);
+        query.put(URLDecoder.decode(nameValue[0], StandardCharsets.UTF_8),
+          nameValue.length > 1 ? URLDecoder.decode(nameValue[1], StandardCharsets.UTF_8) : "");
+      }
+    return query;
+  }
+
+  private static String escape(String text)
+  {
+    return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+  }
+
+  private static MessageDigest md5()
+  {
+    try
+    {
+      return MessageDigest.getInstance("MD5");
+    }
+    catch (NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
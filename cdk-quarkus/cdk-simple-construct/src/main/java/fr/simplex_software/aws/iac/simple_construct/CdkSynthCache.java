@@ -0,0 +1,217 @@
+package fr.simplex_software.aws.iac.simple_construct;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * Makes the synthesis incremental by fingerprinting everything the cloud assembly is
+ * derived from: the configuration values, the CDK context, the environment and the
+ * content of the assets. The fingerprint is stored in the output directory next to the
+ * assembly, such that a run whose fingerprint hasn't changed may skip both building the
+ * construct tree and synthesizing it, and reuse the previous assembly as it is.
+ * <p>
+ * The asset hashes are cached as well, by path, size and modification time, and are
+ * meant to be passed to {@code Code.fromAsset()} as custom hashes, such that an
+ * unchanged asset is never read again.
+ */
+public class CdkSynthCache
+{
+  public static final String INCREMENTAL_SYNTH = "incrementalSynth";
+  private static final String FINGERPRINT_FILE = "synth.fingerprint";
+  private static final String ASSET_HASHES_FILE = "asset-hashes.properties";
+  private static final String MANIFEST_FILE = "manifest.json";
+  private static final int BUFFER_SIZE = 65536;
+  private static final List<String> ENVIRONMENT = List.of("CDK_CONTEXT_JSON", "CDK_DEFAULT_ACCOUNT", "CDK_DEFAULT_REGION");
+
+  private final Path outdir;
+  private final MessageDigest fingerprint = sha256();
+  private final Properties assetHashes = new Properties();
+
+  public CdkSynthCache(String outdir) throws IOException
+  {
+    this.outdir = Paths.get(outdir);
+    Path assetHashesFile = this.outdir.resolve(ASSET_HASHES_FILE);
+    if (Files.exists(assetHashesFile))
+      try (Reader reader = Files.newBufferedReader(assetHashesFile))
+      {
+        assetHashes.load(reader);
+      }
+  }
+
+  public CdkSynthCache add(String name, Object value)
+  {
+    update(name);
+    update(String.valueOf(value));
+    return this;
+  }
+
+  /**
+   * Adds every value of a {@code @ConfigMapping}, defaults included, by walking its
+   * accessors, nested groups included.
+   */
+  public <T> CdkSynthCache addConfig(Class<T> mappingType, T mapping)
+  {
+    addConfig(mappingType.getSimpleName(), mappingType, mapping);
+    return this;
+  }
+
+  /**
+   * Adds the content hash of an asset, which is returned to be used as the asset's
+   * custom hash.
+   */
+  public String addAsset(String path) throws IOException
+  {
+    Path asset = Paths.get(path).toAbsolutePath().normalize();
+    String key = asset.toString();
+    String stamp = Files.size(asset) + ":" + Files.getLastModifiedTime(asset).toMillis();
+    String cached = assetHashes.getProperty(key);
+    String hash;
+    if (cached != null && cached.startsWith(stamp + ":"))
+      hash = cached.substring(stamp.length() + 1);
+    else
+    {
+      hash = hash(asset);
+      assetHashes.setProperty(key, stamp + ":" + hash);
+    }
+    add(key, hash);
+    return hash;
+  }
+
+  /**
+   * Adds the CDK context passed by the CLI and the default account and region.
+   */
+  public CdkSynthCache addEnvironment()
+  {
+    for (String name : ENVIRONMENT)
+      add(name, System.getenv(name));
+    return this;
+  }
+
+  /**
+   * Adds the code the assembly is generated by, that is the jars or the class directories
+   * the given classes are loaded from, by path, size and modification time.
+   */
+  public CdkSynthCache addCode(Class<?>... classes) throws IOException
+  {
+    for (Class<?> type : classes)
+    {
+      CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+      if (codeSource == null)
+        continue;
+      Path location;
+      try
+      {
+        location = Paths.get(codeSource.getLocation().toURI());
+      }
+      catch (URISyntaxException | IllegalArgumentException ex)
+      {
+        add(type.getName(), codeSource.getLocation());
+        continue;
+      }
+      try (Stream<Path> files = Files.walk(location))
+      {
+        for (Path file : files.filter(Files::isRegularFile).sorted().toList())
+          add(file.toString(), Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis());
+      }
+    }
+    return this;
+  }
+
+  public boolean isUpToDate() throws IOException
+  {
+    Path fingerprintFile = outdir.resolve(FINGERPRINT_FILE);
+    return Files.exists(outdir.resolve(MANIFEST_FILE)) && Files.exists(fingerprintFile)
+      && Files.readString(fingerprintFile).equals(fingerprint());
+  }
+
+  /**
+   * Records the fingerprint of the assembly just synthesized, once the synthesis has
+   * succeeded.
+   */
+  public void save() throws IOException
+  {
+    Files.createDirectories(outdir);
+    Files.writeString(outdir.resolve(FINGERPRINT_FILE), fingerprint());
+    try (Writer writer = Files.newBufferedWriter(outdir.resolve(ASSET_HASHES_FILE)))
+    {
+      assetHashes.store(writer, null);
+    }
+  }
+
+  private String fingerprint()
+  {
+    try
+    {
+      return HexFormat.of().formatHex(((MessageDigest) fingerprint.clone()).digest());
+    }
+    catch (CloneNotSupportedException ex)
+    {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private void addConfig(String prefix, Class<?> mappingType, Object mapping)
+  {
+    Arrays.stream(mappingType.getMethods())
+      .filter(method -> method.getParameterCount() == 0 && !Modifier.isStatic(method.getModifiers()))
+      .sorted(Comparator.comparing(Method::getName))
+      .forEach(method -> addConfigValue(prefix + "." + method.getName(), method, mapping));
+  }
+
+  private void addConfigValue(String name, Method method, Object mapping)
+  {
+    try
+    {
+      Object value = method.invoke(mapping);
+      if (method.getReturnType().isInterface() && method.getReturnType().isMemberClass())
+        addConfig(name, method.getReturnType(), value);
+      else
+        add(name, value);
+    }
+    catch (ReflectiveOperationException ex)
+    {
+      throw new IllegalStateException("Cannot read the configuration value " + name, ex);
+    }
+  }
+
+  private void update(String field)
+  {
+    fingerprint.update(field.getBytes(StandardCharsets.UTF_8));
+    fingerprint.update((byte) 0);
+  }
+
+  private static String hash(Path asset) throws IOException
+  {
+    MessageDigest sha256 = sha256();
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    try (FileChannel channel = FileChannel.open(asset, StandardOpenOption.READ))
+    {
+      while (channel.read(buffer) != -1)
+      {
+        sha256.update(buffer.flip());
+        buffer.clear();
+      }
+    }
+    return HexFormat.of().formatHex(sha256.digest());
+  }
+
+  private static MessageDigest sha256()
+  {
+    try
+    {
+      return MessageDigest.getInstance("SHA-256");
+    }
+    catch (NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package fr.simplex_software.aws.iac.simple_construct;
 
 import fr.simplex_software.aws.iac.simple_construct.config.*;
+import fr.simplex_software.aws.iac.simple_construct.config.LambdaWithBucketConstructConfig.FunctionProps;
 import software.amazon.awscdk.*;
 import software.amazon.awscdk.aws_apigatewayv2_integrations.*;
 import software.amazon.awscdk.services.apigatewayv2.*;
@@ -8,10 +9,16 @@ import software.amazon.awscdk.services.iam.*;
 import software.amazon.awscdk.services.lambda.Runtime;
 import software.amazon.awscdk.services.lambda.*;
 import software.amazon.awscdk.services.s3.*;
+import software.amazon.awscdk.services.s3.assets.AssetOptions;
 import software.constructs.*;
 
+import java.util.*;
+
 public class LambdaWithBucketConstruct extends Construct
 {
+  public static final String ZIP = "zip";
+  public static final String ZIP_HASH = "zipHash";
+  public static final String JAVA_TOOL_OPTIONS = "JAVA_TOOL_OPTIONS";
   private FunctionUrl functionUrl;
   private String httpApiGatewayUrl;
 
@@ -22,15 +29,27 @@ public class LambdaWithBucketConstruct extends Construct
       .assumedBy(new ServicePrincipal("lambda.amazonaws.com")).build();
     role.addManagedPolicy(ManagedPolicy.fromAwsManagedPolicyName("AmazonS3FullAccess"));
     role.addManagedPolicy(ManagedPolicy.fromAwsManagedPolicyName("CloudWatchFullAccess"));
-    IFunction function = Function.Builder.create(this, config.functionProps().id())
+    FunctionProps functionProps = config.functionProps();
+    if (functionProps.snapStart() && functionProps.provisionedConcurrency().isPresent())
+      throw new IllegalArgumentException("SnapStart and provisioned concurrency are mutually exclusive");
+    Function.Builder functionBuilder = Function.Builder.create(this, functionProps.id())
       .runtime(Runtime.JAVA_21)
+      .architecture(architecture(functionProps.architecture()))
       .role(role)
-      .handler(config.functionProps().handler())
-      .memorySize(config.functionProps().ram())
-      .timeout(Duration.seconds(config.functionProps().timeout()))
-      .functionName(config.functionProps().function())
-      .code(Code.fromAsset((String) this.getNode().tryGetContext("zip")))
-      .build();
+      .handler(functionProps.handler())
+      .memorySize(functionProps.ram())
+      .timeout(Duration.seconds(functionProps.timeout()))
+      .functionName(functionProps.function())
+      .code(code());
+    if (functionProps.snapStart())
+      functionBuilder.snapStart(SnapStartConf.ON_PUBLISHED_VERSIONS);
+    functionProps.ephemeralStorage().ifPresent(size -> functionBuilder.ephemeralStorageSize(Size.mebibytes(size)));
+    functionProps.reservedConcurrency().ifPresent(functionBuilder::reservedConcurrentExecutions);
+    functionProps.javaToolOptions().ifPresent(options -> functionBuilder.environment(Map.of(JAVA_TOOL_OPTIONS, options)));
+    Function lambda = functionBuilder.build();
+    IFunction function = lambda;
+    if (functionProps.snapStart() || functionProps.provisionedConcurrency().isPresent())
+      function = alias(lambda, functionProps);
     functionUrl = function.addFunctionUrl(FunctionUrlOptions.builder().authType(FunctionUrlAuthType.NONE).build());
     new Bucket(this, config.bucketProps().bucketId(), BucketProps.builder().bucketName(config.bucketProps().bucketName()).build());
     HttpApi httpApi = HttpApi.Builder.create(this, "HttpApiGatewayIntegration")
@@ -39,6 +58,50 @@ public class LambdaWithBucketConstruct extends Construct
     CfnOutput.Builder.create(this, "HttpApiGatewayUrlOutput").value(httpApi.getUrl()).build();
   }
 
+  /**
+   * The alias the function is invoked through, pointing to its current version and
+   * carrying the provisioned concurrency, if any, scaled on its utilization when a
+   * maximum is given.
+   */
+  private Alias alias(Function lambda, FunctionProps functionProps)
+  {
+    Alias.Builder aliasBuilder = Alias.Builder.create(this, functionProps.id() + "-alias")
+      .aliasName(functionProps.alias())
+      .version(lambda.getCurrentVersion());
+    functionProps.provisionedConcurrency().ifPresent(aliasBuilder::provisionedConcurrentExecutions);
+    Alias alias = aliasBuilder.build();
+    if (functionProps.provisionedConcurrency().isPresent() && functionProps.provisionedConcurrencyMax().isPresent())
+      alias.addAutoScaling(AutoScalingOptions.builder()
+          .minCapacity(functionProps.provisionedConcurrency().getAsInt())
+          .maxCapacity(functionProps.provisionedConcurrencyMax().getAsInt()).build())
+        .scaleOnUtilization(UtilizationScalingOptions.builder()
+          .utilizationTarget(functionProps.provisionedConcurrencyUtilization()).build());
+    return alias;
+  }
+
+  private static Architecture architecture(String architecture)
+  {
+    return switch (architecture)
+    {
+      case "x86_64" -> Architecture.X86_64;
+      case "arm64" -> Architecture.ARM_64;
+      default -> throw new IllegalArgumentException("Unsupported architecture " + architecture);
+    };
+  }
+
+  /**
+   * The function's code, whose asset hash is taken from the {@code zipHash} context
+   * value when present, rather than computed again from the archive by the CDK.
+   */
+  private Code code()
+  {
+    String zip = (String) getNode().tryGetContext(ZIP);
+    String zipHash = (String) getNode().tryGetContext(ZIP_HASH);
+    if (zipHash == null)
+      return Code.fromAsset(zip);
+    return Code.fromAsset(zip, AssetOptions.builder().assetHashType(AssetHashType.CUSTOM).assetHash(zipHash).build());
+  }
+
   public String getFunctionUrl()
   {
     return functionUrl.getUrl();
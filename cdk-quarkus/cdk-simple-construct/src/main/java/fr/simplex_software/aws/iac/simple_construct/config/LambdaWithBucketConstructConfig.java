@@ -2,6 +2,8 @@ package fr.simplex_software.aws.iac.simple_construct.config;
 
 import io.smallrye.config.*;
 
+import java.util.*;
+
 @ConfigMapping(prefix = "lambda.with.bucket.construct.config")
 public interface LambdaWithBucketConstructConfig
 {
@@ -26,5 +28,18 @@ public interface LambdaWithBucketConstructConfig
     String function();
     @WithDefault("quarkus-api-gateway-lambda")
     String id();
+    @WithDefault("false")
+    boolean snapStart();
+    @WithDefault("live")
+    String alias();
+    @WithDefault("x86_64")
+    String architecture();
+    OptionalInt ephemeralStorage();
+    OptionalInt reservedConcurrency();
+    OptionalInt provisionedConcurrency();
+    OptionalInt provisionedConcurrencyMax();
+    @WithDefault("0.7")
+    double provisionedConcurrencyUtilization();
+    Optional<String> javaToolOptions();
   }
 }
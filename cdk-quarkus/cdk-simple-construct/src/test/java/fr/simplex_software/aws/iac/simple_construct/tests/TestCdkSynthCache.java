@@ -0,0 +1,93 @@
+package fr.simplex_software.aws.iac.simple_construct.tests;
+
+import fr.simplex_software.aws.iac.simple_construct.*;
+import fr.simplex_software.aws.iac.simple_construct.config.*;
+import io.smallrye.config.*;
+import io.smallrye.config.common.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class TestCdkSynthCache
+{
+  private static final String RAM = "lambda.with.bucket.construct.config.function-props.ram";
+  @TempDir
+  Path tempDir;
+  private String zip;
+  private String outdir;
+
+  @BeforeEach
+  public void createAsset() throws IOException
+  {
+    zip = Files.writeString(tempDir.resolve("function.zip"), "function").toString();
+    outdir = tempDir.resolve("cdk.out").toString();
+  }
+
+  @Test
+  public void testUpToDate() throws IOException
+  {
+    assertThat(cache(Map.of()).isUpToDate()).isFalse();
+    synthesized(cache(Map.of()));
+    assertThat(cache(Map.of()).isUpToDate()).isTrue();
+    Files.delete(Paths.get(outdir, "manifest.json"));
+    assertThat(cache(Map.of()).isUpToDate()).isFalse();
+  }
+
+  @Test
+  public void testChangedConfig() throws IOException
+  {
+    synthesized(cache(Map.of()));
+    assertThat(cache(Map.of(RAM, "1024")).isUpToDate()).isFalse();
+    synthesized(cache(Map.of(RAM, "1024")));
+    assertThat(cache(Map.of(RAM, "1024")).isUpToDate()).isTrue();
+  }
+
+  @Test
+  public void testChangedAsset() throws IOException
+  {
+    String hash = new CdkSynthCache(outdir).addAsset(zip);
+    synthesized(cache(Map.of()));
+    Files.writeString(Paths.get(zip), "new function");
+    assertThat(new CdkSynthCache(outdir).addAsset(zip)).isNotEqualTo(hash);
+    assertThat(cache(Map.of()).isUpToDate()).isFalse();
+  }
+
+  @Test
+  public void testCachedAssetHash() throws IOException
+  {
+    String hash = new CdkSynthCache(outdir).addAsset(zip);
+    synthesized(cache(Map.of()));
+    FileTime modified = Files.getLastModifiedTime(Paths.get(zip));
+    Files.writeString(Paths.get(zip), "FUNCTION");
+    Files.setLastModifiedTime(Paths.get(zip), modified);
+    assertThat(new CdkSynthCache(outdir).addAsset(zip)).isEqualTo(hash);
+  }
+
+  private CdkSynthCache cache(Map<String, String> properties) throws IOException
+  {
+    LambdaWithBucketConstructConfig config = new SmallRyeConfigBuilder()
+      .withMapping(LambdaWithBucketConstructConfig.class)
+      .withSources(new MapBackedConfigSource("test", properties) {})
+      .build()
+      .getConfigMapping(LambdaWithBucketConstructConfig.class);
+    CdkSynthCache synthCache = new CdkSynthCache(outdir).addConfig(LambdaWithBucketConstructConfig.class, config);
+    synthCache.addAsset(zip);
+    return synthCache;
+  }
+
+  /**
+   * Stands for a successful synthesis, whose cloud assembly is reduced to its manifest.
+   */
+  private void synthesized(CdkSynthCache synthCache) throws IOException
+  {
+    Files.createDirectories(Paths.get(outdir));
+    Files.writeString(Paths.get(outdir, "manifest.json"), "{}");
+    synthCache.save();
+  }
+}
@@ -0,0 +1,129 @@
+package fr.simplex_software.aws.iac.simple_construct.tests;
+
+import fr.simplex_software.aws.iac.simple_construct.*;
+import fr.simplex_software.aws.iac.simple_construct.config.*;
+import io.smallrye.config.*;
+import io.smallrye.config.common.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.*;
+import software.amazon.awscdk.assertions.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class TestLambdaWithBucketConstruct
+{
+  private static final String PREFIX = "lambda.with.bucket.construct.config.";
+  @TempDir
+  static Path tempDir;
+  private static String zip;
+
+  @BeforeAll
+  public static void createAsset() throws IOException
+  {
+    zip = Files.writeString(tempDir.resolve("function.zip"), "function").toString();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testDefaultFunction()
+  {
+    Template template = synth(Map.of());
+    assertThat(template.findResources("AWS::Lambda::Function").values())
+      .allSatisfy(function -> assertThat((Map<String, Object>) function.get("Properties"))
+        .doesNotContainKeys("SnapStart", "EphemeralStorage", "ReservedConcurrentExecutions", "Environment"));
+    template.hasResourceProperties("AWS::Lambda::Function", Map.of("Architectures", List.of("x86_64")));
+    template.resourceCountIs("AWS::Lambda::Alias", 0);
+  }
+
+  @Test
+  public void testSnapStart()
+  {
+    Template template = synth(Map.of(PREFIX + "function-props.snap-start", "true"));
+    template.hasResourceProperties("AWS::Lambda::Function", Map.of("SnapStart", Map.of("ApplyOn", "PublishedVersions")));
+    template.resourceCountIs("AWS::Lambda::Version", 1);
+    template.hasResourceProperties("AWS::Lambda::Alias", Map.of("Name", "live"));
+  }
+
+  @Test
+  public void testArm64()
+  {
+    Template template = synth(Map.of(PREFIX + "function-props.architecture", "arm64"));
+    template.hasResourceProperties("AWS::Lambda::Function", Map.of("Architectures", List.of("arm64")));
+  }
+
+  @Test
+  public void testUnsupportedArchitecture()
+  {
+    assertThatThrownBy(() -> synth(Map.of(PREFIX + "function-props.architecture", "sparc")))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testEphemeralStorage()
+  {
+    Template template = synth(Map.of(PREFIX + "function-props.ephemeral-storage", "2048"));
+    template.hasResourceProperties("AWS::Lambda::Function", Map.of("EphemeralStorage", Map.of("Size", 2048)));
+  }
+
+  @Test
+  public void testReservedConcurrency()
+  {
+    Template template = synth(Map.of(PREFIX + "function-props.reserved-concurrency", "50"));
+    template.hasResourceProperties("AWS::Lambda::Function", Map.of("ReservedConcurrentExecutions", 50));
+  }
+
+  @Test
+  public void testJavaToolOptions()
+  {
+    Template template = synth(Map.of(PREFIX + "function-props.java-tool-options", "-XX:+TieredCompilation -XX:TieredStopAtLevel=1"));
+    template.hasResourceProperties("AWS::Lambda::Function",
+      Map.of("Environment", Map.of("Variables", Map.of("JAVA_TOOL_OPTIONS", "-XX:+TieredCompilation -XX:TieredStopAtLevel=1"))));
+  }
+
+  @Test
+  public void testProvisionedConcurrency()
+  {
+    Template template = synth(Map.of(PREFIX + "function-props.provisioned-concurrency", "5"));
+    template.hasResourceProperties("AWS::Lambda::Alias",
+      Map.of("Name", "live", "ProvisionedConcurrencyConfig", Map.of("ProvisionedConcurrentExecutions", 5)));
+    template.resourceCountIs("AWS::ApplicationAutoScaling::ScalableTarget", 0);
+  }
+
+  @Test
+  public void testProvisionedConcurrencyAutoScaling()
+  {
+    Template template = synth(Map.of(PREFIX + "function-props.provisioned-concurrency", "5",
+      PREFIX + "function-props.provisioned-concurrency-max", "20"));
+    template.hasResourceProperties("AWS::ApplicationAutoScaling::ScalableTarget",
+      Map.of("MinCapacity", 5, "MaxCapacity", 20, "ScalableDimension", "lambda:function:ProvisionedConcurrency"));
+    template.hasResourceProperties("AWS::ApplicationAutoScaling::ScalingPolicy",
+      Map.of("TargetTrackingScalingPolicyConfiguration", Match.objectLike(Map.of("TargetValue", 0.7))));
+  }
+
+  @Test
+  public void testSnapStartWithProvisionedConcurrency()
+  {
+    assertThatThrownBy(() -> synth(Map.of(PREFIX + "function-props.snap-start", "true",
+      PREFIX + "function-props.provisioned-concurrency", "5")))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static Template synth(Map<String, String> properties)
+  {
+    LambdaWithBucketConstructConfig config = new SmallRyeConfigBuilder()
+      .withMapping(LambdaWithBucketConstructConfig.class)
+      .withSources(new MapBackedConfigSource("test", properties) {})
+      .build()
+      .getConfigMapping(LambdaWithBucketConstructConfig.class);
+    App app = new App(AppProps.builder().context(Map.of("zip", zip)).build());
+    Stack stack = new Stack(app, "TestStack");
+    new LambdaWithBucketConstruct(stack, "LambdaWithBucketConstructId", config);
+    return Template.fromStack(stack);
+  }
+}
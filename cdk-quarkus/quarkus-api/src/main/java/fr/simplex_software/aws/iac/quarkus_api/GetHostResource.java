@@ -1,28 +1,31 @@
 package fr.simplex_software.aws.iac.quarkus_api;
 
+import com.fasterxml.jackson.databind.*;
 import io.quarkus.qute.*;
 import jakarta.enterprise.context.*;
 import jakarta.inject.*;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.*;
-import software.amazon.awssdk.services.s3.*;
-import software.amazon.awssdk.services.s3.model.*;
 
 import java.io.*;
 import java.net.*;
-import java.time.*;
-import java.util.*;
 
 @Path("s3")
 @ApplicationScoped
 public class GetHostResource
 {
-  private static final String S3_FMT = "arn:aws:s3:::%s";
   private static final String FMT = "*** My IP address is %s";
+  private static final String CACHE_FMT = "size=%d hits=%d misses=%d loads=%d";
   @Inject
   Template s3Info;
   @Inject
-  S3Client s3;
+  Template s3Inventory;
+  @Inject
+  S3BucketInfoCache bucketInfoCache;
+  @Inject
+  S3BucketInventory bucketInventory;
+  @Inject
+  ObjectMapper objectMapper;
 
   @GET
   public String host() throws IOException
@@ -35,21 +38,38 @@ public class GetHostResource
   @Produces(MediaType.TEXT_HTML)
   public TemplateInstance getBucketInfo(@PathParam("bucketName") String bucketName)
   {
-    Bucket bucket = s3.listBuckets().buckets().stream().filter(b -> b.name().equals(bucketName)).findFirst().orElseThrow();
-    TemplateInstance templateInstance = s3Info.data("bucketName", bucketName, "awsRegionName",
-      s3.getBucketLocation(GetBucketLocationRequest.builder().bucket(bucketName).build()).locationConstraintAsString(),
-      "arn",  String.format(S3_FMT, bucketName), "creationDate",
-      LocalDateTime.ofInstant(bucket.creationDate(), ZoneId.systemDefault()), "versioning",
-      s3.getBucketVersioning(GetBucketVersioningRequest.builder().bucket(bucketName).build()));
-    List<Tag> tags = new ArrayList<>();
-    try
-    {
-      tags = s3.getBucketTagging(GetBucketTaggingRequest.builder().bucket(bucketName).build()).tagSet();
-      if (tags == null || tags.isEmpty())
-        tags.add(Tag.builder().key("test").value("test").build());
-    }
-    catch (S3Exception ex) {}
-    templateInstance.data("tags", tags);
-    return templateInstance;
+    return s3Info.data("s3BucketInfo", bucketInfoCache.get(bucketName).orElseThrow(NotFoundException::new));
+  }
+
+  @DELETE
+  @Path("info/{bucketName}")
+  public void invalidateBucketInfo(@PathParam("bucketName") String bucketName)
+  {
+    bucketInfoCache.invalidate(bucketName);
+  }
+
+  @GET
+  @Path("inventory")
+  @Produces(MediaType.APPLICATION_JSON)
+  public StreamingOutput getBucketInventory(@QueryParam("prefix") String prefix)
+  {
+    return new S3BucketInventoryOutput(objectMapper, bucketInventory.inventory(prefix));
+  }
+
+  @GET
+  @Path("inventory")
+  @Produces(MediaType.TEXT_HTML)
+  public StreamingOutput getBucketInventoryPage(@QueryParam("prefix") String prefix)
+  {
+    return new S3BucketInventoryPage(s3Inventory, prefix, bucketInventory.inventory(prefix));
+  }
+
+  @GET
+  @Path("info-cache")
+  @Produces(MediaType.TEXT_PLAIN)
+  public String getBucketInfoCacheStats()
+  {
+    return String.format(CACHE_FMT, bucketInfoCache.size(), bucketInfoCache.hits(), bucketInfoCache.misses(),
+      bucketInfoCache.loads());
   }
 }
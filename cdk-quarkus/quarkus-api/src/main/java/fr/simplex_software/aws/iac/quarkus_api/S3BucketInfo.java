@@ -14,4 +14,5 @@ public class S3BucketInfo
   public LocalDateTime creationDate;
   public boolean versioning;
   public List<String> tags = new ArrayList<>();
+  public List<String> errors = new ArrayList<>();
 }
@@ -0,0 +1,130 @@
+package fr.simplex_software.aws.iac.quarkus_api;
+
+import jakarta.annotation.*;
+import jakarta.enterprise.context.*;
+import jakarta.inject.*;
+import org.eclipse.microprofile.config.inject.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A bounded, TTL based cache of {@link S3BucketInfo} records, keyed by bucket name. Missing
+ * buckets are cached as well, for a shorter time, such that asking again and again for a
+ * bucket which doesn't exist doesn't hit S3 either. Records missing some field, because
+ * one of their lookups failed, are kept for that shorter time too. When full, the least
+ * recently used entry is evicted.
+ * <p>
+ * Concurrent misses on the same bucket share a single load, the first caller loading the
+ * record while the others wait for it.
+ */
+@ApplicationScoped
+public class S3BucketInfoCache
+{
+  @Inject
+  S3BucketInfoLoader loader;
+  @ConfigProperty(name = "s3.bucket-info.cache.ttl", defaultValue = "PT5M")
+  Duration ttl;
+  @ConfigProperty(name = "s3.bucket-info.cache.negative-ttl", defaultValue = "PT30S")
+  Duration negativeTtl;
+  @ConfigProperty(name = "s3.bucket-info.cache.max-size", defaultValue = "1000")
+  int maxSize;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder loads = new LongAdder();
+  private final ConcurrentMap<String, CompletableFuture<Optional<S3BucketInfo>>> inFlight = new ConcurrentHashMap<>();
+  private Map<String, Entry> entries;
+
+  @PostConstruct
+  void init()
+  {
+    entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+      {
+        return size() > maxSize;
+      }
+    });
+  }
+
+  public Optional<S3BucketInfo> get(String bucketName)
+  {
+    Entry entry = entries.get(bucketName);
+    if (entry != null && Instant.now().isBefore(entry.expiry()))
+    {
+      hits.increment();
+      return entry.info();
+    }
+    misses.increment();
+    CompletableFuture<Optional<S3BucketInfo>> load = new CompletableFuture<>();
+    CompletableFuture<Optional<S3BucketInfo>> shared = inFlight.putIfAbsent(bucketName, load);
+    if (shared != null)
+      return join(shared);
+    try
+    {
+      loads.increment();
+      Optional<S3BucketInfo> info = loader.load(bucketName);
+      entries.put(bucketName, new Entry(info, Instant.now().plus(info.isPresent() && info.get().errors.isEmpty() ? ttl : negativeTtl)));
+      load.complete(info);
+      return info;
+    }
+    catch (RuntimeException ex)
+    {
+      load.completeExceptionally(ex);
+      throw ex;
+    }
+    finally
+    {
+      inFlight.remove(bucketName, load);
+    }
+  }
+
+  private static Optional<S3BucketInfo> join(CompletableFuture<Optional<S3BucketInfo>> load)
+  {
+    try
+    {
+      return load.join();
+    }
+    catch (CompletionException ex)
+    {
+      throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+    }
+  }
+
+  public void invalidate(String bucketName)
+  {
+    entries.remove(bucketName);
+  }
+
+  public void invalidateAll()
+  {
+    entries.clear();
+  }
+
+  public long hits()
+  {
+    return hits.sum();
+  }
+
+  public long misses()
+  {
+    return misses.sum();
+  }
+
+  public long loads()
+  {
+    return loads.sum();
+  }
+
+  public int size()
+  {
+    return entries.size();
+  }
+
+  private record Entry(Optional<S3BucketInfo> info, Instant expiry)
+  {
+  }
+}
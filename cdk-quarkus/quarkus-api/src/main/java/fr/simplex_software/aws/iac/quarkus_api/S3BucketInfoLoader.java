@@ -0,0 +1,214 @@
+package fr.simplex_software.aws.iac.quarkus_api;
+
+import jakarta.annotation.*;
+import jakarta.enterprise.context.*;
+import jakarta.inject.*;
+import org.eclipse.microprofile.config.inject.*;
+import org.jboss.logging.*;
+import software.amazon.awssdk.awscore.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * Assembles {@link S3BucketInfo} records. The bucket is looked up with a single HeadBucket
+ * call, instead of scanning the whole account with ListBuckets. As the creation date is
+ * only available through ListBuckets, the creation dates of all the buckets are fetched
+ * at once and reused until they expire. A bucket missing from them, e.g. created since,
+ * triggers a new ListBuckets only once the negative TTL has elapsed since the last one.
+ * <p>
+ * The lookups are independent of each other and run concurrently on virtual threads,
+ * each one bounded by its own timeout. GetBucketLocation runs alongside HeadBucket, its
+ * result only being used when HeadBucket doesn't return the region. Apart from HeadBucket, which decides whether the
+ * bucket exists at all, a failed lookup only leaves its own field empty and is reported
+ * in {@link S3BucketInfo#errors}.
+ * <p>
+ * The buckets of a ListBuckets response, known to exist and whose creation date is known,
+ * may be described as well, one lookup after the other on the caller's thread, such that
+ * a pool of callers bounds the number of concurrent S3 calls.
+ */
+@ApplicationScoped
+public class S3BucketInfoLoader
+{
+  private static final Logger LOG = Logger.getLogger(S3BucketInfoLoader.class);
+  private static final String S3_FMT = "arn:aws:s3:::%s";
+  private static final String NO_SUCH_TAG_SET = "NoSuchTagSet";
+  private static final String US_EAST_1 = "us-east-1";
+  private final S3Client s3;
+  private final Duration ttl;
+  private final Duration negativeTtl;
+  private final Duration lookupTimeout;
+  private final ExecutorService lookups;
+  private final AwsRequestOverrideConfiguration timeout;
+  private volatile Map<String, Instant> creationDates = Map.of();
+  private volatile Instant creationDatesListed = Instant.MIN;
+
+  @Inject
+  public S3BucketInfoLoader(S3Client s3,
+    @ConfigProperty(name = "s3.bucket-info.cache.ttl", defaultValue = "PT5M") Duration ttl,
+    @ConfigProperty(name = "s3.bucket-info.cache.negative-ttl", defaultValue = "PT30S") Duration negativeTtl,
+    @ConfigProperty(name = "s3.bucket-info.lookup-timeout", defaultValue = "PT5S") Duration lookupTimeout)
+  {
+    this.s3 = s3;
+    this.ttl = ttl;
+    this.negativeTtl = negativeTtl;
+    this.lookupTimeout = lookupTimeout;
+    this.lookups = Executors.newVirtualThreadPerTaskExecutor();
+    this.timeout = AwsRequestOverrideConfiguration.builder().apiCallTimeout(lookupTimeout).build();
+  }
+
+  @PreDestroy
+  public void destroy()
+  {
+    lookups.shutdownNow();
+  }
+
+  public Optional<S3BucketInfo> load(String bucketName)
+  {
+    CompletableFuture<HeadBucketResponse> head = lookup(() ->
+      s3.headBucket(HeadBucketRequest.builder().bucket(bucketName).overrideConfiguration(timeout).build()));
+    CompletableFuture<String> region = lookup(() -> region(bucketName, timeout));
+    CompletableFuture<Instant> creationDate = lookup(() -> creationDate(bucketName));
+    CompletableFuture<Boolean> versioning = lookup(() ->
+      s3.getBucketVersioning(GetBucketVersioningRequest.builder().bucket(bucketName).overrideConfiguration(timeout).build())
+        .status() == BucketVersioningStatus.ENABLED);
+    CompletableFuture<List<String>> tags = lookup(() -> tags(bucketName, timeout));
+    HeadBucketResponse headResponse;
+    try
+    {
+      headResponse = head.join();
+    }
+    catch (CompletionException ex)
+    {
+      Stream.of(region, creationDate, versioning, tags).forEach(lookup -> lookup.cancel(true));
+      if (ex.getCause() instanceof NoSuchBucketException)
+        return Optional.empty();
+      throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+    }
+    S3BucketInfo info = new S3BucketInfo();
+    info.bucketName = bucketName;
+    info.arn = String.format(S3_FMT, bucketName);
+    if (headResponse.bucketRegion() != null)
+    {
+      region.cancel(true);
+      info.awsRegionName = headResponse.bucketRegion();
+    }
+    else
+      info.awsRegionName = join(region, "region", info, null);
+    Instant created = join(creationDate, "creation date", info, null);
+    if (created != null)
+      info.creationDate = LocalDateTime.ofInstant(created, ZoneId.systemDefault());
+    info.versioning = join(versioning, "versioning", info, false);
+    info.tags = join(tags, "tags", info, new ArrayList<>());
+    return Optional.of(info);
+  }
+
+  /**
+   * Describes a bucket returned by ListBuckets. Each lookup is bounded by the lookup
+   * timeout and by what remains until the deadline; the lookups not done by then are
+   * reported in {@link S3BucketInfo#errors}.
+   */
+  public S3BucketInfo load(Bucket bucket, Instant deadline)
+  {
+    S3BucketInfo info = new S3BucketInfo();
+    info.bucketName = bucket.name();
+    info.arn = String.format(S3_FMT, bucket.name());
+    if (bucket.creationDate() != null)
+      info.creationDate = LocalDateTime.ofInstant(bucket.creationDate(), ZoneId.systemDefault());
+    info.awsRegionName = call(timeout -> region(bucket.name(), timeout), "region", info, deadline, null);
+    info.versioning = call(timeout -> s3.getBucketVersioning(GetBucketVersioningRequest.builder().bucket(bucket.name())
+      .overrideConfiguration(timeout).build()).status() == BucketVersioningStatus.ENABLED, "versioning", info, deadline, false);
+    info.tags = call(timeout -> tags(bucket.name(), timeout), "tags", info, deadline, new ArrayList<>());
+    return info;
+  }
+
+  private <T> CompletableFuture<T> lookup(Supplier<T> call)
+  {
+    return CompletableFuture.supplyAsync(call, lookups);
+  }
+
+  private <T> T join(CompletableFuture<T> lookup, String field, S3BucketInfo info, T fallback)
+  {
+    try
+    {
+      return lookup.join();
+    }
+    catch (CompletionException | CancellationException ex)
+    {
+      Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+      LOG.warnf(cause, "Unable to get the %s of the bucket %s", field, info.bucketName);
+      info.errors.add(field + ": " + cause.getMessage());
+      return fallback;
+    }
+  }
+
+  private <T> T call(Function<AwsRequestOverrideConfiguration, T> call, String field, S3BucketInfo info, Instant deadline, T fallback)
+  {
+    Duration remaining = Duration.between(Instant.now(), deadline);
+    if (remaining.isNegative() || remaining.isZero())
+    {
+      info.errors.add(field + ": timed out");
+      return fallback;
+    }
+    try
+    {
+      return call.apply(AwsRequestOverrideConfiguration.builder()
+        .apiCallTimeout(remaining.compareTo(lookupTimeout) < 0 ? remaining : lookupTimeout).build());
+    }
+    catch (RuntimeException ex)
+    {
+      LOG.warnf(ex, "Unable to get the %s of the bucket %s", field, info.bucketName);
+      info.errors.add(field + ": " + ex.getMessage());
+      return fallback;
+    }
+  }
+
+  private String region(String bucketName, AwsRequestOverrideConfiguration timeout)
+  {
+    String locationConstraint = s3.getBucketLocation(GetBucketLocationRequest.builder().bucket(bucketName)
+      .overrideConfiguration(timeout).build()).locationConstraintAsString();
+    return locationConstraint == null || locationConstraint.isEmpty() ? US_EAST_1 : locationConstraint;
+  }
+
+  private List<String> tags(String bucketName, AwsRequestOverrideConfiguration timeout)
+  {
+    try
+    {
+      return s3.getBucketTagging(GetBucketTaggingRequest.builder().bucket(bucketName).overrideConfiguration(timeout).build())
+        .tagSet().stream().map(tag -> tag.key() + "=" + tag.value()).collect(Collectors.toList());
+    }
+    catch (S3Exception ex)
+    {
+      if (ex.awsErrorDetails() != null && NO_SUCH_TAG_SET.equals(ex.awsErrorDetails().errorCode()))
+        return new ArrayList<>();
+      throw ex;
+    }
+  }
+
+  private Instant creationDate(String bucketName)
+  {
+    Map<String, Instant> listed = creationDates;
+    Instant creationDate = listed.get(bucketName);
+    Instant expiry = creationDatesListed.plus(creationDate != null ? ttl : negativeTtl);
+    return Instant.now().isBefore(expiry) ? creationDate : refreshCreationDates(listed).get(bucketName);
+  }
+
+  /**
+   * Lists the buckets again, unless another caller did it while this one was waiting for
+   * the lock, in which case its listing is reused.
+   */
+  private synchronized Map<String, Instant> refreshCreationDates(Map<String, Instant> stale)
+  {
+    if (creationDates != stale)
+      return creationDates;
+    creationDates = s3.listBuckets(ListBucketsRequest.builder().overrideConfiguration(timeout).build()).buckets().stream()
+      .collect(Collectors.toMap(Bucket::name, Bucket::creationDate));
+    creationDatesListed = Instant.now();
+    return creationDates;
+  }
+}
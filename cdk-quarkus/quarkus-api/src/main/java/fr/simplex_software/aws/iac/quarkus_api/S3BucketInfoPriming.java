@@ -0,0 +1,58 @@
+package fr.simplex_software.aws.iac.quarkus_api;
+
+import io.quarkus.qute.*;
+import io.quarkus.runtime.*;
+import jakarta.enterprise.context.*;
+import jakarta.enterprise.event.*;
+import jakarta.inject.*;
+import org.crac.*;
+import org.jboss.logging.*;
+import software.amazon.awssdk.core.exception.*;
+import software.amazon.awssdk.services.s3.*;
+
+import java.time.*;
+
+/**
+ * Primes the S3 client and the {@code s3Info} template before Lambda SnapStart takes its
+ * snapshot. It's a no-op outside SnapStart, as no checkpoint is ever taken.
+ */
+@ApplicationScoped
+public class S3BucketInfoPriming implements Resource
+{
+  private static final Logger LOG = Logger.getLogger(S3BucketInfoPriming.class);
+
+  @Inject
+  S3Client s3;
+  @Inject
+  Template s3Info;
+
+  void onStart(@Observes StartupEvent startupEvent)
+  {
+    Core.getGlobalContext().register(this);
+  }
+
+  @Override
+  public void beforeCheckpoint(Context<? extends Resource> context)
+  {
+    S3BucketInfo info = new S3BucketInfo();
+    info.bucketName = "priming";
+    info.arn = "arn:aws:s3:::priming";
+    info.awsRegionName = "priming";
+    info.creationDate = LocalDateTime.now();
+    info.tags.add("priming=priming");
+    s3Info.data("s3BucketInfo", info).render();
+    try
+    {
+      s3.listBuckets();
+    }
+    catch (SdkException ex)
+    {
+      LOG.warn("Unable to prime the S3 client", ex);
+    }
+  }
+
+  @Override
+  public void afterRestore(Context<? extends Resource> context)
+  {
+  }
+}
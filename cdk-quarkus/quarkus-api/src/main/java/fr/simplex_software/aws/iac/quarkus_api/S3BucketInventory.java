@@ -0,0 +1,81 @@
+package fr.simplex_software.aws.iac.quarkus_api;
+
+import jakarta.annotation.*;
+import jakarta.enterprise.context.*;
+import jakarta.inject.*;
+import org.eclipse.microprofile.config.inject.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * Describes all the buckets of the account, or those whose name starts with a given
+ * prefix, listing them with a single ListBuckets call. The buckets are then described by
+ * a fixed pool of workers, shared by all the requests, such that the number of concurrent
+ * S3 calls stays bounded whatever the number of buckets. Each bucket has its own deadline,
+ * starting when a worker takes it.
+ */
+@ApplicationScoped
+public class S3BucketInventory
+{
+  @Inject
+  S3Client s3;
+  @Inject
+  S3BucketInfoLoader loader;
+  @ConfigProperty(name = "s3.bucket-inventory.concurrency", defaultValue = "16")
+  int concurrency;
+  @ConfigProperty(name = "s3.bucket-inventory.bucket-timeout", defaultValue = "PT10S")
+  Duration bucketTimeout;
+  private ExecutorService workers;
+
+  @PostConstruct
+  void init()
+  {
+    workers = Executors.newFixedThreadPool(concurrency, Thread.ofVirtual().name("bucket-inventory-", 0).factory());
+  }
+
+  @PreDestroy
+  void destroy()
+  {
+    workers.shutdownNow();
+  }
+
+  /**
+   * Returns the bucket descriptions in the order they complete. Closing the stream
+   * cancels the descriptions not consumed yet.
+   */
+  public Stream<S3BucketInfo> inventory(String prefix)
+  {
+    List<Bucket> buckets = s3.listBuckets().buckets().stream()
+      .filter(bucket -> prefix == null || bucket.name().startsWith(prefix))
+      .toList();
+    CompletionService<S3BucketInfo> completed = new ExecutorCompletionService<>(workers);
+    List<Future<S3BucketInfo>> descriptions = buckets.stream()
+      .map(bucket -> completed.submit(() -> loader.load(bucket, Instant.now().plus(bucketTimeout))))
+      .toList();
+    return IntStream.range(0, descriptions.size())
+      .mapToObj(i -> take(completed))
+      .onClose(() -> descriptions.forEach(description -> description.cancel(true)));
+  }
+
+  private static S3BucketInfo take(CompletionService<S3BucketInfo> completed)
+  {
+    try
+    {
+      return completed.take().get();
+    }
+    catch (InterruptedException ex)
+    {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted while waiting for the bucket descriptions");
+    }
+    catch (ExecutionException ex)
+    {
+      throw ex.getCause() instanceof RuntimeException cause ? cause : new CompletionException(ex.getCause());
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package fr.simplex_software.aws.iac.quarkus_api;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.databind.*;
+import jakarta.ws.rs.core.*;
+
+import java.io.*;
+import java.util.stream.*;
+
+/**
+ * Writes a bucket inventory to the HTTP response as a JSON array, flushing each bucket
+ * as soon as it's described.
+ */
+public class S3BucketInventoryOutput implements StreamingOutput
+{
+  private final ObjectMapper objectMapper;
+  private final Stream<S3BucketInfo> inventory;
+
+  public S3BucketInventoryOutput(ObjectMapper objectMapper, Stream<S3BucketInfo> inventory)
+  {
+    this.objectMapper = objectMapper;
+    this.inventory = inventory;
+  }
+
+  @Override
+  public void write(OutputStream output) throws IOException
+  {
+    try (inventory; JsonGenerator generator = objectMapper.createGenerator(output).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET))
+    {
+      generator.writeStartArray();
+      for (S3BucketInfo info : (Iterable<S3BucketInfo>) inventory::iterator)
+      {
+        generator.writeObject(info);
+        generator.flush();
+      }
+      generator.writeEndArray();
+    }
+  }
+}
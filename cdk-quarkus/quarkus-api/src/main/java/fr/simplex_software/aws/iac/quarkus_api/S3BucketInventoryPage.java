@@ -0,0 +1,50 @@
+package fr.simplex_software.aws.iac.quarkus_api;
+
+import io.quarkus.qute.*;
+import jakarta.ws.rs.core.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.stream.*;
+
+/**
+ * Writes a bucket inventory to the HTTP response as the {@code s3Inventory} HTML table.
+ * The page is rendered once, then split where the rows go, such that its head is sent
+ * first and each row, rendered by the {@code row} fragment, as soon as its bucket is
+ * described.
+ */
+public class S3BucketInventoryPage implements StreamingOutput
+{
+  public static final String ROWS = "<!-- rows -->";
+  private static final String ROW = "row";
+  private final Template template;
+  private final String prefix;
+  private final Stream<S3BucketInfo> inventory;
+
+  public S3BucketInventoryPage(Template template, String prefix, Stream<S3BucketInfo> inventory)
+  {
+    this.template = template;
+    this.prefix = prefix;
+    this.inventory = inventory;
+  }
+
+  @Override
+  public void write(OutputStream output) throws IOException
+  {
+    String page = template.data("prefix", prefix).render();
+    int rows = page.indexOf(ROWS);
+    Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+    try (inventory)
+    {
+      writer.write(page, 0, rows);
+      writer.flush();
+      for (S3BucketInfo info : (Iterable<S3BucketInfo>) inventory::iterator)
+      {
+        writer.write(template.getFragment(ROW).data("bucket", info).render());
+        writer.flush();
+      }
+      writer.write(page, rows + ROWS.length(), page.length() - rows - ROWS.length());
+      writer.flush();
+    }
+  }
+}
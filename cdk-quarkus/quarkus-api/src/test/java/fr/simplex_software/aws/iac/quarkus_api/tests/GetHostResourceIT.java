@@ -1,5 +1,6 @@
 package fr.simplex_software.aws.iac.quarkus_api.tests;
 
+import fr.simplex_software.aws.iac.quarkus_api.*;
 import io.quarkus.test.junit.*;
 import io.restassured.response.*;
 import jakarta.inject.*;
@@ -7,6 +8,9 @@ import org.apache.http.*;
 import org.eclipse.microprofile.config.inject.*;
 import org.junit.jupiter.api.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 import static io.restassured.RestAssured.*;
 import static org.assertj.core.api.Assertions.*;
 
@@ -16,6 +20,8 @@ public class GetHostResourceIT
   @Inject
   @ConfigProperty(defaultValue = "../quarkus-api/target/function.zip", name = "cdk-quarkus-api-gateway.zip-location")
   private String zipLocation;
+  @Inject
+  S3BucketInfoCache bucketInfoCache;
 
   @Test
   public void testZipLocation()
@@ -39,4 +45,67 @@ public class GetHostResourceIT
     assertThat(response.statusCode()).isEqualTo(HttpStatus.SC_OK);
     assertThat(response.getBody()).isNotNull();
   }
+
+  @Test
+  public void testTemplateCached()
+  {
+    given().when().delete("/s3/info/my-bucket-8701");
+    long hits = bucketInfoCache.hits();
+    long misses = bucketInfoCache.misses();
+    assertThat(given().when().get("/s3/info/my-bucket-8701").statusCode()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(given().when().get("/s3/info/my-bucket-8701").statusCode()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(bucketInfoCache.misses()).isEqualTo(misses + 1);
+    assertThat(bucketInfoCache.hits()).isEqualTo(hits + 1);
+  }
+
+  @Test
+  public void testConcurrentMissesShareOneLoad() throws Exception
+  {
+    given().when().delete("/s3/info/my-bucket-8701");
+    long loads = bucketInfoCache.loads();
+    try (ExecutorService callers = Executors.newFixedThreadPool(8))
+    {
+      List<Future<Integer>> statuses = new ArrayList<>();
+      for (int i = 0; i < 8; i++)
+        statuses.add(callers.submit(() -> given().when().get("/s3/info/my-bucket-8701").statusCode()));
+      for (Future<Integer> status : statuses)
+        assertThat(status.get()).isEqualTo(HttpStatus.SC_OK);
+    }
+    assertThat(bucketInfoCache.loads()).isEqualTo(loads + 1);
+  }
+
+  @Test
+  public void testUnknownBucket()
+  {
+    long misses = bucketInfoCache.misses();
+    assertThat(given().when().get("/s3/info/no-such-bucket-8701").statusCode()).isEqualTo(HttpStatus.SC_NOT_FOUND);
+    assertThat(given().when().get("/s3/info/no-such-bucket-8701").statusCode()).isEqualTo(HttpStatus.SC_NOT_FOUND);
+    assertThat(bucketInfoCache.misses()).isEqualTo(misses + 1);
+  }
+
+  @Test
+  public void testInventory()
+  {
+    Response response = given().accept("application/json").queryParam("prefix", "my-bucket").when().get("/s3/inventory");
+    assertThat(response.statusCode()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(response.jsonPath().getList("bucketName", String.class)).containsExactly("my-bucket-8701");
+    assertThat(given().accept("application/json").queryParam("prefix", "no-such-bucket").when().get("/s3/inventory")
+      .jsonPath().getList("bucketName")).isEmpty();
+    response = given().accept("text/html").when().get("/s3/inventory");
+    assertThat(response.statusCode()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(response.asString()).contains("my-bucket-8701").contains("</table>");
+  }
+
+  @Test
+  public void testMetrics()
+  {
+    given().when().delete("/s3/info/my-bucket-8701");
+    assertThat(given().when().get("/s3/info/my-bucket-8701").statusCode()).isEqualTo(HttpStatus.SC_OK);
+    Response response = given().when().get("/q/metrics");
+    assertThat(response.statusCode()).isEqualTo(HttpStatus.SC_OK);
+    assertThat(response.asString())
+      .contains("s3_client_requests_seconds_bucket{operation=\"HeadBucket\",outcome=\"SUCCESS\"")
+      .contains("s3_client_requests_in_flight")
+      .contains("http_server_requests_seconds_bucket{method=\"GET\"");
+  }
 }
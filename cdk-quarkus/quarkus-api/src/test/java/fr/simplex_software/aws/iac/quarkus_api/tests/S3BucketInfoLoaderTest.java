@@ -0,0 +1,169 @@
+package fr.simplex_software.aws.iac.quarkus_api.tests;
+
+import fr.simplex_software.aws.iac.quarkus_api.*;
+import org.junit.jupiter.api.*;
+import software.amazon.awssdk.awscore.exception.*;
+import software.amazon.awssdk.services.s3.*;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class S3BucketInfoLoaderTest
+{
+  private static final String BUCKET = "my-bucket-8701";
+  private static final Instant CREATED = Instant.parse("2024-01-01T00:00:00Z");
+
+  private FaultyS3Client s3;
+  private S3BucketInfoLoader loader;
+
+  @BeforeEach
+  public void setUp()
+  {
+    s3 = new FaultyS3Client();
+    loader = new S3BucketInfoLoader(s3, Duration.ofMinutes(5), Duration.ofSeconds(30), Duration.ofSeconds(5));
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    loader.destroy();
+  }
+
+  @Test
+  public void testFailedLookupsLeaveTheirFieldEmpty()
+  {
+    S3BucketInfo info = loader.load(BUCKET).orElseThrow();
+    assertThat(info.bucketName).isEqualTo(BUCKET);
+    assertThat(info.creationDate).isEqualTo(LocalDateTime.ofInstant(CREATED, ZoneId.systemDefault()));
+    assertThat(info.awsRegionName).isNull();
+    assertThat(info.versioning).isFalse();
+    assertThat(info.tags).isEmpty();
+    assertThat(info.errors).hasSize(2)
+      .anySatisfy(error -> assertThat(error).startsWith("region: "))
+      .anySatisfy(error -> assertThat(error).startsWith("versioning: "));
+  }
+
+  @Test
+  public void testNoSuchTagSetIsNotAnError()
+  {
+    s3.tagging = () -> { throw s3Exception("NoSuchTagSet"); };
+    S3BucketInfo info = loader.load(BUCKET).orElseThrow();
+    assertThat(info.tags).isEmpty();
+    assertThat(info.errors).noneSatisfy(error -> assertThat(error).startsWith("tags: "));
+  }
+
+  @Test
+  public void testHeadBucketAndLocationRunConcurrently()
+  {
+    CountDownLatch located = new CountDownLatch(1);
+    s3.location = () ->
+    {
+      located.countDown();
+      return GetBucketLocationResponse.builder().locationConstraint("eu-west-3").build();
+    };
+    s3.head = () ->
+    {
+      assertThat(located.await(5, TimeUnit.SECONDS)).as("GetBucketLocation started before HeadBucket completed").isTrue();
+      return HeadBucketResponse.builder().build();
+    };
+    S3BucketInfo info = loader.load(BUCKET).orElseThrow();
+    assertThat(info.awsRegionName).isEqualTo("eu-west-3");
+  }
+
+  @Test
+  public void testNoSuchBucket()
+  {
+    s3.head = () -> { throw NoSuchBucketException.builder().message("no such bucket").build(); };
+    assertThat(loader.load(BUCKET)).isEmpty();
+  }
+
+  @Test
+  public void testTimedOutLookups()
+  {
+    Bucket bucket = Bucket.builder().name(BUCKET).creationDate(CREATED).build();
+    S3BucketInfo info = loader.load(bucket, Instant.now().minusSeconds(1));
+    assertThat(info.creationDate).isNotNull();
+    assertThat(info.awsRegionName).isNull();
+    assertThat(info.versioning).isFalse();
+    assertThat(info.tags).isEmpty();
+    assertThat(info.errors).containsExactly("region: timed out", "versioning: timed out", "tags: timed out");
+    assertThat(s3.calls).isEmpty();
+  }
+
+  private static S3Exception s3Exception(String errorCode)
+  {
+    return S3Exception.builder().statusCode(404)
+      .awsErrorDetails(AwsErrorDetails.builder().errorCode(errorCode).errorMessage(errorCode).build()).build();
+  }
+
+  private static class FaultyS3Client implements S3Client
+  {
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private Callable<HeadBucketResponse> head = () -> HeadBucketResponse.builder().build();
+    private Callable<GetBucketLocationResponse> location = () -> { throw s3Exception("AccessDenied"); };
+    private Callable<GetBucketTaggingResponse> tagging = () -> GetBucketTaggingResponse.builder().build();
+
+    @Override
+    public HeadBucketResponse headBucket(HeadBucketRequest request)
+    {
+      return call("HeadBucket", head);
+    }
+
+    @Override
+    public GetBucketLocationResponse getBucketLocation(GetBucketLocationRequest request)
+    {
+      return call("GetBucketLocation", location);
+    }
+
+    @Override
+    public GetBucketVersioningResponse getBucketVersioning(GetBucketVersioningRequest request)
+    {
+      return call("GetBucketVersioning", () -> { throw s3Exception("AccessDenied"); });
+    }
+
+    @Override
+    public GetBucketTaggingResponse getBucketTagging(GetBucketTaggingRequest request)
+    {
+      return call("GetBucketTagging", tagging);
+    }
+
+    @Override
+    public ListBucketsResponse listBuckets(ListBucketsRequest request)
+    {
+      return call("ListBuckets", () -> ListBucketsResponse.builder()
+        .buckets(Bucket.builder().name(BUCKET).creationDate(CREATED).build()).build());
+    }
+
+    private <T> T call(String operation, Callable<T> call)
+    {
+      calls.add(operation);
+      try
+      {
+        return call.call();
+      }
+      catch (RuntimeException ex)
+      {
+        throw ex;
+      }
+      catch (Exception ex)
+      {
+        throw new IllegalStateException(ex);
+      }
+    }
+
+    @Override
+    public String serviceName()
+    {
+      return SERVICE_NAME;
+    }
+
+    @Override
+    public void close()
+    {
+    }
+  }
+}